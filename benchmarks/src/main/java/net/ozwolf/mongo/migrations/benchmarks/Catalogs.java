@@ -0,0 +1,179 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Generates synthetic migration catalogs and schema version histories for the benchmarks.
+ *
+ * Every generated catalog cycles through an {@code insert} with strict {@code $date} values, a multi {@code update} and a {@code createIndexes} command so that parsing and interpolation see a realistic mix of structures.
+ */
+final class Catalogs {
+    /**
+     * The fraction of the generated catalog that is recorded as already applied in the generated history.
+     */
+    static final double APPLIED_RATIO = 0.95;
+
+    private static final Instant STARTED = Instant.parse("2014-12-04T22:00:00.000Z");
+    private static final Instant FINISHED = Instant.parse("2014-12-04T22:00:02.000Z");
+
+    private Catalogs() {
+    }
+
+    static String version(int index) {
+        return String.format("%d.%d.%d", 1 + index / 10_000, (index / 100) % 100, index % 100);
+    }
+
+    static int appliedCount(int size) {
+        return (int) (size * APPLIED_RATIO);
+    }
+
+    static Path writeYaml(int size) throws IOException {
+        Path file = Files.createTempFile("mongo-trek-benchmark-" + size + "-", ".yml");
+        file.toFile().deleteOnExit();
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("migrations:\n");
+            for (int i = 0; i < size; i++) {
+                writer.write("  - version: " + version(i) + "\n");
+                writer.write("    description: Generated migration " + i + "\n");
+                if (i % 2 == 0)
+                    writer.write("    author: Homer Simpson\n");
+                writer.write("    command: " + yamlCommand(i) + "\n");
+            }
+        }
+
+        return file;
+    }
+
+    static List<MigrationCommand> commands(int size) {
+        List<MigrationCommand> commands = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            commands.add(new MigrationCommand(version(i), "Generated migration " + i, null, command(i)));
+        return commands;
+    }
+
+    static List<Migration> history(int size) {
+        int applied = appliedCount(size);
+        List<Migration> history = new ArrayList<>(applied);
+        for (int i = 0; i < applied; i++)
+            history.add(record(i));
+        return history;
+    }
+
+    static List<Migration> state(int size) {
+        int applied = appliedCount(size);
+        List<Migration> migrations = new ArrayList<>(size);
+        List<MigrationCommand> commands = commands(size);
+        for (int i = 0; i < size; i++)
+            migrations.add(i < applied ? record(i).assign(commands.get(i)) : new Migration(commands.get(i)));
+
+        // The state is keyed by version, so shuffle to avoid benchmarking a pre-sorted input.
+        Collections.shuffle(migrations, new Random(size));
+        return migrations;
+    }
+
+    static Map<String, Object> command(int index) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        switch (index % 3) {
+            case 0:
+                command.put("insert", "people");
+                command.put("documents", Arrays.asList(
+                        person("Homer Simpson", 37),
+                        person("Marge Simpson", 36)
+                ));
+                break;
+            case 1:
+                Map<String, Object> set = new LinkedHashMap<>();
+                set.put("updatedAt", date());
+                set.put("scores", Arrays.asList(1, 3, 5));
+
+                Map<String, Object> update = new LinkedHashMap<>();
+                update.put("q", new LinkedHashMap<>(Collections.singletonMap("index", index)));
+                update.put("u", new LinkedHashMap<>(Collections.singletonMap("$set", set)));
+                update.put("multi", true);
+
+                command.put("update", "people");
+                command.put("updates", new ArrayList<>(Collections.singletonList(update)));
+                break;
+            default:
+                Map<String, Object> index1 = new LinkedHashMap<>();
+                index1.put("key", new LinkedHashMap<>(Collections.singletonMap("field" + index, 1)));
+                index1.put("name", "field" + index + "_idx");
+
+                command.put("createIndexes", "people");
+                command.put("indexes", new ArrayList<>(Collections.singletonList(index1)));
+                break;
+        }
+        return command;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> deepCopy(Map<String, Object> source) {
+        Map<String, Object> copy = new LinkedHashMap<>(source.size());
+        source.forEach((k, v) -> copy.put(k, copyValue(v)));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof Map)
+            return deepCopy((Map<String, Object>) value);
+        if (value instanceof List) {
+            List<Object> source = (List<Object>) value;
+            List<Object> copy = new ArrayList<>(source.size());
+            source.forEach(v -> copy.add(copyValue(v)));
+            return copy;
+        }
+        return value;
+    }
+
+    private static Migration record(int index) {
+        return new Migration(
+                version(index),
+                "Generated migration " + index,
+                Migration.DEFAULT_AUTHOR,
+                STARTED,
+                FINISHED,
+                MigrationStatus.Successful,
+                null,
+                new Document("n", 2).append("ok", 1.0)
+        );
+    }
+
+    private static Map<String, Object> person(String name, int age) {
+        Map<String, Object> person = new LinkedHashMap<>();
+        person.put("name", name);
+        person.put("age", age);
+        person.put("updatedAt", date());
+        return person;
+    }
+
+    private static Map<String, Object> date() {
+        return new LinkedHashMap<>(Collections.singletonMap("$date", "2018-12-18T11:29:33.123+11:00"));
+    }
+
+    private static String yamlCommand(int index) {
+        switch (index % 3) {
+            case 0:
+                return "{ insert: \"people\", documents: [ " +
+                        "{ name: \"Homer Simpson\", age: 37, updatedAt: { $date: \"2018-12-18T11:29:33.123+11:00\" } }, " +
+                        "{ name: \"Marge Simpson\", age: 36, updatedAt: { $date: \"2018-12-18T11:29:33.123+11:00\" } } ] }";
+            case 1:
+                return "{ update: \"people\", updates: [ { q: { index: " + index + " }, " +
+                        "u: { $set: { updatedAt: { $date: \"2018-12-18T11:29:33.123+11:00\" }, scores: [ 1, 3, 5 ] } }, multi: true } ] }";
+            default:
+                return "{ createIndexes: \"people\", indexes: [ { key: { field" + index + ": 1 }, name: \"field" + index + "_idx\" } ] }";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A fake {@code SchemaVersionDAO} that serves a pre-built history from memory so the benchmarks measure mongoTrek and not the database.
+ *
+ * The same history instances are returned on every call; the benchmarks never persist, so this mirrors a read-only startup check.
+ */
+final class InMemorySchemaVersionDAO implements SchemaVersionDAO {
+    private final List<Migration> history;
+
+    InMemorySchemaVersionDAO(List<Migration> history) {
+        this.history = history;
+    }
+
+    @Override
+    public List<Migration> findAll() {
+        return history;
+    }
+
+    @Override
+    public void save(Migration migration) {
+        throw new UnsupportedOperationException("Benchmarks do not persist migrations.");
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void heartbeat(Migration migration) {
+    }
+
+    @Override
+    public void checkpoint(Migration migration) {
+    }
+
+    @Override
+    public Optional<Migration> findLastSuccessful() {
+        return history.stream()
+                .filter(Migration::isSuccessful)
+                .max(Migration.sortByVersionAscending());
+    }
+
+    @Override
+    public Optional<SchemaVersionHead> findHead() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void saveHead(SchemaVersionHead head) {
+        throw new UnsupportedOperationException("Benchmarks do not persist migrations.");
+    }
+}
@@ -0,0 +1,49 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.MongoTrek;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and deserializing a YAML migrations catalog from the file system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationCommandsFactoryBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int catalogSize;
+
+    private Path catalog;
+    private String catalogPath;
+    private MigrationCommandsFactory factory;
+    private ClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.catalog = Catalogs.writeYaml(catalogSize);
+        this.catalogPath = catalog.toAbsolutePath().toString();
+        this.factory = new MigrationCommandsFactory();
+        this.classLoader = MongoTrek.class.getClassLoader();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(catalog);
+    }
+
+    @Benchmark
+    public MigrationCommands getCommands() throws MongoTrekFailureException {
+        return factory.getCommands(catalogPath, classLoader);
+    }
+}
@@ -0,0 +1,36 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.MongoTrekState;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.service.MigrationsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reconciling a parsed catalog against the schema version history, served by an in-memory {@code SchemaVersionDAO}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationsServiceBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int catalogSize;
+
+    private MigrationCommands commands;
+    private MigrationsService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.commands = new MigrationCommands(null, Catalogs.commands(catalogSize));
+        this.service = new MigrationsService(new InMemorySchemaVersionDAO(Catalogs.history(catalogSize)));
+    }
+
+    @Benchmark
+    public MongoTrekState getState() {
+        return service.getState(commands);
+    }
+}
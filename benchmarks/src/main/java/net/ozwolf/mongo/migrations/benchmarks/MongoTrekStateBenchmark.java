@@ -0,0 +1,49 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.MongoTrekState;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sorting and filtering queries on a computed {@code MongoTrekState}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MongoTrekStateBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int catalogSize;
+
+    private MongoTrekState state;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.state = new MongoTrekState(Catalogs.state(catalogSize));
+    }
+
+    @Benchmark
+    public List<Migration> getMigrations() {
+        return state.getMigrations();
+    }
+
+    @Benchmark
+    public List<Migration> getPending() {
+        return state.getPending().getMigrations();
+    }
+
+    @Benchmark
+    public String getCurrentVersion() {
+        return state.getCurrentVersion();
+    }
+
+    @Benchmark
+    public String getNextPendingVersion() {
+        return state.getPending().getNextPendingVersion();
+    }
+}
@@ -0,0 +1,50 @@
+package net.ozwolf.mongo.migrations.benchmarks;
+
+import net.ozwolf.mongo.migrations.internal.util.StrictJsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures strict JSON ({@code $date}) interpolation across every command of a catalog.
+ *
+ * Interpolation rewrites commands in place, so each invocation works on a fresh deep copy.  The {@code copyOnly} benchmark measures that copy on its own so it can be subtracted from the {@code interpolate} figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrictJsonUtilsBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int catalogSize;
+
+    private List<Map<String, Object>> templates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.templates = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++)
+            templates.add(Catalogs.command(i));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> interpolate() {
+        List<Map<String, Object>> interpolated = new ArrayList<>(templates.size());
+        for (Map<String, Object> template : templates)
+            interpolated.add(StrictJsonUtils.interpolate(Catalogs.deepCopy(template)));
+        return interpolated;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> copyOnly() {
+        List<Map<String, Object>> copies = new ArrayList<>(templates.size());
+        for (Map<String, Object> template : templates)
+            copies.add(Catalogs.deepCopy(template));
+        return copies;
+    }
+}
@@ -0,0 +1,59 @@
+package net.ozwolf.mongo.migrations.maven;
+
+import net.ozwolf.mongo.migrations.MongoTrekCompiler;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+
+/**
+ * Compiles a mongoTrek migrations catalog from the build output directory into its binary form, written alongside the source catalog with the {@code .mtc} extension so {@code MongoTrek} loads it in preference to the YAML or JSON source.
+ *
+ * Runs after resources have been processed, so the catalog is read exactly as it will be packaged.
+ */
+@Mojo(name = "compile", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true)
+public class CompileCatalogMojo extends AbstractMojo {
+    /**
+     * The migrations file, manifest or directory, relative to the output directory (ie. the same path given to {@code MongoTrek}).
+     */
+    @Parameter(property = "mongoTrek.migrationsFile", required = true)
+    private String migrationsFile;
+
+    /**
+     * The directory containing the processed catalog and that the compiled catalog is written to.
+     */
+    @Parameter(property = "mongoTrek.outputDirectory", defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * Skip compiling the catalog.
+     */
+    @Parameter(property = "mongoTrek.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping mongoTrek catalog compilation.");
+            return;
+        }
+
+        String path = migrationsFile.endsWith("/") ? migrationsFile.substring(0, migrationsFile.length() - 1) : migrationsFile;
+        File source = new File(outputDirectory, path);
+        File output = new File(outputDirectory, path + MongoTrekCompiler.EXTENSION);
+
+        if (!source.exists())
+            throw new MojoExecutionException(String.format("Migrations file [ %s ] does not exist.", source));
+
+        try {
+            MongoTrekCompiler.compile(source.getAbsolutePath(), output, getClass().getClassLoader());
+            getLog().info(String.format("Compiled mongoTrek catalog [ %s ] to [ %s ]", source, output));
+        } catch (MongoTrekFailureException e) {
+            throw new MojoExecutionException(String.format("Failed to compile mongoTrek catalog [ %s ]", source), e);
+        }
+    }
+}
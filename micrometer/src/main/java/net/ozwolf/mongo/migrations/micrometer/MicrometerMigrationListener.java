@@ -0,0 +1,119 @@
+package net.ozwolf.mongo.migrations.micrometer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import net.ozwolf.mongo.migrations.MigrationListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>Micrometer Migration Listener</h1>
+ *
+ * Publishes mongoTrek timings to a Micrometer {@code MeterRegistry}.  The following meters are registered, each tagged with the {@code database} being migrated:
+ *
+ * <ul>
+ *     <li>{@code mongotrek.migration} - a timer per migration, also tagged with {@code command} and {@code outcome} ({@code success} or {@code failure}), and with {@code version} if enabled</li>
+ *     <li>{@code mongotrek.catalog.load} - a timer of reading the migrations file</li>
+ *     <li>{@code mongotrek.state} - a timer of reading and reconciling the migration state</li>
+ *     <li>{@code mongotrek.schema.version.write} - a timer of writes to the schema version collection, also tagged with {@code operation}</li>
+ *     <li>{@code mongotrek.migrations.pending} - a gauge of the migrations pending when the state was last computed</li>
+ * </ul>
+ *
+ * Tagging migrations by version and publishing percentile histograms are both off by default, as each multiplies the number of time series a registry holds.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class MicrometerMigrationListener implements MigrationListener {
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    private boolean versionTagged;
+    private boolean percentileHistograms;
+
+    public final static String MIGRATION_TIMER = "mongotrek.migration";
+    public final static String CATALOG_LOAD_TIMER = "mongotrek.catalog.load";
+    public final static String STATE_TIMER = "mongotrek.state";
+    public final static String SCHEMA_VERSION_WRITE_TIMER = "mongotrek.schema.version.write";
+    public final static String PENDING_GAUGE = "mongotrek.migrations.pending";
+
+    /**
+     * Create a listener publishing to the provided registry.
+     *
+     * @param registry The meter registry
+     */
+    public MicrometerMigrationListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Tag each {@code mongotrek.migration} timer with the migration's {@code version}.  This registers a timer per migration per database, so should only be enabled where there are few of both.  Disabled by default.
+     *
+     * @param versionTagged Whether to tag migration timers with their version
+     */
+    public void setVersionTagged(boolean versionTagged) {
+        this.versionTagged = versionTagged;
+    }
+
+    /**
+     * Publish percentile histograms from every timer, so latency percentiles can be aggregated across nodes by the monitoring system.  Disabled by default.
+     *
+     * @param percentileHistograms Whether timers publish percentile histograms
+     */
+    public void setPercentileHistograms(boolean percentileHistograms) {
+        this.percentileHistograms = percentileHistograms;
+    }
+
+    @Override
+    public void onCatalogLoaded(String database, int migrations, long durationNanos) {
+        timer(CATALOG_LOAD_TIMER, "Time taken to read the migrations file", Tags.of("database", database)).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onStateComputed(String database, int migrations, int pending, long durationNanos) {
+        timer(STATE_TIMER, "Time taken to read and reconcile the migration state", Tags.of("database", database)).record(durationNanos, TimeUnit.NANOSECONDS);
+        pendingOf(database).set(pending);
+    }
+
+    @Override
+    public void onMigrationFinished(String database, String version, String commandType, long durationNanos) {
+        migration(database, version, commandType, "success").record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onMigrationFailed(String database, String version, String commandType, long durationNanos, Throwable failure) {
+        migration(database, version, commandType, "failure").record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onSchemaVersionWrite(String database, String operation, long durationNanos) {
+        timer(SCHEMA_VERSION_WRITE_TIMER, "Time taken by writes to the schema version collection", Tags.of("database", database, "operation", operation)).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer migration(String database, String version, String commandType, String outcome) {
+        Tags tags = Tags.of("database", database, "command", commandType, "outcome", outcome);
+        return timer(MIGRATION_TIMER, "Time taken to apply a migration", versionTagged ? tags.and("version", version) : tags);
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram(percentileHistograms)
+                .register(registry);
+    }
+
+    private AtomicInteger pendingOf(String database) {
+        return pending.computeIfAbsent(database, d -> {
+            AtomicInteger count = new AtomicInteger(0);
+            Gauge.builder(PENDING_GAUGE, count, AtomicInteger::get)
+                    .description("Migrations pending when the state was last computed")
+                    .tags("database", d)
+                    .register(registry);
+            return count;
+        });
+    }
+}
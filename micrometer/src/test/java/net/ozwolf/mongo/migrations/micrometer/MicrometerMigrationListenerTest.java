@@ -0,0 +1,80 @@
+package net.ozwolf.mongo.migrations.micrometer;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicrometerMigrationListenerTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerMigrationListener listener = new MicrometerMigrationListener(registry);
+
+    @Test
+    void shouldTimeMigrationsByOutcome() {
+        listener.onMigrationFinished("trek", "1.0.0", "insert", TimeUnit.MILLISECONDS.toNanos(20));
+        listener.onMigrationFinished("trek", "1.0.1", "insert", TimeUnit.MILLISECONDS.toNanos(40));
+        listener.onMigrationFailed("trek", "1.0.2", "update", TimeUnit.MILLISECONDS.toNanos(5), new IllegalStateException("failed"));
+
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).tags("command", "insert", "outcome", "success").timer().count()).isEqualTo(2L);
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).tags("command", "insert").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(60.0);
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).tags("outcome", "failure").timer().count()).isEqualTo(1L);
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).timers()).hasSize(2)
+                .allSatisfy(t -> assertThat(t.getId().getTag("version")).isNull());
+    }
+
+    @Test
+    void shouldTagMigrationsByVersionWhenEnabled() {
+        listener.setVersionTagged(true);
+        listener.onMigrationFinished("trek", "1.0.0", "insert", TimeUnit.MILLISECONDS.toNanos(20));
+        listener.onMigrationFinished("trek", "1.0.1", "insert", TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).tags("version", "1.0.0").timer().count()).isEqualTo(1L);
+        assertThat(registry.get(MicrometerMigrationListener.MIGRATION_TIMER).timers()).hasSize(2);
+    }
+
+    @Test
+    void shouldOnlyPublishPercentileHistogramsWhenEnabled() {
+        Map<String, Boolean> histograms = new HashMap<>();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                histograms.put(id.getName(), config.isPercentileHistogram());
+                return config;
+            }
+        });
+
+        listener.onSchemaVersionWrite("trek", "save", 1000L);
+        listener.setPercentileHistograms(true);
+        listener.onCatalogLoaded("trek", 10, 1000L);
+
+        assertThat(histograms).containsEntry(MicrometerMigrationListener.SCHEMA_VERSION_WRITE_TIMER, false);
+        assertThat(histograms).containsEntry(MicrometerMigrationListener.CATALOG_LOAD_TIMER, true);
+    }
+
+    @Test
+    void shouldTrackPendingMigrationsPerDatabase() {
+        listener.onStateComputed("first", 10, 3, 1000L);
+        listener.onStateComputed("second", 10, 5, 1000L);
+        listener.onStateComputed("first", 10, 0, 1000L);
+
+        assertThat(registry.get(MicrometerMigrationListener.PENDING_GAUGE).tags("database", "first").gauge().value()).isEqualTo(0.0);
+        assertThat(registry.get(MicrometerMigrationListener.PENDING_GAUGE).tags("database", "second").gauge().value()).isEqualTo(5.0);
+        assertThat(registry.get(MicrometerMigrationListener.STATE_TIMER).tags("database", "first").timer().count()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldTimeSchemaVersionWrites() {
+        listener.onSchemaVersionWrite("trek", "save", 1000L);
+        listener.onSchemaVersionWrite("trek", "flush", 1000L);
+
+        assertThat(registry.get(MicrometerMigrationListener.SCHEMA_VERSION_WRITE_TIMER).tags("operation", "save").timer().count()).isEqualTo(1L);
+        assertThat(registry.get(MicrometerMigrationListener.SCHEMA_VERSION_WRITE_TIMER).timers()).hasSize(2);
+    }
+}
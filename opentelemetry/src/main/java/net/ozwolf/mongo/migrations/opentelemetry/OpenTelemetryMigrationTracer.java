@@ -0,0 +1,87 @@
+package net.ozwolf.mongo.migrations.opentelemetry;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import net.ozwolf.mongo.migrations.MigrationTracer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <h1>OpenTelemetry Migration Tracer</h1>
+ *
+ * Traces mongoTrek with OpenTelemetry.  Each span is made current while open, so MongoDB command spans recorded by the OpenTelemetry MongoDB instrumentation (whether the Java agent or a {@code MongoTelemetry} command listener registered on the client) are children of the migration that ran them.
+ *
+ * A migration run inside an existing span, such as an application startup span, is traced as its child.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class OpenTelemetryMigrationTracer implements MigrationTracer {
+    private final Tracer tracer;
+
+    public final static String INSTRUMENTATION_NAME = "net.ozwolf.mongo-trek";
+
+    /**
+     * Create a tracer recording spans with the provided OpenTelemetry instance.
+     *
+     * @param openTelemetry The OpenTelemetry instance
+     */
+    public OpenTelemetryMigrationTracer(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME));
+    }
+
+    /**
+     * Create a tracer recording spans with the provided OpenTelemetry tracer.
+     *
+     * @param tracer The OpenTelemetry tracer
+     */
+    public OpenTelemetryMigrationTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Span start(String name) {
+        io.opentelemetry.api.trace.Span span = tracer.spanBuilder(name).startSpan();
+        return new OpenSpan(span, span.makeCurrent());
+    }
+
+    @Override
+    public Executor currentContext() {
+        return Context.current().wrap((Executor) Runnable::run);
+    }
+
+    private static class OpenSpan implements Span {
+        private final io.opentelemetry.api.trace.Span span;
+        private final Scope scope;
+
+        private OpenSpan(io.opentelemetry.api.trace.Span span, Scope scope) {
+            this.span = span;
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean isRecording() {
+            return span.isRecording();
+        }
+
+        @Override
+        public Span attribute(String key, String value) {
+            if (value != null)
+                span.setAttribute(key, value);
+            return this;
+        }
+
+        @Override
+        public void failed(Throwable failure) {
+            span.recordException(failure);
+            span.setStatus(StatusCode.ERROR, String.valueOf(failure.getMessage()));
+        }
+
+        @Override
+        public void close() {
+            scope.close();
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.ozwolf.mongo.migrations.opentelemetry;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import net.ozwolf.mongo.migrations.MigrationTracer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenTelemetryMigrationTracerTest {
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider provider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+    private final OpenTelemetryMigrationTracer tracer = new OpenTelemetryMigrationTracer(provider.get(OpenTelemetryMigrationTracer.INSTRUMENTATION_NAME));
+
+    @Test
+    void shouldNestSpansOpenedWhileCurrent() {
+        try (MigrationTracer.Span root = tracer.start("mongotrek.migrate")) {
+            try (MigrationTracer.Span migration = tracer.start("mongotrek.migration")) {
+                migration.attribute("mongotrek.version", "1.0.0");
+            }
+        }
+
+        SpanData root = span("mongotrek.migrate");
+        SpanData migration = span("mongotrek.migration");
+        assertThat(migration.getParentSpanId()).isEqualTo(root.getSpanId());
+        assertThat(migration.getAttributes().get(AttributeKey.stringKey("mongotrek.version"))).isEqualTo("1.0.0");
+    }
+
+    @Test
+    void shouldPropagateCurrentSpanToOtherThreads() {
+        try (MigrationTracer.Span root = tracer.start("mongotrek.migrate")) {
+            Executor context = tracer.currentContext();
+            CompletableFuture.runAsync(() -> context.execute(() -> tracer.start("mongotrek.migration").close())).join();
+        }
+
+        assertThat(span("mongotrek.migration").getParentSpanId()).isEqualTo(span("mongotrek.migrate").getSpanId());
+    }
+
+    @Test
+    void shouldRecordFailures() {
+        try (MigrationTracer.Span span = tracer.start("mongotrek.migration")) {
+            span.failed(new IllegalStateException("no such command"));
+        }
+
+        SpanData span = span("mongotrek.migration");
+        assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+        assertThat(span.getEvents()).hasSize(1);
+    }
+
+    private SpanData span(String name) {
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        return spans.stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,83 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+
+/**
+ * <h1>Bulk Write Summary</h1>
+ *
+ * The combined counts of the bulk writes made by a {@link StreamingBulkWriter}.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class BulkWriteSummary {
+    private long read;
+    private long batches;
+    private long inserted;
+    private long matched;
+    private long modified;
+    private long deleted;
+    private long upserted;
+
+    void read() {
+        read++;
+    }
+
+    void add(BulkWriteResult result) {
+        batches++;
+        if (!result.wasAcknowledged()) return;
+
+        inserted += result.getInsertedCount();
+        matched += result.getMatchedCount();
+        modified += result.getModifiedCount();
+        deleted += result.getDeletedCount();
+        upserted += result.getUpserts().size();
+    }
+
+    /**
+     * @return The number of documents read from the source
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return The number of bulk writes made
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getUpserted() {
+        return upserted;
+    }
+
+    /**
+     * @return The counts as a document, suitable as a migration result
+     */
+    public Document toDocument() {
+        return new Document("read", read)
+                .append("batches", batches)
+                .append("nInserted", inserted)
+                .append("nMatched", matched)
+                .append("nModified", modified)
+                .append("nRemoved", deleted)
+                .append("nUpserted", upserted)
+                .append("ok", 1.0);
+    }
+}
@@ -0,0 +1,33 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+/**
+ * <h1>Java Migration</h1>
+ *
+ * A migration written in Java, for transformations that need application logic a database command cannot express.  A Java migration is declared in the migrations file like any other, with a {@code javaMigration} command naming its class:
+ *
+ * <pre>{@code
+ * migrations:
+ *     - version: 2.2.0
+ *       description: split full names
+ *       command:
+ *         javaMigration: "com.example.migrations.SplitFullNames"
+ * }</pre>
+ *
+ * The class must have a public no-argument constructor, and is loaded with the class loader the migrations file is read with (see {@link MongoTrek#setClassLoader(ClassLoader)}).  It is tracked in the schema version collection like any other migration, and its checksum covers the command (ie. the class name), not the class itself.
+ *
+ * {@link StreamingBulkWriter} streams a cursor through a transform into bounded bulk writes, so a migration over a large collection holds only one batch in memory.
+ */
+@FunctionalInterface
+public interface JavaMigration {
+    /**
+     * Apply the migration.
+     *
+     * @param database The database being migrated
+     * @return The migration result to record, or {@code null} to record {@code { ok: 1 }}
+     * @throws Exception If the migration fails, which fails the migration run
+     */
+    Document migrate(MongoDatabase database) throws Exception;
+}
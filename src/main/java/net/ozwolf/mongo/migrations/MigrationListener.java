@@ -0,0 +1,86 @@
+package net.ozwolf.mongo.migrations;
+
+/**
+ * <h1>Migration Listener</h1>
+ *
+ * A listener is told about each step mongoTrek takes, with its duration in nanoseconds, so migration cost can be published to a metrics system.  Register listeners with {@link MongoTrek#addListener(MigrationListener) MongoTrek.addListener(MigrationListener)}.
+ *
+ * Every method does nothing by default.  Listeners are called on the thread doing the work, which for parallel migrations and heartbeats is not the thread that called {@code migrate()}, so must be thread-safe and should return quickly.  An exception thrown by a listener is logged and otherwise ignored.
+ *
+ * The {@code commandType} of a migration is the name of its command (eg. {@code insert}, {@code createIndexes}).
+ */
+public interface MigrationListener {
+    /**
+     * The migrations file has been read.
+     *
+     * @param database      The database being migrated
+     * @param migrations    The number of migrations in the file
+     * @param durationNanos The time taken to read the file
+     */
+    default void onCatalogLoaded(String database, int migrations, long durationNanos) {
+    }
+
+    /**
+     * The migration state has been read from the schema version collection and reconciled with the migrations file.
+     *
+     * @param database      The database being migrated
+     * @param migrations    The number of migrations in the state
+     * @param pending       The number of migrations pending
+     * @param durationNanos The time taken to read and reconcile the state
+     */
+    default void onStateComputed(String database, int migrations, int pending, long durationNanos) {
+    }
+
+    /**
+     * A migration is about to be applied.
+     *
+     * @param database    The database being migrated
+     * @param version     The migration version
+     * @param commandType The name of the migration's command
+     */
+    default void onMigrationStarted(String database, String version, String commandType) {
+    }
+
+    /**
+     * A migration has been applied successfully.
+     *
+     * @param database      The database being migrated
+     * @param version       The migration version
+     * @param commandType   The name of the migration's command
+     * @param durationNanos The time taken to apply the migration, including its status writes
+     */
+    default void onMigrationFinished(String database, String version, String commandType, long durationNanos) {
+    }
+
+    /**
+     * A migration has failed.
+     *
+     * @param database      The database being migrated
+     * @param version       The migration version
+     * @param commandType   The name of the migration's command
+     * @param durationNanos The time taken before the migration failed
+     * @param failure       The reason the migration failed
+     */
+    default void onMigrationFailed(String database, String version, String commandType, long durationNanos, Throwable failure) {
+    }
+
+    /**
+     * A migration is still running.  Only reported when progress monitoring is enabled.
+     *
+     * @param database The database being migrated
+     * @param progress The migration's progress
+     * @see MongoTrek#setProgressInterval(java.time.Duration)
+     */
+    default void onMigrationProgress(String database, MigrationProgress progress) {
+    }
+
+    /**
+     * A write has been made to the schema version collection.
+     *
+     * @param database      The database being migrated
+     * @param operation     The kind of write: {@code save}, {@code flush}, {@code heartbeat} or {@code saveHead}
+     * @param durationNanos The time taken by the write
+     */
+    default void onSchemaVersionWrite(String database, String operation, long durationNanos) {
+    }
+}
@@ -0,0 +1,110 @@
+package net.ozwolf.mongo.migrations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+/**
+ * <h1>Migration Progress</h1>
+ *
+ * A snapshot of a migration that is still running, as reported to {@link MigrationListener#onMigrationProgress(String, MigrationProgress) MigrationListener.onMigrationProgress}.
+ *
+ * The document counts are read from the server's {@code $currentOp} output for the migration's command, so are only known when the command could be found there.  The total is the server's own progress total where it reports one (eg. index builds), otherwise the estimated document count of the command's collection.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class MigrationProgress {
+    private final String version;
+    private final String commandName;
+    private final Duration elapsed;
+    private final Long examined;
+    private final Long modified;
+    private final Long total;
+
+    public MigrationProgress(String version, String commandName, Duration elapsed, Long examined, Long modified, Long total) {
+        this.version = version;
+        this.commandName = commandName;
+        this.elapsed = elapsed;
+        this.examined = examined;
+        this.modified = modified;
+        this.total = total;
+    }
+
+    /**
+     * @return The migration version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The name of the migration's command
+     */
+    public String getCommandName() {
+        return commandName;
+    }
+
+    /**
+     * @return How long the migration has been running
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return The documents examined so far, if known
+     */
+    public OptionalLong getDocumentsExamined() {
+        return examined == null ? OptionalLong.empty() : OptionalLong.of(examined);
+    }
+
+    /**
+     * @return The documents modified so far, if known
+     */
+    public OptionalLong getDocumentsModified() {
+        return modified == null ? OptionalLong.empty() : OptionalLong.of(modified);
+    }
+
+    /**
+     * @return The total documents the command is expected to examine, if known
+     */
+    public OptionalLong getTotalDocuments() {
+        return total == null ? OptionalLong.empty() : OptionalLong.of(total);
+    }
+
+    /**
+     * @return The fraction of documents examined, between {@code 0} and {@code 1}, if known
+     */
+    public OptionalDouble getFraction() {
+        if (examined == null || total == null || total <= 0)
+            return OptionalDouble.empty();
+        return OptionalDouble.of(Math.min(1.0, (double) examined / total));
+    }
+
+    /**
+     * The remaining time, extrapolated from the rate documents have been examined at so far.
+     *
+     * @return The estimated time remaining, if known
+     */
+    public Optional<Duration> getEstimatedRemaining() {
+        if (examined == null || examined <= 0 || total == null)
+            return Optional.empty();
+
+        long remaining = Math.max(0, total - examined);
+        return Optional.of(Duration.ofMillis((long) (elapsed.toMillis() * ((double) remaining / examined))));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder(String.format("[ %s ] %s running for [ %d seconds ]", version, commandName, elapsed.getSeconds()));
+        if (examined != null) {
+            description.append(String.format(", [ %,d", examined));
+            if (total != null) description.append(String.format(" of ~%,d", total));
+            description.append(" ] documents examined");
+        }
+        if (modified != null)
+            description.append(String.format(", [ %,d ] modified", modified));
+        getEstimatedRemaining().ifPresent(r -> description.append(String.format(", ~[ %d seconds ] remaining", r.getSeconds())));
+        return description.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package net.ozwolf.mongo.migrations;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <h1>Migration Tracer</h1>
+ *
+ * A tracer opens a span around each step mongoTrek takes, so a slow startup can be broken down in a distributed tracing system.  Register a tracer with {@link MongoTrek#setTracer(MigrationTracer) MongoTrek.setTracer(MigrationTracer)}; the {@code mongo-trek-opentelemetry} module provides one for OpenTelemetry.
+ *
+ * The spans opened are:
+ *
+ * <ul>
+ *     <li>{@code mongotrek.migrate} or {@code mongotrek.status} - the whole call</li>
+ *     <li>{@code mongotrek.catalog.load} - reading the migrations file</li>
+ *     <li>{@code mongotrek.state} - reading and reconciling the migration state</li>
+ *     <li>{@code mongotrek.migration} - applying one migration</li>
+ *     <li>{@code mongotrek.schema_version.<operation>} - each call to the schema version collection</li>
+ * </ul>
+ *
+ * A span is current on the calling thread until it is closed, so spans opened meanwhile (including any the MongoDB driver's instrumentation opens for commands) are its children.  Spans are always closed in the reverse of the order they were opened on a thread.
+ *
+ * The default, {@link #NOOP}, does nothing; with it, mongoTrek does no tracing work at all.
+ */
+public interface MigrationTracer {
+    /**
+     * The tracer that records nothing.
+     */
+    MigrationTracer NOOP = name -> Span.NOOP;
+
+    /**
+     * Open a span as a child of the current span, and make it current.
+     *
+     * @param name The span name
+     * @return The open span, which must be closed
+     */
+    Span start(String name);
+
+    /**
+     * Capture the current span, so work handed to another thread is traced as its child.
+     *
+     * @return An executor running each task with the captured span current
+     */
+    default Executor currentContext() {
+        return Runnable::run;
+    }
+
+    /**
+     * An open span.
+     */
+    interface Span extends AutoCloseable {
+        /**
+         * The span that records nothing.
+         */
+        Span NOOP = () -> {
+        };
+
+        /**
+         * Whether the span is being recorded.  Attributes that are costly to work out are only set on a recording span.
+         *
+         * @return {@code true} if the span is recorded
+         */
+        default boolean isRecording() {
+            return false;
+        }
+
+        /**
+         * Set an attribute of the span.
+         *
+         * @param key   The attribute name
+         * @param value The attribute value
+         * @return This span
+         */
+        default Span attribute(String key, String value) {
+            return this;
+        }
+
+        /**
+         * Record that the work in the span failed.
+         *
+         * @param failure The reason the work failed
+         */
+        default void failed(Throwable failure) {
+        }
+
+        /**
+         * End the span and restore the span that was current before it.
+         */
+        @Override
+        void close();
+    }
+}
@@ -6,10 +6,23 @@ import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
 import net.ozwolf.mongo.migrations.internal.dao.DefaultSchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.dao.ListeningSchemaVersionDAO;
 import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.dao.TracingSchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.dao.WriteBehindSchemaVersionDAO;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.execution.CheckpointedBatchUpdate;
+import net.ozwolf.mongo.migrations.internal.execution.CommandTargets;
+import net.ozwolf.mongo.migrations.internal.execution.IndexBuildConsolidator;
+import net.ozwolf.mongo.migrations.internal.execution.MigrationScheduler;
+import net.ozwolf.mongo.migrations.internal.execution.WriteCommandBatcher;
 import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+import net.ozwolf.mongo.migrations.internal.service.MigrationHeartbeat;
+import net.ozwolf.mongo.migrations.internal.service.MigrationLeaseService;
+import net.ozwolf.mongo.migrations.internal.service.MigrationListeners;
+import net.ozwolf.mongo.migrations.internal.service.MigrationProgressMonitor;
 import net.ozwolf.mongo.migrations.internal.service.MigrationsService;
 import org.bson.Document;
 import org.slf4j.Logger;
@@ -17,9 +30,17 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
 /**
  * <h1>Mongo Trek</h1>
  *
@@ -30,28 +51,51 @@ public class MongoTrek {
     private final MongoClient mongo;
     private final MongoDatabase database;
     private final String migrationsFile;
+    private final MigrationCommands catalog;
 
     private final boolean providedDatabase;
 
     private SchemaVersionDAO schemaVersionDAO;
+    private DefaultSchemaVersionDAO schemaVersionStore;
     private MigrationsService migrationsServices;
     private MigrationCommandsFactory commandsFactory;
     private String schemaVersionCollection;
+    private int writeBehindBatchSize = 1;
+    private int writeBatchSize = WriteCommandBatcher.MAX_WRITE_BATCH_SIZE;
+    private int parallelism = 1;
+    private boolean virtualThreads;
+    private boolean consolidateIndexBuilds;
+    private Duration leaseDuration;
+    private Duration leaseWaitTimeout = DEFAULT_LEASE_WAIT_TIMEOUT;
+    private Duration leasePollInterval = DEFAULT_LEASE_POLL_INTERVAL;
+    private MigrationLeaseService.Held lease;
+    private Duration heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+    private Duration staleRunningTimeout = DEFAULT_STALE_RUNNING_TIMEOUT;
+    private MigrationHeartbeat heartbeat;
+    private final MigrationListeners listeners = new MigrationListeners();
+    private MigrationTracer tracer = MigrationTracer.NOOP;
+    private Duration progressInterval;
+    private MigrationProgressMonitor progressMonitor;
 
     private final static Logger LOGGER = LoggerFactory.getLogger(MongoTrek.class);
     private final static String DEFAULT_SCHEMA_VERSION_COLLECTION = "_schema_version";
+    private final static Duration DEFAULT_LEASE_WAIT_TIMEOUT = Duration.ofMinutes(10);
+    private final static Duration DEFAULT_LEASE_POLL_INTERVAL = Duration.ofSeconds(5);
+    private final static Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(10);
+    private final static Duration DEFAULT_STALE_RUNNING_TIMEOUT = Duration.ofMinutes(1);
 
     private final static AtomicReference<ClassLoader> CLASS_LOADER = new AtomicReference<>(MongoTrek.class.getClassLoader());
 
     /**
      * Create a new MongoTrek instance that will connect to the provided connection string.
      *
-     * @param migrationsFile The YAML or JSON file containing your MongoDB migrations.
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
      * @param uri            The Mongo instance connection string
      * @see <a href="https://docs.mongodb.com/manual/reference/connection-string/">MongoDB Connection String</a>
      */
     public MongoTrek(String migrationsFile, String uri) {
         this.migrationsFile = migrationsFile;
+        this.catalog = null;
         ConnectionString clientURI = new ConnectionString(uri);
         if (clientURI.getDatabase() == null)
             throw new IllegalArgumentException("URI [ " + uri + " ] must contain a database schema to connect to.");
@@ -65,17 +109,47 @@ public class MongoTrek {
     /**
      * Create a new MongoTrek instance using a provided {@code MongoDatabase} instance.  MongoTrek will not close this connection.
      *
-     * @param migrationsFile The YAML or JSON file containing your MongoDB migrations.
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
      * @param database       The {@code MongoDatabase} instance.
      */
     public MongoTrek(String migrationsFile, MongoDatabase database) {
         this.migrationsFile = migrationsFile;
+        this.catalog = null;
         this.mongo = null;
         this.database = database;
         this.providedDatabase = true;
         this.schemaVersionCollection = DEFAULT_SCHEMA_VERSION_COLLECTION;
     }
 
+    /**
+     * Create a new MongoTrek instance for a database on a provided {@code MongoClient}.  MongoTrek will not close this client.
+     *
+     * Unlike providing a {@code MongoDatabase}, this lets mongoTrek read the progress of running migrations from the admin database.
+     *
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
+     * @param client         The {@code MongoClient} instance.
+     * @param database       The name of the database to migrate.
+     * @see #setProgressInterval(Duration)
+     */
+    public MongoTrek(String migrationsFile, MongoClient client, String database) {
+        this.migrationsFile = migrationsFile;
+        this.catalog = null;
+        this.mongo = client;
+        this.database = client.getDatabase(database);
+        this.providedDatabase = true;
+        this.schemaVersionCollection = DEFAULT_SCHEMA_VERSION_COLLECTION;
+    }
+
+    // Used by the fleet to migrate many databases from a catalog parsed once.
+    MongoTrek(MigrationCommands catalog, MongoClient client, String database) {
+        this.migrationsFile = null;
+        this.catalog = catalog;
+        this.mongo = client;
+        this.database = client.getDatabase(database);
+        this.providedDatabase = true;
+        this.schemaVersionCollection = DEFAULT_SCHEMA_VERSION_COLLECTION;
+    }
+
     /**
      * Change the schema version collection from the default {@code _schema_version}
      *
@@ -85,6 +159,155 @@ public class MongoTrek {
         this.schemaVersionCollection = collectionName;
     }
 
+    /**
+     * Batch migration status writes to the schema version collection instead of writing each status change as it happens.
+     *
+     * Status changes are written with a single bulk write once {@code batchSize} migrations have changed status, and always before the state is read back, when a migration fails and around any migration marked {@code idempotent: false}.  A batch size of {@code 1} (the default) writes every status change immediately.
+     *
+     * @param batchSize The number of migrations whose status changes are held before being written
+     */
+    public void setWriteBehindBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write-behind batch size must be at least 1.");
+        this.writeBehindBatchSize = batchSize;
+    }
+
+    /**
+     * Set the maximum number of documents sent per batch by {@code insert}, {@code update} and {@code delete} migration commands.
+     *
+     * Larger commands are split into batches of at most this many documents (and under the 16MB command limit), with the batch results merged into a single migration result.  A migration can override this with its own {@code batchSize}.  Defaults to the server's {@code maxWriteBatchSize} of 100,000.
+     *
+     * @param batchSize The maximum number of documents per write batch
+     */
+    public void setWriteBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write batch size must be at least 1.");
+        this.writeBatchSize = batchSize;
+    }
+
+    /**
+     * Apply up to {@code parallelism} independent migrations at the same time.
+     *
+     * Migrations are independent when neither names the other in {@code dependsOn} and they touch different collections.  A migration whose collections cannot be inferred from its command is applied on its own, after every earlier migration and before every later one.  A parallelism of {@code 1} (the default) applies migrations one at a time in version order.
+     *
+     * Once a migration fails no further migrations are started, but independent later migrations that were already running are allowed to finish and are recorded as successful.  After a failed run, the current version can therefore be later than the failed migration, which is still pending and applied by the next run.
+     *
+     * @param parallelism The maximum number of migrations applied at once
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Apply parallel migrations on virtual threads rather than a pool of platform threads.  Only has an effect on Java 21 or later; earlier runtimes fall back to platform threads.
+     *
+     * @param virtualThreads Whether to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Merge consecutive pending {@code createIndexes} migrations into one index build per collection, so each collection is scanned once, and build different collections at the same time.
+     *
+     * Each migration is still recorded individually, running for as long as its build is and then with the result of the build it was part of.  Listeners are told each migration has started before the build starts, and each is reported finished with an even share of the build's duration.  If a build fails, its migrations are put back to pending and applied one at a time so each failure is recorded against the migration whose index failed; listeners are then told each has started again.  Only applies when migrations are applied one at a time (a parallelism of {@code 1}).
+     *
+     * @param consolidateIndexBuilds Whether to consolidate index builds
+     */
+    public void setConsolidateIndexBuilds(boolean consolidateIndexBuilds) {
+        this.consolidateIndexBuilds = consolidateIndexBuilds;
+    }
+
+    /**
+     * Only let one node at a time apply migrations, by taking a lease in the schema version collection.
+     *
+     * The node holding the lease applies the pending migrations.  Other nodes wait for it to bring the schema up to date, watching the schema version collection with a change stream where the deployment supports one and polling otherwise.  If the holder dies without releasing its lease, the lease expires after {@code duration} and a waiting node takes over.  The lease is renewed while held, and a node that loses its lease stops before its next migration.  Disabled by default.  Requires MongoDB 4.2 or later.
+     *
+     * @param duration How long the lease lasts without being renewed
+     */
+    public void setLeaseDuration(Duration duration) {
+        if (duration != null && (duration.isNegative() || duration.isZero()))
+            throw new IllegalArgumentException("Lease duration must be positive.");
+        this.leaseDuration = duration;
+    }
+
+    /**
+     * Set how long a node waits for another node's migrations before failing.  Defaults to 10 minutes.
+     *
+     * @param timeout The maximum time to wait for the lease holder
+     */
+    public void setLeaseWaitTimeout(Duration timeout) {
+        this.leaseWaitTimeout = timeout;
+    }
+
+    /**
+     * Set how often a waiting node checks on the lease holder when no change has been seen.  Defaults to 5 seconds.
+     *
+     * @param interval The interval between checks
+     */
+    public void setLeasePollInterval(Duration interval) {
+        this.leasePollInterval = interval;
+    }
+
+    /**
+     * Set how often a running migration records a heartbeat in the schema version collection.  Defaults to 10 seconds.
+     *
+     * @param interval The interval between heartbeats
+     */
+    public void setHeartbeatInterval(Duration interval) {
+        if (interval.isNegative() || interval.isZero())
+            throw new IllegalArgumentException("Heartbeat interval must be positive.");
+        this.heartbeatInterval = interval;
+    }
+
+    /**
+     * Set how long a migration can go without a heartbeat before it is presumed interrupted, as happens when the node running it dies.  Defaults to 1 minute.  {@code null} disables the check.
+     *
+     * An interrupted migration is applied again, unless it is marked {@code idempotent: false}, in which case the migration fails until it has been resolved by hand.  The timeout should be several heartbeat intervals, and allow for clock differences between nodes.
+     *
+     * @param timeout The time without a heartbeat after which a running migration is presumed interrupted
+     */
+    public void setStaleRunningTimeout(Duration timeout) {
+        this.staleRunningTimeout = timeout;
+    }
+
+    /**
+     * Report the progress of running migrations at this interval, through the log and {@link MigrationListener#onMigrationProgress(String, MigrationProgress) MigrationListener.onMigrationProgress}.  Disabled by default.
+     *
+     * The elapsed time is always reported.  When mongoTrek has its own client, or was given one, commands that accept a {@code comment} are tagged with their migration version and looked up in {@code $currentOp}, adding the documents examined and modified so far and an estimate of the time remaining.  Tagging commands requires MongoDB 4.4 or later, and reading {@code $currentOp} of other users' operations requires the {@code inprog} privilege.
+     *
+     * @param interval The interval between progress reports, or {@code null} to disable them
+     */
+    public void setProgressInterval(Duration interval) {
+        if (interval != null && (interval.isNegative() || interval.isZero()))
+            throw new IllegalArgumentException("Progress interval must be positive.");
+        this.progressInterval = interval;
+    }
+
+    /**
+     * Register a listener to be told about catalog loading, state computation, each migration and each schema version write, with their durations.  Listeners should be added before migrating.
+     *
+     * @param listener The listener
+     * @see MigrationListener
+     */
+    public void addListener(MigrationListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener must not be null.");
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Open tracing spans around the migration call, catalog loading, state computation, each migration and each call to the schema version collection.  Disabled by default.
+     *
+     * @param tracer The tracer, or {@code null} to disable tracing
+     * @see MigrationTracer
+     */
+    public void setTracer(MigrationTracer tracer) {
+        this.tracer = tracer == null ? MigrationTracer.NOOP : tracer;
+    }
+
     /**
      * Migrate the Mongo database using the provided collection of commands.  Will not apply versions already applied successfully.
      *
@@ -92,14 +315,39 @@ public class MongoTrek {
      * @throws MongoTrekFailureException If the migration fails for whatever reason.
      */
     public MongoTrekState migrate() throws MongoTrekFailureException {
+        try (MigrationTracer.Span span = root("mongotrek.migrate")) {
+            try {
+                return applyPending();
+            } catch (MongoTrekFailureException | RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    private MongoTrekState applyPending() throws MongoTrekFailureException {
         LOGGER.info("DATABASE MIGRATIONS");
-        MigrationCommands commands = commandsFactory().getCommands(migrationsFile, CLASS_LOADER.get());
+        MigrationCommands commands = commands();
         commands.getSchemaVersionCollection().ifPresent(n -> {
             if (schemaVersionCollection.equalsIgnoreCase(DEFAULT_SCHEMA_VERSION_COLLECTION))
                 schemaVersionCollection = n;
         });
 
-        MongoTrekState state = migrationsService().getState(commands);
+        Optional<MongoTrekState> upToDate = upToDateState(commands);
+        if (upToDate.isPresent()) {
+            LOGGER.info("   No migrations to apply.");
+            if (!this.providedDatabase) this.mongo.close();
+            return upToDate.get();
+        }
+
+        try {
+            schemaVersionDAO();
+            schemaVersionStore.ensureIndexes();
+        } catch (RuntimeException e) {
+            throw new MongoTrekFailureException(e);
+        }
+
+        MongoTrekState state = state(commands);
 
         if (!commands.hasMigrations()) {
             LOGGER.info("   No migrations to apply.");
@@ -110,25 +358,74 @@ public class MongoTrek {
         AtomicInteger successfulCount = new AtomicInteger(0);
 
         try {
+            state = recoverStale(commands, state);
             MongoTrekState.Pending pending = state.getPending();
 
             if (!pending.hasPendingMigrations()) {
                 LOGGER.info("   No migrations to apply.");
+                logDrift(state);
+                migrationsService().recordHead(commands, state);
                 return state;
             }
 
-            logStatus("migrate", state.getCurrentVersion());
+            if (leaseDuration != null) {
+                Optional<MigrationLeaseService.Held> held = leaseService().acquireOrAwait(() -> migrationsService().findUpToDateHead(commands).isPresent());
+                if (held.isEmpty()) {
+                    LOGGER.info("   Migrations applied by another node.");
+                    return state(commands);
+                }
+
+                // Another node may have applied some migrations before handing over the lease.
+                lease = held.get();
+                state = recoverStale(commands, state(commands));
+                pending = state.getPending();
+                if (!pending.hasPendingMigrations()) {
+                    LOGGER.info("   No migrations to apply.");
+                    migrationsService().recordHead(commands, state);
+                    return state;
+                }
+            }
+
+            logStatus("migrate", state);
             LOGGER.info(String.format("       Applying : [ %s ] -> [ %s ]", pending.getNextPendingVersion(), pending.getLastPendingVersion()));
             LOGGER.info("     Migrations :");
 
-            pending.getMigrations().forEach(m -> applyMigration(successfulCount, m));
+            if (parallelism > 1) {
+                if (virtualThreads && !MigrationScheduler.isVirtualThreadsSupported())
+                    LOGGER.warn("Virtual threads are not supported by this runtime; applying migrations on platform threads.");
+                Executor context = tracer.currentContext();
+                new MigrationScheduler(parallelism, virtualThreads).run(pending.getMigrations(), m -> context.execute(() -> applyMigration(successfulCount, m)));
+            } else if (consolidateIndexBuilds) {
+                Executor context = tracer.currentContext();
+                IndexBuildConsolidator consolidator = new IndexBuildConsolidator();
+                for (List<Migration> run : IndexBuildConsolidator.runs(pending.getMigrations()))
+                    consolidator.run(run, b -> context.execute(() -> applyIndexBuild(successfulCount, b)));
+            } else {
+                pending.getMigrations().forEach(m -> applyMigration(successfulCount, m));
+            }
+            schemaVersionDAO().flush();
 
             // Get state after migrations have been applied.
-            return migrationsService().getState(commands);
+            MongoTrekState applied = state(commands);
+            migrationsService().recordHead(commands, applied);
+            return applied;
         } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
             LOGGER.error("Error applying migration(s)", e);
             throw new MongoTrekFailureException(e);
         } finally {
+            if (lease != null) {
+                lease.close();
+                lease = null;
+            }
+            if (heartbeat != null) {
+                heartbeat.close();
+                heartbeat = null;
+            }
+            if (progressMonitor != null) {
+                progressMonitor.close();
+                progressMonitor = null;
+            }
             Instant finish = Instant.now();
             LOGGER.info(String.format(">>> [ %d ] migrations applied in [ %d seconds ] <<<", successfulCount.get(), Duration.between(start, finish).getSeconds()));
             if (!this.providedDatabase) this.mongo.close();
@@ -155,14 +452,27 @@ public class MongoTrek {
      * @throws MongoTrekFailureException If the status report fails for whatever reason.
      */
     public MongoTrekState status(boolean logStatus) throws MongoTrekFailureException {
+        try (MigrationTracer.Span span = root("mongotrek.status")) {
+            try {
+                return reportStatus(logStatus);
+            } catch (MongoTrekFailureException | RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    private MongoTrekState reportStatus(boolean logStatus) throws MongoTrekFailureException {
         if (logStatus) LOGGER.info("DATABASE MIGRATIONS");
 
-        MigrationCommands commands = commandsFactory().getCommands(migrationsFile, CLASS_LOADER.get());
-        MongoTrekState state = migrationsService().getState(commands);
+        MigrationCommands commands = commands();
+        MongoTrekState state = logStatus ? null : upToDateState(commands).orElse(null);
+        if (state == null)
+            state = state(commands);
 
         try {
             if (logStatus) {
-                logStatus("status", state.getCurrentVersion());
+                logStatus("status", state);
                 LOGGER.info("     Migrations :");
                 state.getMigrations().forEach(this::reportMigration);
             }
@@ -177,6 +487,24 @@ public class MongoTrek {
         }
     }
 
+    /**
+     * Get the currently applied migration version straight from the schema version collection, without reading the migrations file.
+     *
+     * This reads the schema version collection without creating indexes or writing anything, so is suitable for readiness checks, including by a read-only user.  As the migrations file is not read, a schema version collection named in the migrations file is not used; set it via {@link #setSchemaVersionCollection(String) setSchemaVersionCollection(String)} instead.
+     *
+     * @return The currently applied version or {@code N/A} if no migration has been applied
+     * @throws MongoTrekFailureException If the version lookup fails for whatever reason.
+     */
+    public String getCurrentVersion() throws MongoTrekFailureException {
+        try {
+            return schemaVersionDAO().findLastSuccessful().map(Migration::getVersion).orElse("N/A");
+        } catch (Exception e) {
+            throw new MongoTrekFailureException(e);
+        } finally {
+            if (!this.providedDatabase) this.mongo.close();
+        }
+    }
+
     /**
      * Set the class loader for mongoTrek to use when loading migrations files from resource paths.
      *
@@ -188,23 +516,163 @@ public class MongoTrek {
         CLASS_LOADER.set(classLoader);
     }
 
-    private void logStatus(String action, String currentVersion) {
+    private void logStatus(String action, MongoTrekState state) {
         LOGGER.info(String.format("       Database : [ %s ]", this.database.getName()));
         LOGGER.info(String.format(" Schema Version : [ %s ]", schemaVersionCollection));
         LOGGER.info(String.format("         Action : [ %s ]", action));
-        LOGGER.info(String.format("Current Version : [ %s ]", currentVersion));
+        LOGGER.info(String.format("Current Version : [ %s ]", state.getCurrentVersion()));
+
+        List<Migration> orphaned = state.getOrphaned();
+        if (!orphaned.isEmpty())
+            LOGGER.warn(String.format("       Orphaned : [ %s ]", orphaned.stream().map(Migration::getVersion).collect(joining(", "))));
+
+        logDrift(state);
+    }
+
+    private void logDrift(MongoTrekState state) {
+        List<Migration> drifted = state.getDrifted();
+        if (!drifted.isEmpty())
+            LOGGER.warn(String.format("        Drifted : [ %s ]", drifted.stream().map(Migration::getVersion).collect(joining(", "))));
+    }
+
+    // A schema version head matching the catalog fingerprint means every migration has been applied as written, so the history is only read if the caller asks for it.  A client owned by this instance is closed once the call returns, so the history is read up front.
+    private Optional<MongoTrekState> upToDateState(MigrationCommands commands) {
+        return migrationsService().findUpToDateHead(commands)
+                .map(h -> this.providedDatabase ?
+                        MongoTrekState.upToDate(h.getCurrentVersion(), () -> state(commands)) :
+                        state(commands)
+                );
     }
 
     private void applyMigration(AtomicInteger successfulCount, Migration migration) {
+        // A migration that cannot safely be re-run must have everything before it, and its own running status, on disk before it starts.
+        boolean idempotent = migration.getCommand().isIdempotent();
+        String commandType = commandTypeOf(migration);
+        long started = System.nanoTime();
+        listeners.onMigrationStarted(this.database.getName(), migration.getVersion(), commandType);
+        try (MigrationTracer.Span span = tracer.start("mongotrek.migration")) {
+            if (span.isRecording()) traceMigration(span, migration, commandType);
+            try {
+                LOGGER.info(String.format("       %s : %s", migration.getVersion(), migration.getDescription()));
+                if (lease != null) lease.ensureHeld();
+                schemaVersionDAO().save(migration.running());
+                if (!idempotent) schemaVersionDAO().flush();
+                Document result;
+                try (MigrationHeartbeat.Beat beat = heartbeat().start(migration); MigrationProgressMonitor.Watch watch = watch(migration)) {
+                    result = migration.getCommand().migrate(this.database, writeBatchSize, watch.getComment().orElse(null), checkpointOf(migration));
+                }
+                schemaVersionDAO().save(migration.successful(result));
+                if (!idempotent) schemaVersionDAO().flush();
+                successfulCount.incrementAndGet();
+                listeners.onMigrationFinished(this.database.getName(), migration.getVersion(), commandType, System.nanoTime() - started);
+            } catch (Exception e) {
+                span.failed(e);
+                recordFailure(migration, e);
+                listeners.onMigrationFailed(this.database.getName(), migration.getVersion(), commandType, System.nanoTime() - started, e);
+                throw e;
+            }
+        }
+    }
+
+    // Recording the failure can fail too (eg. the database has become unreachable), but it is the migration's own failure that is reported.
+    private void recordFailure(Migration migration, Exception e) {
         try {
-            LOGGER.info(String.format("       %s : %s", migration.getVersion(), migration.getDescription()));
-            schemaVersionDAO().save(migration.running());
-            Document result = migration.getCommand().migrate(this.database);
-            schemaVersionDAO().save(migration.successful(result));
-            successfulCount.incrementAndGet();
-        } catch (Exception e) {
             schemaVersionDAO().save(migration.failed(e));
-            throw e;
+            schemaVersionDAO().flush();
+        } catch (RuntimeException f) {
+            e.addSuppressed(f);
+        }
+    }
+
+    private void applyIndexBuild(AtomicInteger successfulCount, List<Migration> build) {
+        if (build.size() == 1) {
+            applyMigration(successfulCount, build.get(0));
+            return;
+        }
+
+        String collection = IndexBuildConsolidator.collectionOf(build.get(0));
+        List<String> versions = build.stream().map(Migration::getVersion).collect(toList());
+        long started = System.nanoTime();
+        try (MigrationTracer.Span span = tracer.start("mongotrek.index_build")) {
+            if (span.isRecording())
+                span.attribute("db.operation", "createIndexes").attribute("db.mongodb.collection", collection).attribute("mongotrek.versions", String.join(",", versions));
+
+            LOGGER.info(String.format("       Building : [ %s ] for [ %s ]", collection, String.join(", ", versions)));
+            if (lease != null) lease.ensureHeld();
+
+            // Every migration of the build is running, and beating, for as long as the build is.
+            List<MigrationHeartbeat.Beat> beats = new ArrayList<>(build.size());
+            Document result;
+            try {
+                for (Migration migration : build) {
+                    LOGGER.info(String.format("       %s : %s", migration.getVersion(), migration.getDescription()));
+                    listeners.onMigrationStarted(this.database.getName(), migration.getVersion(), "createIndexes");
+                    schemaVersionDAO().save(migration.running());
+                    beats.add(heartbeat().start(migration));
+                }
+                result = MigrationCommand.resultOf(this.database.runCommand(IndexBuildConsolidator.merge(build)));
+            } catch (RuntimeException e) {
+                // The server builds the indexes together, so one bad index fails them all.  Put back to pending and applied one at a time, those before it still succeed and those after it are not left running.
+                span.failed(e);
+                LOGGER.warn(String.format("Index build of [ %s ] for [ %s ] failed; applying its migrations one at a time.", collection, String.join(", ", versions)), e);
+                beats.forEach(MigrationHeartbeat.Beat::close);
+                beats.clear();
+                build.forEach(m -> schemaVersionDAO().save(m.pending()));
+                build.forEach(m -> applyMigration(successfulCount, m));
+                return;
+            } finally {
+                beats.forEach(MigrationHeartbeat.Beat::close);
+            }
+
+            // The build's duration is split evenly across its migrations, so their durations add up to the build's.
+            long duration = (System.nanoTime() - started) / build.size();
+            for (Migration migration : build) {
+                schemaVersionDAO().save(migration.successful(new Document(result).append("consolidated", versions)));
+                successfulCount.incrementAndGet();
+                listeners.onMigrationFinished(this.database.getName(), migration.getVersion(), "createIndexes", duration);
+            }
+        }
+    }
+
+    private static void traceMigration(MigrationTracer.Span span, Migration migration, String commandType) {
+        span.attribute("mongotrek.version", migration.getVersion())
+                .attribute("mongotrek.description", migration.getDescription())
+                .attribute("db.operation", commandType);
+        try {
+            Optional<Set<String>> targets = CommandTargets.of(migration.getCommand().getCommand());
+            targets.filter(t -> !t.isEmpty()).ifPresent(t -> span.attribute("db.mongodb.collection", String.join(",", t)));
+        } catch (RuntimeException e) {
+            // An unreadable command fails its migration, which the span records.
+        }
+    }
+
+    private MigrationTracer.Span root(String name) {
+        MigrationTracer.Span span = tracer.start(name);
+        if (span.isRecording())
+            span.attribute("db.system", "mongodb").attribute("db.name", this.database.getName());
+        return span;
+    }
+
+    private CheckpointedBatchUpdate.Checkpoint checkpointOf(Migration migration) {
+        return new CheckpointedBatchUpdate.Checkpoint() {
+            @Override
+            public Optional<Document> last() {
+                return migration.getCheckpoint();
+            }
+
+            @Override
+            public void record(Document checkpoint) {
+                schemaVersionDAO().checkpoint(migration.checkpoint(checkpoint));
+            }
+        };
+    }
+
+    // A command that cannot be read fails its migration, which the listeners are still told about.
+    private static String commandTypeOf(Migration migration) {
+        try {
+            return migration.getCommand().getCommandName();
+        } catch (RuntimeException e) {
+            return "unknown";
         }
     }
 
@@ -213,6 +681,23 @@ public class MongoTrek {
         LOGGER.info(String.format("          Tags: %s", migration.getTags()));
     }
 
+    private MongoTrekState state(MigrationCommands commands) {
+        try (MigrationTracer.Span span = tracer.start("mongotrek.state")) {
+            long start = System.nanoTime();
+            try {
+                MongoTrekState state = migrationsService().getState(commands);
+                int pending = state.getPending().getMigrations().size();
+                listeners.onStateComputed(this.database.getName(), state.getMigrations().size(), pending, System.nanoTime() - start);
+                if (span.isRecording())
+                    span.attribute("mongotrek.migrations", String.valueOf(state.getMigrations().size())).attribute("mongotrek.pending", String.valueOf(pending));
+                return state;
+            } catch (RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+
     private MigrationsService migrationsService() {
         if (migrationsServices == null)
             migrationsServices = new MigrationsService(schemaVersionDAO());
@@ -220,11 +705,71 @@ public class MongoTrek {
     }
 
     private SchemaVersionDAO schemaVersionDAO() {
-        if (schemaVersionDAO == null)
-            schemaVersionDAO = new DefaultSchemaVersionDAO(this.database.getCollection(schemaVersionCollection));
+        if (schemaVersionDAO == null) {
+            DefaultSchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.database.getCollection(schemaVersionCollection), this.providedDatabase);
+            schemaVersionStore = dao;
+            schemaVersionDAO = writeBehindBatchSize > 1 ? new WriteBehindSchemaVersionDAO(dao, writeBehindBatchSize) : dao;
+            if (!listeners.isEmpty())
+                schemaVersionDAO = new ListeningSchemaVersionDAO(schemaVersionDAO, listeners, this.database.getName());
+            if (tracer != MigrationTracer.NOOP)
+                schemaVersionDAO = new TracingSchemaVersionDAO(schemaVersionDAO, tracer, schemaVersionCollection);
+        }
         return schemaVersionDAO;
     }
 
+    private MongoTrekState recoverStale(MigrationCommands commands, MongoTrekState state) {
+        if (staleRunningTimeout == null) return state;
+
+        List<Migration> stale = migrationsService().recoverStale(state, staleRunningTimeout, Instant.now());
+        if (stale.isEmpty()) return state;
+
+        LOGGER.warn(String.format("    Interrupted : [ %s ]", stale.stream().map(Migration::getVersion).collect(joining(", "))));
+        return state(commands);
+    }
+
+    private synchronized MigrationHeartbeat heartbeat() {
+        if (heartbeat == null)
+            heartbeat = new MigrationHeartbeat(schemaVersionDAO(), heartbeatInterval);
+        return heartbeat;
+    }
+
+    private synchronized MigrationProgressMonitor.Watch watch(Migration migration) {
+        if (progressInterval == null) return MigrationProgressMonitor.Watch.NONE;
+
+        if (progressMonitor == null)
+            progressMonitor = new MigrationProgressMonitor(this.mongo == null ? null : this.mongo.getDatabase("admin"), this.database, progressInterval);
+        return progressMonitor.watch(migration, progress -> {
+            LOGGER.info(String.format("       Progress : %s", progress));
+            listeners.onMigrationProgress(this.database.getName(), progress);
+        });
+    }
+
+    private MigrationLeaseService leaseService() {
+        return new MigrationLeaseService(this.database.getCollection(schemaVersionCollection), leaseDuration, leaseWaitTimeout, leasePollInterval);
+    }
+
+    private MigrationCommands commands() throws MongoTrekFailureException {
+        if (catalog != null) return catalog;
+
+        try (MigrationTracer.Span span = tracer.start("mongotrek.catalog.load")) {
+            long start = System.nanoTime();
+            try {
+                MigrationCommands commands = commandsFactory().getCommands(migrationsFile, CLASS_LOADER.get());
+                listeners.onCatalogLoaded(this.database.getName(), commands.getMigrations().size(), System.nanoTime() - start);
+                if (span.isRecording())
+                    span.attribute("mongotrek.migrations_file", migrationsFile).attribute("mongotrek.migrations", String.valueOf(commands.getMigrations().size()));
+                return commands;
+            } catch (MongoTrekFailureException | RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    static ClassLoader classLoader() {
+        return CLASS_LOADER.get();
+    }
+
     private MigrationCommandsFactory commandsFactory() {
         if (commandsFactory == null)
             commandsFactory = new MigrationCommandsFactory();
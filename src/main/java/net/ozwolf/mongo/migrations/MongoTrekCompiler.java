@@ -0,0 +1,81 @@
+package net.ozwolf.mongo.migrations;
+
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.factory.CompiledCatalog;
+import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <h1>Mongo Trek Compiler</h1>
+ *
+ * Compiles a migrations catalog into the pre-validated binary form that {@code MongoTrek} loads in preference to the YAML or JSON source.
+ *
+ * Compiling parses the catalog, interpolates and validates every command and checks for duplicate versions, so none of this work is repeated when the application starts.  The compiled catalog must be placed alongside the source catalog with the {@code .mtc} extension (eg. {@code mongodb/trek.yml.mtc}) for {@code MongoTrek} to detect it.
+ *
+ * This is normally run at build time via the {@code mongo-trek-maven-plugin}, but can also be run directly: {@code java net.ozwolf.mongo.migrations.MongoTrekCompiler <migrationsFile> [outputFile]}
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class MongoTrekCompiler {
+    /**
+     * The extension appended to the migrations file path to locate its compiled catalog.
+     */
+    public final static String EXTENSION = CompiledCatalog.EXTENSION;
+
+    private MongoTrekCompiler() {
+    }
+
+    /**
+     * Compile the migrations catalog to its default compiled location (ie. the migrations file path with the {@code .mtc} extension appended).
+     *
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
+     * @return The compiled catalog file
+     * @throws MongoTrekFailureException If the catalog cannot be read, is invalid or cannot be written.
+     */
+    public static File compile(String migrationsFile) throws MongoTrekFailureException {
+        File source = new File(migrationsFile);
+        File output = new File(source.getParentFile(), source.getName() + EXTENSION);
+        compile(migrationsFile, output, MongoTrekCompiler.class.getClassLoader());
+        return output;
+    }
+
+    /**
+     * Compile the migrations catalog to the provided output file.
+     *
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
+     * @param output         The file to write the compiled catalog to.
+     * @param classLoader    The class loader to resolve classpath migrations files from.
+     * @throws MongoTrekFailureException If the catalog cannot be read, is invalid or cannot be written.
+     */
+    public static void compile(String migrationsFile, File output, ClassLoader classLoader) throws MongoTrekFailureException {
+        File directory = output.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new MongoTrekFailureException(new IOException(String.format("Could not create directory [ %s ].", directory)));
+
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(output))) {
+            new MigrationCommandsFactory().compile(migrationsFile, classLoader, stream);
+        } catch (IOException | MongoTrekFailureException e) {
+            // Never leave a partial catalog behind, as it would be loaded in preference to the source.
+            output.delete();
+            throw e instanceof MongoTrekFailureException ? (MongoTrekFailureException) e : new MongoTrekFailureException(e);
+        }
+    }
+
+    public static void main(String[] args) throws MongoTrekFailureException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: MongoTrekCompiler <migrationsFile> [outputFile]");
+            System.exit(1);
+        }
+
+        if (args.length == 1) {
+            System.out.println("Compiled catalog written to " + compile(args[0]));
+        } else {
+            compile(args[0], new File(args[1]), MongoTrekCompiler.class.getClassLoader());
+            System.out.println("Compiled catalog written to " + args[1]);
+        }
+    }
+}
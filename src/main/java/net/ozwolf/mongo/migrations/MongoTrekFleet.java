@@ -0,0 +1,278 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.client.MongoClient;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.execution.WriteCommandBatcher;
+import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * <h1>Mongo Trek Fleet</h1>
+ *
+ * The mongoTrek fleet applies the same migrations to many databases on one {@code MongoClient}, such as an application with a database per tenant.
+ *
+ * The migrations file is read once and shared by every database, and databases are migrated concurrently.  A database that fails to migrate does not stop the others; its failure is reported in the returned {@link MongoTrekFleetState}.  The fleet does not close the client.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class MongoTrekFleet {
+    private final String migrationsFile;
+    private final MongoClient client;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private String schemaVersionCollection;
+    private int writeBehindBatchSize = 1;
+    private int writeBatchSize = WriteCommandBatcher.MAX_WRITE_BATCH_SIZE;
+    private final List<MigrationListener> listeners = new ArrayList<>();
+    private MigrationTracer tracer;
+    private Duration progressInterval;
+    private boolean consolidateIndexBuilds;
+    private Duration leaseDuration;
+    private Duration leaseWaitTimeout;
+    private Duration leasePollInterval;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MongoTrekFleet.class);
+    private final static int DEFAULT_CONCURRENCY = 8;
+    private final static Set<String> SYSTEM_DATABASES = Set.of("admin", "config", "local");
+
+    /**
+     * Create a new MongoTrek fleet for databases on the provided {@code MongoClient}.  The fleet will not close this client.
+     *
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
+     * @param client         The {@code MongoClient} instance.
+     */
+    public MongoTrekFleet(String migrationsFile, MongoClient client) {
+        this.migrationsFile = migrationsFile;
+        this.client = client;
+    }
+
+    /**
+     * Set the maximum number of databases migrated at the same time.  Defaults to {@code 8}.
+     *
+     * Each database in flight holds a connection from the client's pool, so this should not exceed the pool's maximum size.
+     *
+     * @param concurrency The maximum number of databases migrated at once
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Change the schema version collection of every database from the default {@code _schema_version}
+     *
+     * @param collectionName The schema version collection name
+     * @see MongoTrek#setSchemaVersionCollection(String)
+     */
+    public void setSchemaVersionCollection(String collectionName) {
+        this.schemaVersionCollection = collectionName;
+    }
+
+    /**
+     * Batch migration status writes in every database.
+     *
+     * @param batchSize The number of migrations whose status changes are held before being written
+     * @see MongoTrek#setWriteBehindBatchSize(int)
+     */
+    public void setWriteBehindBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write-behind batch size must be at least 1.");
+        this.writeBehindBatchSize = batchSize;
+    }
+
+    /**
+     * Set the maximum number of documents sent per batch by write commands in every database.
+     *
+     * @param batchSize The maximum number of documents per write batch
+     * @see MongoTrek#setWriteBatchSize(int)
+     */
+    public void setWriteBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write batch size must be at least 1.");
+        this.writeBatchSize = batchSize;
+    }
+
+    /**
+     * Take a lease in each database before migrating it, so only one node at a time migrates a given database.  Disabled by default.
+     *
+     * @param duration How long the lease lasts without being renewed
+     * @see MongoTrek#setLeaseDuration(Duration)
+     */
+    public void setLeaseDuration(Duration duration) {
+        if (duration != null && (duration.isNegative() || duration.isZero()))
+            throw new IllegalArgumentException("Lease duration must be positive.");
+        this.leaseDuration = duration;
+    }
+
+    /**
+     * Set how long a node waits for another node's migrations of a database before failing that database.
+     *
+     * @param timeout The maximum time to wait for the lease holder
+     * @see MongoTrek#setLeaseWaitTimeout(Duration)
+     */
+    public void setLeaseWaitTimeout(Duration timeout) {
+        this.leaseWaitTimeout = timeout;
+    }
+
+    /**
+     * Set how often a waiting node checks on the lease holder of a database.
+     *
+     * @param interval The interval between checks
+     * @see MongoTrek#setLeasePollInterval(Duration)
+     */
+    public void setLeasePollInterval(Duration interval) {
+        this.leasePollInterval = interval;
+    }
+
+    /**
+     * Register a listener with every database's migrations.  As the migrations file is read once for the whole fleet, listeners are not told of the catalog being loaded.
+     *
+     * @param listener The listener
+     * @see MongoTrek#addListener(MigrationListener)
+     */
+    public void addListener(MigrationListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener must not be null.");
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Trace every database's migrations.  Each database's migration is traced as its own {@code mongotrek.migrate} span.
+     *
+     * @param tracer The tracer, or {@code null} to disable tracing
+     * @see MongoTrek#setTracer(MigrationTracer)
+     */
+    public void setTracer(MigrationTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Report the progress of running migrations in every database at this interval.
+     *
+     * @param interval The interval between progress reports, or {@code null} to disable them
+     * @see MongoTrek#setProgressInterval(Duration)
+     */
+    public void setProgressInterval(Duration interval) {
+        if (interval != null && (interval.isNegative() || interval.isZero()))
+            throw new IllegalArgumentException("Progress interval must be positive.");
+        this.progressInterval = interval;
+    }
+
+    /**
+     * Merge consecutive pending index builds in every database.
+     *
+     * @param consolidateIndexBuilds Whether to consolidate index builds
+     * @see MongoTrek#setConsolidateIndexBuilds(boolean)
+     */
+    public void setConsolidateIndexBuilds(boolean consolidateIndexBuilds) {
+        this.consolidateIndexBuilds = consolidateIndexBuilds;
+    }
+
+    /**
+     * Migrate every database on the client whose name matches the filter.  The {@code admin}, {@code config} and {@code local} databases are never migrated.
+     *
+     * @param filter The filter of database names to migrate
+     * @return The fleet state
+     * @throws MongoTrekFailureException If the migrations file or database names cannot be read.
+     */
+    public MongoTrekFleetState migrate(Predicate<String> filter) throws MongoTrekFailureException {
+        List<String> databases = new ArrayList<>();
+        try {
+            for (String name : client.listDatabaseNames())
+                if (!SYSTEM_DATABASES.contains(name) && filter.test(name))
+                    databases.add(name);
+        } catch (Exception e) {
+            throw new MongoTrekFailureException(e);
+        }
+        return migrate(databases);
+    }
+
+    /**
+     * Migrate the named databases.
+     *
+     * @param databases The names of the databases to migrate
+     * @return The fleet state
+     * @throws MongoTrekFailureException If the migrations file cannot be read.
+     */
+    public MongoTrekFleetState migrate(Collection<String> databases) throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands(migrationsFile, MongoTrek.classLoader());
+
+        LOGGER.info(String.format("FLEET MIGRATIONS : [ %d ] databases", databases.size()));
+        long start = System.nanoTime();
+
+        Map<String, MongoTrekState> states = new ConcurrentHashMap<>();
+        Map<String, MongoTrekFailureException> failures = new ConcurrentHashMap<>();
+        Map<String, Duration> durations = new ConcurrentHashMap<>();
+
+        ExecutorService executor = executor(Math.min(concurrency, Math.max(databases.size(), 1)));
+        try {
+            List<Future<?>> tasks = new ArrayList<>(databases.size());
+            for (String database : new LinkedHashSet<>(databases))
+                tasks.add(executor.submit(() -> {
+                    long started = System.nanoTime();
+                    try {
+                        states.put(database, tenant(commands, database).migrate());
+                    } catch (MongoTrekFailureException e) {
+                        failures.put(database, e);
+                    } catch (RuntimeException e) {
+                        failures.put(database, new MongoTrekFailureException(e));
+                    } finally {
+                        durations.put(database, Duration.ofNanos(System.nanoTime() - started));
+                    }
+                }));
+
+            for (Future<?> task : tasks)
+                task.get();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new MongoTrekFailureException(e);
+        } catch (ExecutionException e) {
+            throw new MongoTrekFailureException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        MongoTrekFleetState state = new MongoTrekFleetState(databases, states, failures, durations, Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info(String.format(">>> [ %d ] databases migrated, [ %d ] failed in [ %d seconds ] <<<", states.size(), failures.size(), state.getElapsed().getSeconds()));
+        if (!failures.isEmpty())
+            LOGGER.error(String.format("Failed databases : [ %s ]", String.join(", ", state.getFailures().keySet())));
+
+        return state;
+    }
+
+    private MongoTrek tenant(MigrationCommands commands, String database) {
+        MongoTrek trek = new MongoTrek(commands, client, database);
+        if (schemaVersionCollection != null)
+            trek.setSchemaVersionCollection(schemaVersionCollection);
+        trek.setWriteBehindBatchSize(writeBehindBatchSize);
+        trek.setWriteBatchSize(writeBatchSize);
+        trek.setLeaseDuration(leaseDuration);
+        if (leaseWaitTimeout != null)
+            trek.setLeaseWaitTimeout(leaseWaitTimeout);
+        if (leasePollInterval != null)
+            trek.setLeasePollInterval(leasePollInterval);
+        listeners.forEach(trek::addListener);
+        trek.setTracer(tracer);
+        trek.setProgressInterval(progressInterval);
+        trek.setConsolidateIndexBuilds(consolidateIndexBuilds);
+        return trek;
+    }
+
+    private static ExecutorService executor(int threads) {
+        AtomicInteger count = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mongo-trek-fleet-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package net.ozwolf.mongo.migrations;
+
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * <h1>Mongo Trek Fleet State</h1>
+ *
+ * This class provides the outcome of migrating a fleet of databases: the trek state of each database that migrated, the failure of each database that did not, and how long it all took.
+ *
+ * Databases are reported in the order they were given to the fleet.
+ */
+public class MongoTrekFleetState {
+    private final Map<String, MongoTrekState> states;
+    private final Map<String, MongoTrekFailureException> failures;
+    private final Map<String, Duration> durations;
+    private final Duration elapsed;
+
+    public MongoTrekFleetState(Collection<String> databases,
+                               Map<String, MongoTrekState> states,
+                               Map<String, MongoTrekFailureException> failures,
+                               Map<String, Duration> durations,
+                               Duration elapsed) {
+        this.states = ordered(databases, states);
+        this.failures = ordered(databases, failures);
+        this.durations = ordered(databases, durations);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Get the trek state of every database that migrated successfully, keyed by database name.
+     *
+     * @return The trek state of each migrated database
+     */
+    public Map<String, MongoTrekState> getStates() {
+        return states;
+    }
+
+    /**
+     * Get the failure of every database that did not migrate, keyed by database name.
+     *
+     * @return The failure of each failed database
+     */
+    public Map<String, MongoTrekFailureException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Check whether every database migrated successfully.
+     *
+     * @return {@code true} if no database failed
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Get how long each database took to migrate, keyed by database name.
+     *
+     * @return The migration time of each database
+     */
+    public Map<String, Duration> getDurations() {
+        return durations;
+    }
+
+    /**
+     * Get the wall clock time taken to migrate the whole fleet.
+     *
+     * @return The elapsed time of the fleet migration
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Get the sum of the time taken to migrate each database.  Compared with {@link #getElapsed() getElapsed()}, this shows how much was gained by migrating databases concurrently.
+     *
+     * @return The total migration time of all databases
+     */
+    public Duration getTotalDuration() {
+        return durations.values().stream().reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /**
+     * Get the database that took the longest to migrate.
+     *
+     * @return The name of the slowest database, or empty if no databases were migrated
+     */
+    public Optional<String> getSlowestDatabase() {
+        return durations.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey);
+    }
+
+    private static <T> Map<String, T> ordered(Collection<String> databases, Map<String, T> values) {
+        Map<String, T> ordered = new LinkedHashMap<>();
+        for (String database : databases)
+            Optional.ofNullable(values.get(database)).ifPresent(v -> ordered.put(database, v));
+        return Collections.unmodifiableMap(ordered);
+    }
+}
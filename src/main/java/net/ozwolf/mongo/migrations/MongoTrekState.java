@@ -3,7 +3,9 @@ package net.ozwolf.mongo.migrations;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
 
 import java.util.*;
+import java.util.function.Supplier;
 
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -15,10 +17,27 @@ import static java.util.stream.Collectors.toList;
  */
 public class MongoTrekState {
     private final Map<String, Migration> migrations;
+    private final List<Migration> orphaned;
+    private final List<Migration> drifted;
 
     public MongoTrekState(Collection<Migration> migrations) {
-        this.migrations = new HashMap<>();
+        this(migrations, Collections.emptyList());
+    }
+
+    public MongoTrekState(Collection<Migration> migrations, Collection<Migration> orphaned) {
+        this(migrations, orphaned, Collections.emptyList());
+    }
+
+    public MongoTrekState(Collection<Migration> migrations, Collection<Migration> orphaned, Collection<Migration> drifted) {
+        this.migrations = new HashMap<>((int) (migrations.size() / 0.75f) + 1);
         migrations.forEach(m -> this.migrations.put(m.getVersion(), m));
+        this.orphaned = new ArrayList<>(orphaned);
+        this.drifted = new ArrayList<>(drifted);
+    }
+
+    // The state of a database whose schema version head matches the catalog fingerprint; the full history is only read if asked for.
+    static MongoTrekState upToDate(String currentVersion, Supplier<MongoTrekState> loader) {
+        return new UpToDate(currentVersion, loader);
     }
 
     /**
@@ -31,7 +50,9 @@ public class MongoTrekState {
     }
 
     /**
-     * Get the full list of migrations.  This includes the entire history of applied migrations, even if the command source has since been removed from the project.
+     * Get the full list of migrations.  This includes the applied history and pending commands of every migration in the migrations file.
+     *
+     * History records whose command has since been removed from the migrations file are reported by {@link #getOrphaned() getOrphaned()} instead.
      *
      * @return The full list of migrations, both applied history and pending commands.
      */
@@ -48,7 +69,7 @@ public class MongoTrekState {
         List<Migration> migrations = this.migrations.values()
                 .stream()
                 .filter(m -> m.isPending() || m.isFailed())
-                .collect(toList());
+                .collect(toCollection(ArrayList::new));
 
         return new Pending(migrations);
     }
@@ -77,11 +98,94 @@ public class MongoTrekState {
                 .collect(toList());
     }
 
+    /**
+     * Get the list of schema version history records that no longer have a matching migration in the migrations file.
+     *
+     * @return The orphaned history records
+     */
+    public List<Migration> getOrphaned() {
+        return this.orphaned.stream()
+                .sorted(Migration.sortByVersionAscending())
+                .collect(toList());
+    }
+
+    /**
+     * Get the list of applied migrations whose command in the migrations file has changed since it was applied.
+     *
+     * @return The drifted migrations
+     */
+    public List<Migration> getDrifted() {
+        return this.drifted.stream()
+                .sorted(Migration.sortByVersionAscending())
+                .collect(toList());
+    }
+
     private Optional<Migration> getLastSuccessfulMigration() {
-        return migrations.values()
-                .stream()
-                .filter(Migration::isSuccessful)
-                .min(Migration.sortByVersionDescending());
+        Comparator<Migration> comparator = Migration.sortByVersionAscending();
+        Migration last = null;
+        for (Migration migration : migrations.values())
+            if (migration.isSuccessful() && (last == null || comparator.compare(migration, last) > 0))
+                last = migration;
+
+        return Optional.ofNullable(last);
+    }
+
+    private static class UpToDate extends MongoTrekState {
+        private final String currentVersion;
+        private final Supplier<MongoTrekState> loader;
+
+        private volatile MongoTrekState loaded;
+
+        private UpToDate(String currentVersion, Supplier<MongoTrekState> loader) {
+            super(Collections.emptyList());
+            this.currentVersion = currentVersion;
+            this.loader = loader;
+        }
+
+        @Override
+        public String getCurrentVersion() {
+            return currentVersion;
+        }
+
+        @Override
+        public Pending getPending() {
+            return new Pending(new ArrayList<>());
+        }
+
+        @Override
+        public List<Migration> getMigrations() {
+            return loaded().getMigrations();
+        }
+
+        @Override
+        public List<Migration> getFailed() {
+            return loaded().getFailed();
+        }
+
+        @Override
+        public List<Migration> getApplied() {
+            return loaded().getApplied();
+        }
+
+        @Override
+        public List<Migration> getOrphaned() {
+            return loaded().getOrphaned();
+        }
+
+        @Override
+        public List<Migration> getDrifted() {
+            return loaded().getDrifted();
+        }
+
+        private MongoTrekState loaded() {
+            if (loaded == null) {
+                synchronized (this) {
+                    if (loaded == null)
+                        loaded = loader.get();
+                }
+            }
+            return loaded;
+        }
     }
 
     /**
@@ -93,6 +197,7 @@ public class MongoTrekState {
         private final List<Migration> migrations;
 
         private Pending(List<Migration> migrations) {
+            migrations.sort(Migration.sortByVersionAscending());
             this.migrations = migrations;
         }
 
@@ -111,7 +216,7 @@ public class MongoTrekState {
          * @return the next pending migration version or {@code N/A} if none to be applied
          */
         public String getNextPendingVersion() {
-            return migrations.stream().min(Migration.sortByVersionAscending()).map(Migration::getVersion).orElse("N/A");
+            return migrations.isEmpty() ? "N/A" : migrations.get(0).getVersion();
         }
 
         /**
@@ -120,7 +225,7 @@ public class MongoTrekState {
          * @return the next pending migration version or {@code N/A} if none to be applied
          */
         public String getLastPendingVersion() {
-            return migrations.stream().min(Migration.sortByVersionDescending()).map(Migration::getVersion).orElse("N/A");
+            return migrations.isEmpty() ? "N/A" : migrations.get(migrations.size() - 1).getVersion();
         }
 
         /**
@@ -129,7 +234,7 @@ public class MongoTrekState {
          * @return The list of pending migrations
          */
         public List<Migration> getMigrations() {
-            return migrations.stream().sorted(Migration.sortByVersionAscending()).collect(toList());
+            return new ArrayList<>(migrations);
         }
     }
 }
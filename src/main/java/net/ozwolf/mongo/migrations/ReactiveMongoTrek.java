@@ -0,0 +1,225 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.dao.ReactiveSchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.execution.ReactiveCommandRunner;
+import net.ozwolf.mongo.migrations.internal.execution.WriteCommandBatcher;
+import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+import net.ozwolf.mongo.migrations.internal.service.MigrationsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * <h1>Reactive Mongo Trek</h1>
+ *
+ * The reactive mongoTrek variant applies migrations to, or reports on the migration status of, a database from the {@code mongodb-driver-reactivestreams} library, so migrations can share an application's reactive client and connection pool.
+ *
+ * No method blocks the calling thread.  Each returns a {@code CompletionStage} that completes with the trek state, or completes exceptionally with a {@link MongoTrekFailureException}.  A reactive library can adapt these (eg. Reactor's {@code Mono.fromCompletionStage}).  MongoTrek will not close the provided database's client.
+ *
+ * Migrations that insert from a data file ({@code documentsFrom}) checkpointed batch updates ({@code batchUpdate}) and Java migrations ({@code javaMigration}) are not supported by this variant.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ReactiveMongoTrek {
+    private final String migrationsFile;
+    private final MongoDatabase database;
+
+    private String schemaVersionCollection;
+    private int writeBatchSize = WriteCommandBatcher.MAX_WRITE_BATCH_SIZE;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoTrek.class);
+    private final static String DEFAULT_SCHEMA_VERSION_COLLECTION = "_schema_version";
+
+    /**
+     * Create a new reactive MongoTrek instance using a provided reactive {@code MongoDatabase} instance.
+     *
+     * @param migrationsFile The YAML or JSON file, manifest or directory containing your MongoDB migrations.
+     * @param database       The reactive {@code MongoDatabase} instance.
+     */
+    public ReactiveMongoTrek(String migrationsFile, MongoDatabase database) {
+        this.migrationsFile = migrationsFile;
+        this.database = database;
+        this.schemaVersionCollection = DEFAULT_SCHEMA_VERSION_COLLECTION;
+    }
+
+    /**
+     * Change the schema version collection from the default {@code _schema_version}
+     *
+     * @param collectionName The schema version collection name
+     */
+    public void setSchemaVersionCollection(String collectionName) {
+        this.schemaVersionCollection = collectionName;
+    }
+
+    /**
+     * Set the maximum number of documents sent per batch by {@code insert}, {@code update} and {@code delete} migration commands.
+     *
+     * @param batchSize The maximum number of documents per write batch
+     * @see MongoTrek#setWriteBatchSize(int)
+     */
+    public void setWriteBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write batch size must be at least 1.");
+        this.writeBatchSize = batchSize;
+    }
+
+    /**
+     * Migrate the Mongo database using the provided collection of commands.  Will not apply versions already applied successfully.
+     *
+     * @return A stage completing with the trek state, or exceptionally with a {@link MongoTrekFailureException} if the migration fails for whatever reason.
+     */
+    public CompletionStage<MongoTrekState> migrate() {
+        LOGGER.info("DATABASE MIGRATIONS");
+
+        return commands().thenCompose(commands -> {
+            ReactiveSchemaVersionDAO dao = schemaVersionDAO(commands);
+
+            return dao.ensureIndexes().thenCompose(v -> getState(dao, commands)).thenCompose(state -> {
+                if (!state.getPending().hasPendingMigrations()) {
+                    LOGGER.info("   No migrations to apply.");
+                    return recordHead(dao, commands, state);
+                }
+                return applyPending(dao, commands, state);
+            });
+        }).handle(ReactiveMongoTrek::failure).thenCompose(Function.identity());
+    }
+
+    /**
+     * Report the status of the migrations and provided commands.  Does not apply the migrations.
+     *
+     * @return A stage completing with the trek state, or exceptionally with a {@link MongoTrekFailureException} if the status report fails for whatever reason.
+     */
+    public CompletionStage<MongoTrekState> status() {
+        return commands()
+                .thenCompose(commands -> getState(schemaVersionDAO(commands), commands))
+                .handle(ReactiveMongoTrek::failure)
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Get the currently applied migration version straight from the schema version collection, without reading the migrations file.
+     *
+     * @return A stage completing with the currently applied version or {@code N/A} if no migration has been applied
+     * @see MongoTrek#getCurrentVersion()
+     */
+    public CompletionStage<String> getCurrentVersion() {
+        return new ReactiveSchemaVersionDAO(database.getCollection(schemaVersionCollection)).findLastSuccessful()
+                .thenApply(m -> m.map(Migration::getVersion).orElse("N/A"))
+                .handle(ReactiveMongoTrek::failure)
+                .thenCompose(Function.identity());
+    }
+
+    private CompletionStage<MongoTrekState> applyPending(ReactiveSchemaVersionDAO dao, MigrationCommands commands, MongoTrekState state) {
+        MongoTrekState.Pending pending = state.getPending();
+        ReactiveCommandRunner runner = new ReactiveCommandRunner(database, writeBatchSize);
+        AtomicInteger successfulCount = new AtomicInteger(0);
+        Instant start = Instant.now();
+
+        logStatus(state);
+        LOGGER.info(String.format("       Applying : [ %s ] -> [ %s ]", pending.getNextPendingVersion(), pending.getLastPendingVersion()));
+        LOGGER.info("     Migrations :");
+
+        CompletionStage<Void> applied = CompletableFuture.completedFuture(null);
+        for (Migration migration : pending.getMigrations())
+            applied = applied.thenCompose(v -> applyMigration(dao, runner, successfulCount, migration));
+
+        return applied
+                .whenComplete((v, e) -> {
+                    if (e != null) LOGGER.error("Error applying migration(s)", unwrap(e));
+                    LOGGER.info(String.format(">>> [ %d ] migrations applied in [ %d seconds ] <<<", successfulCount.get(), Duration.between(start, Instant.now()).getSeconds()));
+                })
+                .thenCompose(v -> getState(dao, commands))
+                .thenCompose(s -> recordHead(dao, commands, s));
+    }
+
+    private CompletionStage<Void> applyMigration(ReactiveSchemaVersionDAO dao, ReactiveCommandRunner runner, AtomicInteger successfulCount, Migration migration) {
+        LOGGER.info(String.format("       %s : %s", migration.getVersion(), migration.getDescription()));
+
+        return dao.save(migration.running())
+                .thenCompose(v -> runner.migrate(migration.getCommand()))
+                .thenCompose(result -> dao.save(migration.successful(result)))
+                .thenRun(successfulCount::incrementAndGet)
+                .handle((v, e) -> e == null ?
+                        CompletableFuture.<Void>completedFuture(null) :
+                        dao.save(migration.failed(asException(unwrap(e)))).thenCompose(s -> CompletableFuture.<Void>failedFuture(unwrap(e))))
+                .thenCompose(Function.identity());
+    }
+
+    private static CompletionStage<MongoTrekState> getState(ReactiveSchemaVersionDAO dao, MigrationCommands commands) {
+        return dao.findAll().thenApply(history -> {
+            try {
+                return MigrationsService.stateOf(MigrationsService.reconcile(commands, history));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static CompletionStage<MongoTrekState> recordHead(ReactiveSchemaVersionDAO dao, MigrationCommands commands, MongoTrekState state) {
+        return MigrationsService.headOf(commands, state)
+                .map(h -> dao.saveHead(h).thenApply(v -> state))
+                .orElseGet(() -> CompletableFuture.completedFuture(state));
+    }
+
+    // The migrations file is read off the calling thread, as it may be read from disk.
+    private CompletionStage<MigrationCommands> commands() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new MigrationCommandsFactory().getCommands(migrationsFile, MongoTrek.classLoader());
+            } catch (MongoTrekFailureException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private ReactiveSchemaVersionDAO schemaVersionDAO(MigrationCommands commands) {
+        commands.getSchemaVersionCollection().ifPresent(n -> {
+            if (schemaVersionCollection.equalsIgnoreCase(DEFAULT_SCHEMA_VERSION_COLLECTION))
+                schemaVersionCollection = n;
+        });
+        return new ReactiveSchemaVersionDAO(database.getCollection(schemaVersionCollection));
+    }
+
+    private void logStatus(MongoTrekState state) {
+        LOGGER.info(String.format("       Database : [ %s ]", database.getName()));
+        LOGGER.info(String.format(" Schema Version : [ %s ]", schemaVersionCollection));
+        LOGGER.info("         Action : [ migrate ]");
+        LOGGER.info(String.format("Current Version : [ %s ]", state.getCurrentVersion()));
+
+        List<Migration> orphaned = state.getOrphaned();
+        if (!orphaned.isEmpty())
+            LOGGER.warn(String.format("       Orphaned : [ %s ]", orphaned.stream().map(Migration::getVersion).collect(joining(", "))));
+
+        List<Migration> drifted = state.getDrifted();
+        if (!drifted.isEmpty())
+            LOGGER.warn(String.format("        Drifted : [ %s ]", drifted.stream().map(Migration::getVersion).collect(joining(", "))));
+    }
+
+    private static <T> CompletionStage<T> failure(T value, Throwable e) {
+        if (e == null) return CompletableFuture.completedFuture(value);
+
+        Throwable cause = unwrap(e);
+        return CompletableFuture.failedFuture(cause instanceof MongoTrekFailureException ? cause : new MongoTrekFailureException(cause));
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static Exception asException(Throwable e) {
+        return e instanceof Exception ? (Exception) e : new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,109 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <h1>Streaming Bulk Writer</h1>
+ *
+ * Streams a cursor through a transform into bulk writes of at most {@code batchSize} operations, so a {@link JavaMigration} over a large collection holds only one batch in memory, however large the collection.
+ *
+ * <pre>{@code
+ * MongoCollection<Document> people = database.getCollection("people");
+ * return StreamingBulkWriter.into(people)
+ *         .write(people.find(exists("fullName")), p -> new UpdateOneModel<>(eq("_id", p.get("_id")), split(p.getString("fullName"))))
+ *         .toDocument();
+ * }</pre>
+ *
+ * The source cursor is read in batches of the same size.  Writes are unordered by default, which lets the server apply them in parallel; a write error fails the migration once the batch it is in has been applied.
+ *
+ * @param <T> The target collection's document type
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class StreamingBulkWriter<T> {
+    private final MongoCollection<T> target;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean ordered = false;
+
+    private final static int DEFAULT_BATCH_SIZE = 1_000;
+
+    private StreamingBulkWriter(MongoCollection<T> target) {
+        this.target = target;
+    }
+
+    /**
+     * Create a writer into the target collection.
+     *
+     * @param target The collection to write to
+     * @param <T>    The collection's document type
+     * @return The writer
+     */
+    public static <T> StreamingBulkWriter<T> into(MongoCollection<T> target) {
+        return new StreamingBulkWriter<>(target);
+    }
+
+    /**
+     * Set the maximum number of operations per bulk write, and documents per source cursor batch.  Defaults to 1,000.
+     *
+     * @param batchSize The batch size
+     * @return This writer
+     */
+    public StreamingBulkWriter<T> batchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Apply each bulk write in order, stopping at the first error.  Defaults to {@code false}.
+     *
+     * @param ordered Whether writes are ordered
+     * @return This writer
+     */
+    public StreamingBulkWriter<T> ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Write the transform of every source document.
+     *
+     * @param source    The documents to read
+     * @param transform The write for each document, or {@code null} to skip it
+     * @param <S>       The source document type
+     * @return The combined counts of the writes made
+     */
+    public <S> BulkWriteSummary write(MongoIterable<S> source, Function<S, ? extends WriteModel<? extends T>> transform) {
+        BulkWriteSummary summary = new BulkWriteSummary();
+        BulkWriteOptions options = new BulkWriteOptions().ordered(ordered);
+        List<WriteModel<? extends T>> batch = new ArrayList<>(batchSize);
+
+        try (MongoCursor<S> cursor = source.batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                S document = cursor.next();
+                summary.read();
+
+                WriteModel<? extends T> write = transform.apply(document);
+                if (write == null) continue;
+
+                batch.add(write);
+                if (batch.size() >= batchSize) {
+                    summary.add(target.bulkWrite(batch, options));
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty())
+            summary.add(target.bulkWrite(batch, options));
+        return summary;
+    }
+}
@@ -9,8 +9,13 @@ import net.ozwolf.mongo.migrations.internal.domain.Migration;
  */
 public class DuplicateVersionException extends RuntimeException {
     private final static String MESSAGE_TEMPLATE = "Migration [ %s ] has duplicate commands.";
+    private final static String SOURCES_MESSAGE_TEMPLATE = "Migration [ %s ] has duplicate commands in [ %s ] and [ %s ].";
 
     public DuplicateVersionException(Migration migration) {
         super(String.format(MESSAGE_TEMPLATE, migration.getVersion()));
     }
+
+    public DuplicateVersionException(String version, String source, String otherSource) {
+        super(String.format(SOURCES_MESSAGE_TEMPLATE, version, source, otherSource));
+    }
 }
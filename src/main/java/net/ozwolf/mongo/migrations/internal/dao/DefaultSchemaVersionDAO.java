@@ -1,64 +1,215 @@
 package net.ozwolf.mongo.migrations.internal.dao;
 
+import com.mongodb.MongoServerException;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+import net.ozwolf.mongo.migrations.internal.jfr.SchemaVersionWriteEvent;
+import net.ozwolf.mongo.migrations.internal.domain.VersionKey;
 import org.bson.Document;
 
 import java.util.*;
 import java.util.function.Consumer;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Projections.exclude;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.set;
+import static net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDocuments.*;
 
 public class DefaultSchemaVersionDAO implements SchemaVersionDAO {
     private final MongoCollection<Document> collection;
+    private final boolean lazyResults;
+
+    private volatile boolean indexed;
 
     public DefaultSchemaVersionDAO(MongoCollection<Document> collection) {
+        this(collection, true);
+    }
+
+    // Results are only read on demand when the collection will outlive the returned history; otherwise they are read with it.
+    public DefaultSchemaVersionDAO(MongoCollection<Document> collection, boolean lazyResults) {
         this.collection = collection;
+        this.lazyResults = lazyResults;
     }
 
     @Override
     public List<Migration> findAll() {
         List<Migration> migrations = new ArrayList<>();
 
-        collection.find()
-                .forEach((Consumer<Document>) d ->
-                        migrations.add(
-                                new Migration(
-                                        d.getString("version"),
-                                        d.getString("description"),
-                                        d.getString("author"),
-                                        Optional.ofNullable(d.getDate("started")).map(Date::toInstant).orElse(null),
-                                        Optional.ofNullable(d.getDate("finished")).map(Date::toInstant).orElse(null),
-                                        MigrationStatus.valueOf(d.getString("status")),
-                                        d.getString("failureMessage"),
-                                        d.get("result", Document.class)
-                                )
-                        )
-                );
+        FindIterable<Document> history = collection.find(history());
+        if (lazyResults)
+            history = history.projection(exclude("result"));
+
+        history.forEach((Consumer<Document>) d -> migrations.add(toLazyMigration(d)));
         return migrations;
     }
 
     @Override
     public void save(Migration migration) {
-        Document d = new Document("version", migration.getVersion())
-                .append("description", migration.getDescription())
-                .append("author", migration.getAuthor())
-                .append("started", Optional.ofNullable(migration.getStarted()).map(Date::from).orElse(null))
-                .append("finished", Optional.ofNullable(migration.getFinished()).map(Date::from).orElse(null))
-                .append("status", migration.getStatus().name())
-                .append("failureMessage", migration.getFailureMessage())
-                .append("result", migration.getResult());
+        SchemaVersionWriteEvent event = new SchemaVersionWriteEvent();
+        event.begin();
+        collection().replaceOne(eq("version", migration.getVersion()), toDocument(migration), new ReplaceOptions().upsert(true));
+        written(event, "save", 1);
+    }
+
+    // Saves several migrations in one ordered bulk write of $set upserts.
+    public void saveAll(Collection<Migration> migrations) {
+        if (migrations.isEmpty()) return;
 
-        collection.replaceOne(eq("version", migration.getVersion()), d, new ReplaceOptions().upsert(true));
+        List<WriteModel<Document>> updates = new ArrayList<>(migrations.size());
+        for (Migration migration : migrations)
+            updates.add(new UpdateOneModel<>(
+                    eq("version", migration.getVersion()),
+                    new Document("$set", toDocument(migration)),
+                    new UpdateOptions().upsert(true)
+            ));
+
+        SchemaVersionWriteEvent event = new SchemaVersionWriteEvent();
+        event.begin();
+        collection().bulkWrite(updates);
+        written(event, "saveAll", updates.size());
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void heartbeat(Migration migration) {
+        SchemaVersionWriteEvent event = new SchemaVersionWriteEvent();
+        event.begin();
+        collection().updateOne(and(eq("version", migration.getVersion()), eq("status", MigrationStatus.Running.name())), set("heartbeat", new Date()));
+        written(event, "heartbeat", 1);
+    }
+
+    @Override
+    public void checkpoint(Migration migration) {
+        SchemaVersionWriteEvent event = new SchemaVersionWriteEvent();
+        event.begin();
+        collection().updateOne(
+                and(eq("version", migration.getVersion()), eq("status", MigrationStatus.Running.name())),
+                combine(set("checkpoint", migration.getCheckpoint().orElse(null)), set("heartbeat", new Date()))
+        );
+        written(event, "checkpoint", 1);
     }
 
     @Override
     public Optional<Migration> findLastSuccessful() {
-        return this.findAll().stream()
-                .filter(m -> m.getStatus() == MigrationStatus.Successful)
-                .sorted(Comparator.comparing(Migration::getVersion))
-                .reduce((p, c) -> c);
+        FindIterable<Document> successful = collection.find(successful())
+                .sort(descending("versionKey"))
+                .limit(1);
+        if (lazyResults)
+            successful = successful.projection(exclude("result"));
+
+        // Records saved before version keys were kept sort last, so are compared by hand.  Every write backfills them first, so once the last record has a key there are none left.
+        Document last = successful.first();
+        if (last != null && last.containsKey("versionKey"))
+            return Optional.of(toLazyMigration(last));
+
+        for (Document legacy : collection.find(and(successful(), withoutVersionKey())).projection(lazyResults ? exclude("result") : null))
+            if (last == null || VersionKey.of(legacy.getString("version")).compareTo(VersionKey.of(last.getString("version"))) > 0)
+                last = legacy;
+
+        return Optional.ofNullable(last).map(this::toLazyMigration);
+    }
+
+    @Override
+    public Optional<SchemaVersionHead> findHead() {
+        return Optional.ofNullable(collection.find(eq("_id", HEAD_ID)).first()).map(SchemaVersionDocuments::toHead);
+    }
+
+    @Override
+    public void saveHead(SchemaVersionHead head) {
+        SchemaVersionWriteEvent event = new SchemaVersionWriteEvent();
+        event.begin();
+        collection().replaceOne(eq("_id", HEAD_ID), toDocument(head), new ReplaceOptions().upsert(true));
+        written(event, "saveHead", 0);
+    }
+
+    private void written(SchemaVersionWriteEvent event, String operation, int migrations) {
+        event.end();
+        if (!event.shouldCommit()) return;
+
+        event.collection = collection.getNamespace().getCollectionName();
+        event.operation = operation;
+        event.migrations = migrations;
+        event.commit();
+    }
+
+    private Migration toLazyMigration(Document d) {
+        Migration migration = toMigration(d);
+
+        if (lazyResults && migration.isSuccessful())
+            migration.resultFrom(() -> findResult(migration.getVersion()));
+
+        return migration;
+    }
+
+    private Document findResult(String version) {
+        return Optional.ofNullable(collection.find(eq("version", version)).projection(include("result")).first())
+                .map(d -> d.get("result", Document.class))
+                .orElse(null);
+    }
+
+    // Reads work without the indexes, so a read-only user can still report status; the indexes are made by the migrate path and before the first write.
+    private MongoCollection<Document> collection() {
+        ensureIndexes();
+        return collection;
+    }
+
+    public void ensureIndexes() {
+        if (!indexed) {
+            synchronized (this) {
+                if (!indexed) {
+                    createIndexes();
+                    indexed = true;
+                }
+            }
+        }
+    }
+
+    private void createIndexes() {
+        try {
+            collection.createIndexes(indexes());
+        } catch (MongoServerException e) {
+            if (e.getCode() == DUPLICATE_KEY)
+                throw duplicateVersions(collection.getNamespace().getCollectionName(), e);
+            // An equivalent index may already exist under another name or with other options; verified below.
+        }
+
+        boolean uniqueVersion = false;
+        for (Document index : collection.listIndexes())
+            if (isUniqueVersionIndex(index))
+                uniqueVersion = true;
+
+        if (!uniqueVersion)
+            throw noUniqueVersionIndex(collection.getNamespace().getCollectionName());
+
+        backfillVersionKeys();
+    }
+
+    // Records saved before version keys were kept are given one, so the indexed lookup of the last successful version sees them.
+    private void backfillVersionKeys() {
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        collection.find(withoutVersionKey())
+                .projection(include("version"))
+                .forEach((Consumer<Document>) d -> updates.add(new UpdateOneModel<>(
+                        eq("_id", d.get("_id")),
+                        set("versionKey", VersionKey.of(d.getString("version")).toSortKey())
+                )));
+
+        if (!updates.isEmpty())
+            collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
     }
 }
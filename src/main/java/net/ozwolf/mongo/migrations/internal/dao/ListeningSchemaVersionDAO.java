@@ -0,0 +1,67 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.MigrationListener;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+
+import java.util.List;
+import java.util.Optional;
+
+// Times every write to the schema version collection for the migration listeners.
+public class ListeningSchemaVersionDAO implements SchemaVersionDAO {
+    private final SchemaVersionDAO delegate;
+    private final MigrationListener listener;
+    private final String database;
+
+    public ListeningSchemaVersionDAO(SchemaVersionDAO delegate, MigrationListener listener, String database) {
+        this.delegate = delegate;
+        this.listener = listener;
+        this.database = database;
+    }
+
+    @Override
+    public List<Migration> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void save(Migration migration) {
+        timed("save", () -> delegate.save(migration));
+    }
+
+    @Override
+    public void flush() {
+        timed("flush", delegate::flush);
+    }
+
+    @Override
+    public void heartbeat(Migration migration) {
+        timed("heartbeat", () -> delegate.heartbeat(migration));
+    }
+
+    @Override
+    public void checkpoint(Migration migration) {
+        timed("checkpoint", () -> delegate.checkpoint(migration));
+    }
+
+    @Override
+    public Optional<Migration> findLastSuccessful() {
+        return delegate.findLastSuccessful();
+    }
+
+    @Override
+    public Optional<SchemaVersionHead> findHead() {
+        return delegate.findHead();
+    }
+
+    @Override
+    public void saveHead(SchemaVersionHead head) {
+        timed("saveHead", () -> delegate.saveHead(head));
+    }
+
+    private void timed(String operation, Runnable write) {
+        long start = System.nanoTime();
+        write.run();
+        listener.onSchemaVersionWrite(database, operation, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,86 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationLease;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.expr;
+import static com.mongodb.client.model.Filters.or;
+import static net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDocuments.DUPLICATE_KEY;
+
+/**
+ * The migration lease document in the schema version collection.
+ *
+ * Expiry is computed from the server's clock ({@code $$NOW}), so nodes with skewed clocks still agree on when a lease has expired.  Requires MongoDB 4.2 or later.
+ */
+public class MigrationLeaseDAO {
+    private final MongoCollection<Document> collection;
+
+    final static String LEASE_ID = "_lease";
+
+    public MigrationLeaseDAO(MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    // Takes the lease if it is free, expired or already held by the owner.  Another live holder makes the upsert collide with the existing document.
+    public Optional<MigrationLease> acquire(String owner, Duration ttl) {
+        Bson available = or(eq("owner", owner), expr(new Document("$lte", List.of("$expires", "$$NOW"))));
+        List<Document> update = List.of(new Document("$set", new Document("owner", owner)
+                .append("token", new Document("$add", List.of(new Document("$ifNull", List.of("$token", 0L)), 1L)))
+                .append("acquired", "$$NOW")
+                .append("expires", expiry(ttl))));
+
+        try {
+            Document lease = collection.findOneAndUpdate(and(eq("_id", LEASE_ID), available), update, new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+            return Optional.ofNullable(lease).map(MigrationLeaseDAO::toLease);
+        } catch (MongoServerException e) {
+            if (e.getCode() == DUPLICATE_KEY) return Optional.empty();
+            throw e;
+        }
+    }
+
+    // Fenced by the token, so a holder whose lease has since been taken over cannot extend it.
+    public Optional<MigrationLease> renew(MigrationLease lease, Duration ttl) {
+        Document renewed = collection.findOneAndUpdate(
+                and(eq("_id", LEASE_ID), eq("owner", lease.getOwner()), eq("token", lease.getToken())),
+                List.of(new Document("$set", new Document("expires", expiry(ttl)))),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)
+        );
+        return Optional.ofNullable(renewed).map(MigrationLeaseDAO::toLease);
+    }
+
+    // The document is expired rather than removed, so the token keeps increasing across holders.
+    public void release(MigrationLease lease) {
+        collection.updateOne(
+                and(eq("_id", LEASE_ID), eq("owner", lease.getOwner()), eq("token", lease.getToken())),
+                List.of(new Document("$set", new Document("expires", "$$NOW")))
+        );
+    }
+
+    public Optional<MigrationLease> findCurrent() {
+        return Optional.ofNullable(collection.find(eq("_id", LEASE_ID)).first()).map(MigrationLeaseDAO::toLease);
+    }
+
+    private static Document expiry(Duration ttl) {
+        return new Document("$add", List.of("$$NOW", ttl.toMillis()));
+    }
+
+    private static MigrationLease toLease(Document d) {
+        return new MigrationLease(
+                d.getString("owner"),
+                d.get("token", Number.class).longValue(),
+                Optional.ofNullable(d.getDate("expires")).map(Date::toInstant).orElse(null)
+        );
+    }
+}
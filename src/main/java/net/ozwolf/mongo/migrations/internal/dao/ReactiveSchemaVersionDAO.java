@@ -0,0 +1,132 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+import net.ozwolf.mongo.migrations.internal.domain.VersionKey;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Projections.exclude;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Updates.set;
+import static java.util.stream.Collectors.toList;
+import static net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDocuments.*;
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.completion;
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.first;
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.toList;
+
+/**
+ * The schema version collection over the reactive streams driver.  Every operation completes asynchronously and never blocks the calling thread.
+ *
+ * As with {@link DefaultSchemaVersionDAO}, reads never write, so a read-only user can still report status.  Indexes are made by the migrate path and before the first write.
+ */
+public class ReactiveSchemaVersionDAO {
+    private final MongoCollection<Document> collection;
+
+    private CompletableFuture<Void> indexed;
+
+    public ReactiveSchemaVersionDAO(MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    public CompletionStage<List<Migration>> findAll() {
+        return toList(collection.find(history()).projection(exclude("result")))
+                .thenApply(documents -> documents.stream().map(this::toLazyMigration).collect(toList()));
+    }
+
+    public CompletionStage<Void> save(Migration migration) {
+        Document document = toDocument(migration);
+        return collection().thenCompose(c -> completion(c.replaceOne(eq("version", migration.getVersion()), document, new ReplaceOptions().upsert(true))));
+    }
+
+    public CompletionStage<Optional<Migration>> findLastSuccessful() {
+        return first(collection.find(successful()).sort(descending("versionKey")).limit(1).projection(exclude("result")))
+                // Records saved before version keys were kept sort last, so are compared by hand.  Every write backfills them first, so once the last record has a key there are none left.
+                .thenCompose(last -> last.filter(d -> d.containsKey("versionKey")).isPresent() ? CompletableFuture.completedFuture(last) : toList(collection.find(and(successful(), withoutVersionKey())).projection(exclude("result"))).thenApply(legacy -> {
+                    Document latest = last.orElse(null);
+                    for (Document d : legacy)
+                        if (latest == null || VersionKey.of(d.getString("version")).compareTo(VersionKey.of(latest.getString("version"))) > 0)
+                            latest = d;
+                    return Optional.ofNullable(latest);
+                }))
+                .thenApply(d -> d.map(this::toLazyMigration));
+    }
+
+    public CompletionStage<Optional<SchemaVersionHead>> findHead() {
+        return first(collection.find(eq("_id", HEAD_ID)))
+                .thenApply(d -> d.map(SchemaVersionDocuments::toHead));
+    }
+
+    public CompletionStage<Void> saveHead(SchemaVersionHead head) {
+        return collection().thenCompose(c -> completion(c.replaceOne(eq("_id", HEAD_ID), toDocument(head), new ReplaceOptions().upsert(true))));
+    }
+
+    // mongoTrek never closes the reactive client, so a result is read when first asked for, blocking the thread that asks.
+    private Migration toLazyMigration(Document d) {
+        Migration migration = toMigration(d);
+        if (migration.isSuccessful())
+            migration.resultFrom(() -> findResult(migration.getVersion()).toCompletableFuture().join());
+        return migration;
+    }
+
+    private CompletionStage<Document> findResult(String version) {
+        return first(collection.find(eq("version", version)).projection(include("result")))
+                .thenApply(d -> d.map(r -> r.get("result", Document.class)).orElse(null));
+    }
+
+    private CompletionStage<MongoCollection<Document>> collection() {
+        return ensureIndexes().thenApply(v -> collection);
+    }
+
+    // A failed attempt is forgotten, so the next call tries again.
+    public synchronized CompletionStage<Void> ensureIndexes() {
+        if (indexed == null || indexed.isCompletedExceptionally())
+            indexed = createIndexes().toCompletableFuture();
+        return indexed;
+    }
+
+    private CompletionStage<Void> createIndexes() {
+        String name = collection.getNamespace().getCollectionName();
+
+        return completion(collection.createIndexes(indexes()))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof MongoServerException && ((MongoServerException) cause).getCode() == DUPLICATE_KEY)
+                        throw duplicateVersions(name, cause);
+                    // An equivalent index may already exist under another name or with other options; verified below.
+                    return null;
+                })
+                .thenCompose(v -> toList(collection.listIndexes()))
+                .thenCompose(indexes -> {
+                    if (indexes.stream().noneMatch(SchemaVersionDocuments::isUniqueVersionIndex))
+                        throw noUniqueVersionIndex(name);
+                    return backfillVersionKeys();
+                });
+    }
+
+    private CompletionStage<Void> backfillVersionKeys() {
+        return toList(collection.find(withoutVersionKey()).projection(include("version")))
+                .thenCompose(documents -> {
+                    if (documents.isEmpty()) return CompletableFuture.completedFuture(null);
+
+                    List<WriteModel<Document>> updates = documents.stream()
+                            .map(d -> new UpdateOneModel<Document>(eq("_id", d.get("_id")), set("versionKey", VersionKey.of(d.getString("version")).toSortKey())))
+                            .collect(toList());
+                    return completion(collection.bulkWrite(updates, new BulkWriteOptions().ordered(false)));
+                });
+    }
+}
@@ -1,6 +1,7 @@
 package net.ozwolf.mongo.migrations.internal.dao;
 
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,5 +11,17 @@ public interface SchemaVersionDAO {
 
     void save(Migration migration);
 
+    void flush();
+
+    // Marks a running migration as still alive.
+    void heartbeat(Migration migration);
+
+    // Records a running migration's checkpoint straight away, whatever the write-behind batching.
+    void checkpoint(Migration migration);
+
     Optional<Migration> findLastSuccessful();
+
+    Optional<SchemaVersionHead> findHead();
+
+    void saveHead(SchemaVersionHead head);
 }
@@ -0,0 +1,113 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Indexes.ascending;
+
+/**
+ * The schema version collection's document layout, shared by the sync and reactive DAOs.
+ */
+class SchemaVersionDocuments {
+    // The head document shares the collection with the migration records, but never has a version.
+    final static String HEAD_ID = "_head";
+
+    final static int DUPLICATE_KEY = 11000;
+
+    private final static String VERSION_INDEX = "version_unique";
+    private final static String STATUS_INDEX = "status_versionKey";
+
+    // Versions are unique, so every save and result lookup is an index lookup rather than a collection scan.  The head document has no version and is left out of the index.
+    static List<IndexModel> indexes() {
+        return Arrays.asList(
+                new IndexModel(ascending("version"), new IndexOptions().name(VERSION_INDEX).unique(true).partialFilterExpression(exists("version"))),
+                new IndexModel(ascending("status", "versionKey"), new IndexOptions().name(STATUS_INDEX))
+        );
+    }
+
+    static boolean isUniqueVersionIndex(Document index) {
+        Document key = index.get("key", Document.class);
+        return key.size() == 1 && key.containsKey("version") && index.getBoolean("unique", false);
+    }
+
+    static IllegalStateException duplicateVersions(String collection, Throwable cause) {
+        return new IllegalStateException(String.format("Schema version collection [ %s ] has more than one record for the same version and cannot be uniquely indexed.", collection), cause);
+    }
+
+    static IllegalStateException noUniqueVersionIndex(String collection) {
+        return new IllegalStateException(String.format("Schema version collection [ %s ] has no unique index on [ version ].", collection));
+    }
+
+    static Bson history() {
+        return exists("version");
+    }
+
+    static Bson successful() {
+        return and(exists("version"), eq("status", MigrationStatus.Successful.name()));
+    }
+
+    static Bson withoutVersionKey() {
+        return and(exists("version"), exists("versionKey", false));
+    }
+
+    static Document toDocument(Migration migration) {
+        return new Document("version", migration.getVersion())
+                .append("versionKey", migration.getVersionKey().toSortKey())
+                .append("description", migration.getDescription())
+                .append("author", migration.getAuthor())
+                .append("started", Optional.ofNullable(migration.getStarted()).map(Date::from).orElse(null))
+                .append("finished", Optional.ofNullable(migration.getFinished()).map(Date::from).orElse(null))
+                .append("heartbeat", Optional.ofNullable(migration.getHeartbeat()).map(Date::from).orElse(null))
+                .append("status", migration.getStatus().name())
+                .append("failureMessage", migration.getFailureMessage())
+                .append("result", migration.getResult())
+                .append("checksum", migration.getChecksum())
+                .append("checkpoint", migration.getCheckpoint().orElse(null));
+    }
+
+    static Migration toMigration(Document d) {
+        Migration migration = new Migration(
+                d.getString("version"),
+                d.getString("description"),
+                d.getString("author"),
+                Optional.ofNullable(d.getDate("started")).map(Date::toInstant).orElse(null),
+                Optional.ofNullable(d.getDate("finished")).map(Date::toInstant).orElse(null),
+                MigrationStatus.valueOf(d.getString("status")),
+                d.getString("failureMessage"),
+                d.get("result", Document.class),
+                d.getString("checksum")
+        );
+        return migration.heartbeat(Optional.ofNullable(d.getDate("heartbeat")).map(Date::toInstant).orElse(null))
+                .checkpoint(d.get("checkpoint", Document.class));
+    }
+
+    static Document toDocument(SchemaVersionHead head) {
+        return new Document("_id", HEAD_ID)
+                .append("fingerprint", head.getFingerprint())
+                .append("currentVersion", head.getCurrentVersion())
+                .append("migrations", head.getMigrations())
+                .append("updated", Optional.ofNullable(head.getUpdated()).map(Date::from).orElse(null));
+    }
+
+    static SchemaVersionHead toHead(Document d) {
+        return new SchemaVersionHead(
+                d.getString("fingerprint"),
+                d.getString("currentVersion"),
+                Optional.ofNullable(d.getInteger("migrations")).orElse(0),
+                Optional.ofNullable(d.getDate("updated")).map(Date::toInstant).orElse(null)
+        );
+    }
+}
@@ -0,0 +1,61 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Filters.in;
+
+/**
+ * Waits for the schema version head or migration lease to change.
+ *
+ * Changes are watched with a change stream where the deployment supports one.  Standalone servers, and users without the privileges to open one, fall back to waiting out the timeout, so the caller polls instead.
+ */
+public class SchemaVersionWatch implements Closeable {
+    private final MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    private SchemaVersionWatch(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+        this.cursor = cursor;
+    }
+
+    // Opened before the state is first checked, so no change made after that check is missed.
+    public static SchemaVersionWatch open(MongoCollection<Document> collection, Duration timeout) {
+        try {
+            return new SchemaVersionWatch(collection.watch(List.of(match(in("documentKey._id", SchemaVersionDocuments.HEAD_ID, MigrationLeaseDAO.LEASE_ID))))
+                    .maxAwaitTime(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .cursor());
+        } catch (MongoException e) {
+            return new SchemaVersionWatch(null);
+        }
+    }
+
+    public boolean isPolling() {
+        return cursor == null;
+    }
+
+    // Returns once a change has been seen or, at the latest, after the timeout.
+    public void await(Duration timeout) throws InterruptedException {
+        if (cursor != null) {
+            try {
+                cursor.tryNext();
+                return;
+            } catch (MongoException e) {
+                // The stream was invalidated or the server stepped down; wait out the timeout instead.
+            }
+        }
+        Thread.sleep(Math.max(timeout.toMillis(), 1));
+    }
+
+    @Override
+    public void close() {
+        if (cursor != null) cursor.close();
+    }
+}
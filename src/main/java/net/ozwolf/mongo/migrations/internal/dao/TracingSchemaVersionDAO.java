@@ -0,0 +1,91 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.MigrationTracer;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Opens a span around every call to the schema version collection.  Only used when a tracer is set, so untraced runs pay nothing.
+public class TracingSchemaVersionDAO implements SchemaVersionDAO {
+    private final SchemaVersionDAO delegate;
+    private final MigrationTracer tracer;
+    private final String collection;
+
+    public TracingSchemaVersionDAO(SchemaVersionDAO delegate, MigrationTracer tracer, String collection) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+        this.collection = collection;
+    }
+
+    @Override
+    public List<Migration> findAll() {
+        return traced("findAll", null, delegate::findAll);
+    }
+
+    @Override
+    public void save(Migration migration) {
+        traced("save", migration, () -> {
+            delegate.save(migration);
+            return null;
+        });
+    }
+
+    @Override
+    public void flush() {
+        traced("flush", null, () -> {
+            delegate.flush();
+            return null;
+        });
+    }
+
+    @Override
+    public void heartbeat(Migration migration) {
+        traced("heartbeat", migration, () -> {
+            delegate.heartbeat(migration);
+            return null;
+        });
+    }
+
+    @Override
+    public void checkpoint(Migration migration) {
+        traced("checkpoint", migration, () -> {
+            delegate.checkpoint(migration);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Migration> findLastSuccessful() {
+        return traced("findLastSuccessful", null, delegate::findLastSuccessful);
+    }
+
+    @Override
+    public Optional<SchemaVersionHead> findHead() {
+        return traced("findHead", null, delegate::findHead);
+    }
+
+    @Override
+    public void saveHead(SchemaVersionHead head) {
+        traced("saveHead", null, () -> {
+            delegate.saveHead(head);
+            return null;
+        });
+    }
+
+    private <T> T traced(String operation, Migration migration, Supplier<T> call) {
+        try (MigrationTracer.Span span = tracer.start("mongotrek.schema_version." + operation)) {
+            span.attribute("db.mongodb.collection", collection);
+            if (migration != null)
+                span.attribute("mongotrek.version", migration.getVersion());
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds migration status transitions in memory and writes them to the schema version collection in batches.
+ *
+ * Transitions of the same migration are coalesced, so a migration that is started and finished between flushes costs one update.  Pending transitions are flushed when the batch is full, before any read and whenever {@link #flush() flush()} is called.
+ */
+public class WriteBehindSchemaVersionDAO implements SchemaVersionDAO {
+    private final DefaultSchemaVersionDAO delegate;
+    private final int batchSize;
+
+    private final Map<String, Migration> pending = new LinkedHashMap<>();
+
+    public WriteBehindSchemaVersionDAO(DefaultSchemaVersionDAO delegate, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write-behind batch size must be at least 1.");
+
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public List<Migration> findAll() {
+        flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public synchronized void save(Migration migration) {
+        pending.put(migration.getVersion(), migration);
+        if (pending.size() >= batchSize)
+            flush();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+
+        List<Migration> batch = new ArrayList<>(pending.values());
+        delegate.saveAll(batch);
+        pending.clear();
+    }
+
+    // Written straight through; a migration whose running status has not been written yet has nothing to mark.
+    @Override
+    public void heartbeat(Migration migration) {
+        delegate.heartbeat(migration);
+    }
+
+    // The running status may still be held back, and the checkpoint can only be written over it.
+    @Override
+    public void checkpoint(Migration migration) {
+        flush();
+        delegate.checkpoint(migration);
+    }
+
+    @Override
+    public Optional<Migration> findLastSuccessful() {
+        flush();
+        return delegate.findLastSuccessful();
+    }
+
+    @Override
+    public Optional<SchemaVersionHead> findHead() {
+        flush();
+        return delegate.findHead();
+    }
+
+    @Override
+    public void saveHead(SchemaVersionHead head) {
+        flush();
+        delegate.saveHead(head);
+    }
+}
@@ -9,21 +9,30 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class Migration {
+    private final VersionKey versionKey;
     private final String version;
     private final String description;
     private final String author;
     private Instant started;
     private Instant finished;
+    private Instant heartbeat;
     private MigrationStatus status;
     private String failureMessage;
     private Map<String, Object> result;
+    private Supplier<Map<String, Object>> resultLoader;
+    private String checksum;
+    private Document checkpoint;
 
     private MigrationCommand command;
 
     public final static String DEFAULT_AUTHOR = "trekBot";
 
+    private final static Comparator<Migration> ASCENDING = (m1, m2) -> m1.versionKey.compareTo(m2.versionKey);
+    private final static Comparator<Migration> DESCENDING = (m1, m2) -> m2.versionKey.compareTo(m1.versionKey);
+
     public Migration(String version,
                      String description,
                      String author,
@@ -32,7 +41,38 @@ public class Migration {
                      MigrationStatus status,
                      String failureMessage,
                      Map<String, Object> result) {
-        this.version = version;
+        this(version, description, author, started, finished, status, failureMessage, result, null);
+    }
+
+    public Migration(String version,
+                     String description,
+                     String author,
+                     Instant started,
+                     Instant finished,
+                     MigrationStatus status,
+                     String failureMessage,
+                     Map<String, Object> result,
+                     String checksum) {
+        this(VersionKey.of(version), description, author, started, finished, status, failureMessage, result);
+        this.checksum = checksum;
+    }
+
+    public Migration(MigrationCommand command) {
+        this(command.getVersionKey(), command.getDescription(), command.getAuthor(), null, null, MigrationStatus.Pending, null, null);
+        this.command = command;
+        this.checksum = command.getChecksum();
+    }
+
+    private Migration(VersionKey versionKey,
+                      String description,
+                      String author,
+                      Instant started,
+                      Instant finished,
+                      MigrationStatus status,
+                      String failureMessage,
+                      Map<String, Object> result) {
+        this.versionKey = versionKey;
+        this.version = versionKey.getVersion();
         this.description = description;
         this.author = Optional.ofNullable(author).orElse(DEFAULT_AUTHOR);
         this.started = started;
@@ -42,17 +82,16 @@ public class Migration {
         this.result = result;
     }
 
-    public Migration(MigrationCommand command) {
-        this(command.getVersion(), command.getDescription(), command.getAuthor(), null, null, MigrationStatus.Pending, null, null);
-        this.command = command;
-    }
-
     public String getVersion() {
         return version;
     }
 
+    public VersionKey getVersionKey() {
+        return versionKey;
+    }
+
     public Semver getSemanticVersion() {
-        return Semver.parse(version);
+        return versionKey.getSemver();
     }
 
     public String getDescription() {
@@ -71,6 +110,34 @@ public class Migration {
         return finished;
     }
 
+    // The last time the node running this migration showed it was still alive.
+    public Instant getHeartbeat() {
+        return heartbeat;
+    }
+
+    public Migration heartbeat(Instant heartbeat) {
+        this.heartbeat = heartbeat;
+        return this;
+    }
+
+    // A running migration is stale once nothing has been heard from the node running it for the timeout, as happens when that node dies mid-migration.
+    public boolean isStale(Duration timeout, Instant now) {
+        if (status != MigrationStatus.Running) return false;
+
+        Instant lastSeen = Optional.ofNullable(heartbeat).orElse(started);
+        return lastSeen == null || lastSeen.plus(timeout).isBefore(now);
+    }
+
+    // Where a batched migration had got to, kept across failures so a re-run carries on from it.
+    public Optional<Document> getCheckpoint() {
+        return Optional.ofNullable(checkpoint);
+    }
+
+    public Migration checkpoint(Document checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
     public String getFailureMessage() {
         return failureMessage;
     }
@@ -80,6 +147,19 @@ public class Migration {
         return String.format("%d seconds", Duration.between(this.started, this.finished).getSeconds());
     }
 
+    public String getChecksum() {
+        return checksum;
+    }
+
+    // A successful migration has drifted if its command has changed since it was applied.  Records from before checksums were kept cannot drift.
+    public boolean isDrifted() {
+        return status == MigrationStatus.Successful &&
+                command != null &&
+                checksum != null &&
+                command.getChecksum() != null &&
+                !checksum.equals(command.getChecksum());
+    }
+
     public MigrationStatus getStatus() {
         return status;
     }
@@ -87,9 +167,20 @@ public class Migration {
     public Map<String, Object> getResult() {
         if (status != MigrationStatus.Successful) return null;
 
+        if (result == null && resultLoader != null) {
+            result = resultLoader.get();
+            resultLoader = null;
+        }
+
         return Optional.ofNullable(result).orElseGet(HashMap::new);
     }
 
+    // History read without its (potentially large) results defers to the loader the first time the result is asked for.
+    public Migration resultFrom(Supplier<Map<String, Object>> resultLoader) {
+        this.resultLoader = resultLoader;
+        return this;
+    }
+
     public boolean isSuccessful() {
         return status == MigrationStatus.Successful;
     }
@@ -116,17 +207,30 @@ public class Migration {
     }
 
     public Migration running() {
+        this.checksum = getCommand().getChecksum();
         this.started = Instant.now();
+        this.heartbeat = this.started;
         this.finished = null;
         this.failureMessage = null;
         this.status = MigrationStatus.Running;
         return this;
     }
 
+    public Migration pending() {
+        this.started = null;
+        this.heartbeat = null;
+        this.finished = null;
+        this.failureMessage = null;
+        this.status = MigrationStatus.Pending;
+        return this;
+    }
+
     public Migration successful(Document result) {
         this.finished = Instant.now();
         this.status = MigrationStatus.Successful;
         this.result = result;
+        this.resultLoader = null;
+        this.checkpoint = null;
         return this;
     }
 
@@ -137,6 +241,11 @@ public class Migration {
         return this;
     }
 
+    public Migration interrupted() {
+        Instant lastSeen = Optional.ofNullable(heartbeat).orElse(started);
+        return failed(new IllegalStateException(String.format("Interrupted while running; nothing heard since [ %s ].", lastSeen)));
+    }
+
     public String getTags() {
         List<String> tags = new ArrayList<>();
         tags.add(String.format("[ %s ]", status.name()));
@@ -157,10 +266,10 @@ public class Migration {
     }
 
     public static Comparator<Migration> sortByVersionAscending() {
-        return Comparator.comparing(Migration::getSemanticVersion);
+        return ASCENDING;
     }
 
     public static Comparator<Migration> sortByVersionDescending() {
-        return (m1, m2) -> m2.getSemanticVersion().compareTo(m1.getSemanticVersion());
+        return DESCENDING;
     }
 }
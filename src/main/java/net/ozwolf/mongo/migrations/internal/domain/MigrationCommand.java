@@ -7,41 +7,78 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.mongodb.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.internal.execution.CheckpointedBatchUpdate;
+import net.ozwolf.mongo.migrations.internal.execution.DataFileInsert;
+import net.ozwolf.mongo.migrations.internal.execution.JavaMigrationRunner;
+import net.ozwolf.mongo.migrations.internal.execution.PartitionedWriteCommand;
+import net.ozwolf.mongo.migrations.internal.execution.WriteCommandBatcher;
+import net.ozwolf.mongo.migrations.internal.jfr.CommandExecutionEvent;
+import net.ozwolf.mongo.migrations.internal.jfr.InterpolationEvent;
+import net.ozwolf.mongo.migrations.internal.util.ChecksumUtils;
 import net.ozwolf.mongo.migrations.internal.util.StrictJsonUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
 
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 @JsonDeserialize
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class MigrationCommand {
+    private final VersionKey versionKey;
     private final String version;
     private final String description;
     private final String author;
-    private final BasicDBObject command;
+    private final String checksum;
+    private boolean idempotent = true;
+    private Integer batchSize;
+    private Integer parallelism;
+    private URL origin;
+    private ClassLoader classLoader;
+    private List<String> dependsOn = Collections.emptyList();
+
+    private Supplier<Map<String, Object>> source;
+    private volatile BasicDBObject command;
 
     @JsonCreator
     public MigrationCommand(@JsonProperty("version") String version,
                             @JsonProperty("description") String description,
                             @JsonProperty("author") String author,
                             @JsonProperty("command") Map<String, Object> command) {
-        if (StringUtils.trimToNull(version) == null || StringUtils.trimToNull(description) == null || command == null)
+        this(version, description, author, command == null ? null : ChecksumUtils.checksum(command), command == null ? null : () -> command);
+    }
+
+    public MigrationCommand(String version,
+                            String description,
+                            String author,
+                            String checksum,
+                            Supplier<Map<String, Object>> source) {
+        if (StringUtils.trimToNull(version) == null || StringUtils.trimToNull(description) == null || source == null)
             throw new IllegalStateException("A migration command requires at least a version, description and a command!");
 
+        this.versionKey = VersionKey.of(version);
         this.version = version;
         this.description = description;
         this.author = Optional.ofNullable(author).orElse(Migration.DEFAULT_AUTHOR);
-        Map<String, Object> interpolated = StrictJsonUtils.interpolate(command);
-        this.command = new BasicDBObject(interpolated);
+        this.checksum = checksum;
+        this.source = source;
     }
 
     public final String getVersion() {
         return version;
     }
 
+    public final VersionKey getVersionKey() {
+        return versionKey;
+    }
+
     public final String getDescription() {
         return description;
     }
@@ -50,19 +87,170 @@ public class MigrationCommand {
         return author;
     }
 
+    public String getChecksum() {
+        return checksum;
+    }
+
+    // A migration that is not safe to re-run has its status persisted immediately either side of it, however status writes are batched.
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public MigrationCommand idempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    public Optional<Integer> getBatchSize() {
+        return Optional.ofNullable(batchSize);
+    }
+
+    public MigrationCommand batchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    // A multi-document update or delete with a parallelism above 1 is split into that many _id ranges, applied concurrently.
+    public Optional<Integer> getParallelism() {
+        return Optional.ofNullable(parallelism);
+    }
+
+    public MigrationCommand parallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    // The migrations file this command was read from, which data files it refers to are resolved against.
+    public Optional<URL> getOrigin() {
+        return Optional.ofNullable(origin);
+    }
+
+    public MigrationCommand origin(URL origin) {
+        this.origin = origin;
+        return this;
+    }
+
+    // The class loader the migrations file was read with, which Java migrations are loaded with.
+    public ClassLoader getClassLoader() {
+        return Optional.ofNullable(classLoader).orElse(MigrationCommand.class.getClassLoader());
+    }
+
+    public MigrationCommand classLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        return this;
+    }
+
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    public MigrationCommand dependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn == null ? Collections.emptyList() : Collections.unmodifiableList(dependsOn);
+        return this;
+    }
+
     public DBObject getCommand() {
-        return command;
+        return command();
+    }
+
+    // The command's name is its first key, as the server reads it.
+    public String getCommandName() {
+        return command().keySet().stream().findFirst().orElse("unknown");
     }
 
     public Document migrate(MongoDatabase database) {
-        ensureMapReduceCollection(database);
-        Document result = database.runCommand(command);
+        return migrate(database, WriteCommandBatcher.MAX_WRITE_BATCH_SIZE);
+    }
+
+    // Write commands are split into batches of this migration's batch size, or the given default if it has none.
+    public Document migrate(MongoDatabase database, int defaultBatchSize) {
+        return migrate(database, defaultBatchSize, null);
+    }
+
+    public Document migrate(MongoDatabase database, int defaultBatchSize, String comment) {
+        return migrate(database, defaultBatchSize, comment, CheckpointedBatchUpdate.Checkpoint.NONE);
+    }
+
+    // A comment is sent with a copy of the command, leaving the command itself as written.  A batch update carries on from, and records, the given checkpoint.
+    public Document migrate(MongoDatabase database, int defaultBatchSize, String comment, CheckpointedBatchUpdate.Checkpoint checkpoint) {
+        BasicDBObject command = comment == null ? command() : tagged(comment);
+        int batchSize = getBatchSize().orElse(defaultBatchSize);
+
+        CommandExecutionEvent event = new CommandExecutionEvent();
+        event.begin();
+        Document result = null;
+        try {
+            ensureMapReduceCollection(database, command);
+            if (CheckpointedBatchUpdate.isBatchUpdate(command)) {
+                result = new CheckpointedBatchUpdate().run(database, command(), checkpoint, comment);
+            } else if (JavaMigrationRunner.isJavaMigration(command)) {
+                result = resultOf(new JavaMigrationRunner(getClassLoader()).run(database, command()));
+            } else if (getParallelism().filter(p -> p > 1).isPresent()) {
+                result = resultOf(new PartitionedWriteCommand(parallelism, new WriteCommandBatcher(batchSize)).run(database, command));
+            } else {
+                result = resultOf(DataFileInsert.isDataFileInsert(command) ?
+                        new DataFileInsert(batchSize).run(database, command, origin) :
+                        new WriteCommandBatcher(batchSize).run(database, command));
+            }
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.database = database.getName();
+                event.version = version;
+                event.command = getCommandName();
+                event.batchSize = batchSize;
+                event.succeeded = result != null;
+                event.resultSize = result == null ? 0 : sizeOf(result);
+                event.commit();
+            }
+        }
+    }
+
+    // Command results are stored as migration results, which cannot hold $-prefixed fields.
+    public static Document resultOf(Document result) {
         if (result.get("$clusterTime") != null)
             result.append("clusterTime", result.get("$clusterTime")).remove("$clusterTime");
         return result;
     }
 
-    private void ensureMapReduceCollection(MongoDatabase database) {
+    // Commands are only deserialized and interpolated when first needed, so already applied migrations never pay for it.
+    private BasicDBObject command() {
+        BasicDBObject materialized = command;
+        if (materialized != null) return materialized;
+
+        synchronized (this) {
+            if (command == null) {
+                InterpolationEvent event = new InterpolationEvent();
+                event.begin();
+                command = new BasicDBObject(StrictJsonUtils.interpolate(source.get()));
+                source = null;
+                event.end();
+                if (event.shouldCommit()) {
+                    event.version = version;
+                    event.commit();
+                }
+            }
+            return command;
+        }
+    }
+
+    private BasicDBObject tagged(String comment) {
+        BasicDBObject tagged = new BasicDBObject(command());
+        tagged.put("comment", comment);
+        return tagged;
+    }
+
+    // Only worked out for a recorded event, as it encodes the result again.
+    private static long sizeOf(Document result) {
+        try {
+            return new RawBsonDocument(result, new DocumentCodec()).getByteBuffer().remaining();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static void ensureMapReduceCollection(MongoDatabase database, BasicDBObject command) {
         String collection = command.getString("mapReduce", null);
         if (collection == null) return;
 
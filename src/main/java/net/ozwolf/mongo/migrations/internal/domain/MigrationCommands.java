@@ -5,7 +5,11 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+import net.ozwolf.mongo.migrations.internal.util.ChecksumUtils;
+
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +21,8 @@ public class MigrationCommands {
     private final String schemaVersionCollection;
     private final List<MigrationCommand> migrations;
 
+    private volatile String fingerprint;
+
     @JsonCreator
     public MigrationCommands(@JsonProperty("collectionName") String schemaVersionCollection,
                              @JsonProperty("migrations") List<MigrationCommand> migrations) {
@@ -24,6 +30,12 @@ public class MigrationCommands {
         this.migrations = Optional.ofNullable(migrations).orElse(new ArrayList<>());
     }
 
+    // A catalog whose fingerprint is already known, such as one read back from a compiled catalog.
+    public MigrationCommands(String schemaVersionCollection, List<MigrationCommand> migrations, String fingerprint) {
+        this(schemaVersionCollection, migrations);
+        this.fingerprint = fingerprint;
+    }
+
     public Optional<String> getSchemaVersionCollection() {
         return Optional.ofNullable(trimToNull(schemaVersionCollection));
     }
@@ -35,4 +47,20 @@ public class MigrationCommands {
     public boolean hasMigrations() {
         return !this.migrations.isEmpty();
     }
+
+    // A rolling digest of every version and command checksum in version order, so any added, removed or changed migration changes it.
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            List<MigrationCommand> sorted = new ArrayList<>(migrations);
+            sorted.sort(Comparator.comparing(MigrationCommand::getVersionKey));
+
+            MessageDigest digest = ChecksumUtils.digest();
+            for (MigrationCommand command : sorted) {
+                ChecksumUtils.update(digest, command.getVersion());
+                ChecksumUtils.update(digest, Optional.ofNullable(command.getChecksum()).orElse(""));
+            }
+            fingerprint = ChecksumUtils.hex(digest.digest());
+        }
+        return fingerprint;
+    }
 }
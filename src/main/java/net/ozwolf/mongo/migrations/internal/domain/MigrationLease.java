@@ -0,0 +1,28 @@
+package net.ozwolf.mongo.migrations.internal.domain;
+
+import java.time.Instant;
+
+// The token increases with every acquisition, so a node that has lost the lease can never pass for its current holder.
+public class MigrationLease {
+    private final String owner;
+    private final long token;
+    private final Instant expires;
+
+    public MigrationLease(String owner, long token, Instant expires) {
+        this.owner = owner;
+        this.token = token;
+        this.expires = expires;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    public Instant getExpires() {
+        return expires;
+    }
+}
@@ -0,0 +1,38 @@
+package net.ozwolf.mongo.migrations.internal.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+public class Reconciliation {
+    private final List<Migration> migrations;
+    private final List<Migration> duplicates;
+    private final List<Migration> orphaned;
+    private final List<Migration> drifted;
+
+    public Reconciliation(List<Migration> migrations, List<Migration> duplicates, List<Migration> orphaned, List<Migration> drifted) {
+        this.migrations = Collections.unmodifiableList(migrations);
+        this.duplicates = Collections.unmodifiableList(duplicates);
+        this.orphaned = Collections.unmodifiableList(orphaned);
+        this.drifted = Collections.unmodifiableList(drifted);
+    }
+
+    public List<Migration> getMigrations() {
+        return migrations;
+    }
+
+    public List<Migration> getDuplicates() {
+        return duplicates;
+    }
+
+    public List<Migration> getOrphaned() {
+        return orphaned;
+    }
+
+    public List<Migration> getDrifted() {
+        return drifted;
+    }
+
+    public boolean hasDuplicates() {
+        return !duplicates.isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package net.ozwolf.mongo.migrations.internal.domain;
+
+import java.time.Instant;
+
+public class SchemaVersionHead {
+    private final String fingerprint;
+    private final String currentVersion;
+    private final int migrations;
+    private final Instant updated;
+
+    public SchemaVersionHead(String fingerprint, String currentVersion, int migrations, Instant updated) {
+        this.fingerprint = fingerprint;
+        this.currentVersion = currentVersion;
+        this.migrations = migrations;
+        this.updated = updated;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public int getMigrations() {
+        return migrations;
+    }
+
+    public Instant getUpdated() {
+        return updated;
+    }
+
+    public boolean matches(MigrationCommands commands) {
+        return fingerprint != null && fingerprint.equals(commands.getFingerprint());
+    }
+}
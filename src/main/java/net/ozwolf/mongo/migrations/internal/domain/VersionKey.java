@@ -0,0 +1,121 @@
+package net.ozwolf.mongo.migrations.internal.domain;
+
+import org.apache.commons.lang3.StringUtils;
+import org.semver4j.Semver;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An immutable, pre-parsed sort key for a migration version.
+ *
+ * Plain {@code major.minor.patch} versions are packed into a single {@code long} (21 bits per component) so the common comparison is a single primitive compare.  Versions with pre-release identifiers or components too large to pack fall back to a semantic version comparison.  Versions that are not strict semantic versions (eg. {@code 2.0.0.1}) are coerced, with the raw version string breaking any remaining tie.
+ */
+public final class VersionKey implements Comparable<VersionKey> {
+    private final static int COMPONENT_BITS = 21;
+    private final static long COMPONENT_MAX = (1L << COMPONENT_BITS) - 1;
+    private final static long NOT_PACKED = -1L;
+
+    private final static String COMPONENT_FORMAT = "%010d";
+    private final static char RELEASE = '~';
+    private final static char PRE_RELEASE = '-';
+    private final static char IDENTIFIER_SEPARATOR = '!';
+    private final static char VERSION_SEPARATOR = ' ';
+
+    private final String version;
+    private final Semver semver;
+    private final long packed;
+    private final boolean release;
+
+    private VersionKey(String version, Semver semver) {
+        this.version = version;
+        this.semver = semver;
+        this.packed = pack(semver);
+        this.release = semver != null && semver.getPreRelease().isEmpty();
+    }
+
+    public static VersionKey of(String version) {
+        Semver semver = Optional.ofNullable(Semver.parse(version)).orElseGet(() -> Semver.coerce(version));
+        return new VersionKey(version, semver);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Semver getSemver() {
+        return semver;
+    }
+
+    // A string that sorts lexicographically in the same order as this key, so the database can order versions by a plain index.  Components are zero-padded, releases sort after their pre-releases, numeric pre-release identifiers sort before alphanumeric ones, and the raw version breaks ties.
+    public String toSortKey() {
+        StringBuilder key = new StringBuilder();
+        if (semver != null) {
+            key.append(String.format(COMPONENT_FORMAT, semver.getMajor())).append('.')
+                    .append(String.format(COMPONENT_FORMAT, semver.getMinor())).append('.')
+                    .append(String.format(COMPONENT_FORMAT, semver.getPatch()));
+
+            if (release) {
+                key.append(RELEASE);
+            } else {
+                key.append(PRE_RELEASE);
+                List<String> identifiers = semver.getPreRelease();
+                for (int i = 0; i < identifiers.size(); i++) {
+                    if (i > 0) key.append(IDENTIFIER_SEPARATOR);
+                    String identifier = identifiers.get(i);
+                    if (identifier.chars().allMatch(Character::isDigit)) {
+                        key.append('0').append(StringUtils.leftPad(identifier, 10, '0'));
+                    } else {
+                        key.append('1').append(identifier);
+                    }
+                }
+            }
+        }
+        return key.append(VERSION_SEPARATOR).append(version).toString();
+    }
+
+    @Override
+    public int compareTo(VersionKey other) {
+        if (this == other) return 0;
+
+        int result;
+        if (packed != NOT_PACKED && other.packed != NOT_PACKED && release && other.release) {
+            result = Long.compare(packed, other.packed);
+        } else if (semver != null && other.semver != null) {
+            result = semver.compareTo(other.semver);
+        } else {
+            // Versions that cannot be read at all sort ahead of readable ones.
+            result = Boolean.compare(semver != null, other.semver != null);
+        }
+
+        return result != 0 ? result : version.compareTo(other.version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VersionKey)) return false;
+        return version.equals(((VersionKey) o).version);
+    }
+
+    @Override
+    public int hashCode() {
+        return version.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+
+    private static long pack(Semver semver) {
+        if (semver == null) return NOT_PACKED;
+
+        long major = semver.getMajor();
+        long minor = semver.getMinor();
+        long patch = semver.getPatch();
+        if (major > COMPONENT_MAX || minor > COMPONENT_MAX || patch > COMPONENT_MAX) return NOT_PACKED;
+
+        return (major << (COMPONENT_BITS * 2)) | (minor << COMPONENT_BITS) | patch;
+    }
+}
@@ -0,0 +1,169 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.*;
+
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
+
+/**
+ * Runs a {@code batchUpdate} command: an update of every document matching {@code filter}, applied in batches walked in {@code _id} order.
+ *
+ * After each batch, the last {@code _id} updated and the running counts are recorded as a checkpoint, so a migration restarted after a failure or a dead node carries on from the last checkpoint rather than from the start.  A batch interrupted part way is applied again in full, so the update must be safe to repeat (eg. a {@code $set}, or a filter that excludes updated documents).
+ *
+ * Batches start at {@code batchSize} documents (1,000 by default) and are resized after each batch to take about {@code targetBatchMillis} (1,000 by default), at most halving or doubling at a time.  The {@code _id}s of the collection must all be of one BSON type, as range queries do not cross types.
+ */
+public class CheckpointedBatchUpdate {
+    public final static String BATCH_UPDATE = "batchUpdate";
+
+    private final static int DEFAULT_BATCH_SIZE = 1_000;
+    private final static long DEFAULT_TARGET_BATCH_MILLIS = 1_000;
+
+    public static boolean isBatchUpdate(Map<String, Object> command) {
+        return !command.isEmpty() && BATCH_UPDATE.equals(command.keySet().iterator().next());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Document run(MongoDatabase database, Map<String, Object> command, Checkpoint checkpoint, String comment) {
+        if (!(command.get(BATCH_UPDATE) instanceof String))
+            throw new IllegalArgumentException(String.format("[ %s ] must name a collection.", BATCH_UPDATE));
+
+        Object update = command.get("update");
+        if (!(update instanceof Map) && !(update instanceof List))
+            throw new IllegalArgumentException(String.format("[ %s ] of [ %s ] requires an [ update ] document or pipeline.", BATCH_UPDATE, command.get(BATCH_UPDATE)));
+
+        MongoCollection<Document> collection = database.getCollection((String) command.get(BATCH_UPDATE));
+        Bson filter = command.get("filter") instanceof Map ? new Document((Map<String, Object>) command.get("filter")) : new Document();
+        long targetNanos = option(command, "targetBatchMillis", DEFAULT_TARGET_BATCH_MILLIS) * 1_000_000;
+        UpdateOptions options = new UpdateOptions();
+        if (comment != null) options.comment(comment);
+
+        Progress progress = checkpoint.last().map(Progress::of).orElseGet(() -> new Progress((int) option(command, "batchSize", DEFAULT_BATCH_SIZE)));
+        Object resumedFrom = progress.lastId;
+
+        while (true) {
+            Bson remaining = progress.lastId == null ? filter : and(filter, gt("_id", progress.lastId));
+            FindIterable<Document> ids = collection.find(remaining).projection(include("_id")).sort(ascending("_id")).limit(progress.batchSize);
+            if (comment != null) ids = ids.comment(comment);
+
+            List<Object> batch = new ArrayList<>(progress.batchSize);
+            for (Document id : ids)
+                batch.add(id.get("_id"));
+            if (batch.isEmpty()) break;
+
+            Object lastId = batch.get(batch.size() - 1);
+            Bson range = progress.lastId == null ? and(filter, lte("_id", lastId)) : and(filter, gt("_id", progress.lastId), lte("_id", lastId));
+
+            long started = System.nanoTime();
+            UpdateResult result = update instanceof List ?
+                    collection.updateMany(range, toPipeline((List<Object>) update), options) :
+                    collection.updateMany(range, new Document((Map<String, Object>) update), options);
+
+            progress = progress.next(lastId, result.getMatchedCount(), result.getModifiedCount(), nextBatchSize(progress.batchSize, System.nanoTime() - started, targetNanos));
+            checkpoint.record(progress.toDocument());
+        }
+
+        Document result = new Document("batches", progress.batches)
+                .append("nMatched", progress.matched)
+                .append("nModified", progress.modified);
+        if (resumedFrom != null) result.append("resumedFrom", resumedFrom);
+        return result.append("ok", 1.0);
+    }
+
+    // Scales the batch towards the target duration, by at most half or double, within the server's write batch limit.
+    static int nextBatchSize(int batchSize, long elapsedNanos, long targetNanos) {
+        double factor = elapsedNanos <= 0 ? 2.0 : Math.max(0.5, Math.min(2.0, (double) targetNanos / elapsedNanos));
+        return (int) Math.max(1, Math.min(WriteCommandBatcher.MAX_WRITE_BATCH_SIZE, Math.round(batchSize * factor)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Bson> toPipeline(List<Object> stages) {
+        List<Bson> pipeline = new ArrayList<>(stages.size());
+        for (Object stage : stages)
+            pipeline.add(new Document((Map<String, Object>) stage));
+        return pipeline;
+    }
+
+    private static long option(Map<String, Object> command, String name, long defaultValue) {
+        Object value = command.get(name);
+        if (value == null) return defaultValue;
+        if (!(value instanceof Number) || ((Number) value).longValue() < 1)
+            throw new IllegalArgumentException(String.format("[ %s ] of [ %s ] must be a positive number.", name, command.get(BATCH_UPDATE)));
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Where a batch update has got to, held against the running migration.
+     */
+    public interface Checkpoint {
+        Checkpoint NONE = new Checkpoint() {
+            @Override
+            public Optional<Document> last() {
+                return Optional.empty();
+            }
+
+            @Override
+            public void record(Document checkpoint) {
+            }
+        };
+
+        Optional<Document> last();
+
+        void record(Document checkpoint);
+    }
+
+    private static class Progress {
+        private final Object lastId;
+        private final long batches;
+        private final long matched;
+        private final long modified;
+        private final int batchSize;
+
+        private Progress(int batchSize) {
+            this(null, 0, 0, 0, batchSize);
+        }
+
+        private Progress(Object lastId, long batches, long matched, long modified, int batchSize) {
+            this.lastId = lastId;
+            this.batches = batches;
+            this.matched = matched;
+            this.modified = modified;
+            this.batchSize = batchSize;
+        }
+
+        private Progress next(Object lastId, long matched, long modified, int batchSize) {
+            return new Progress(lastId, this.batches + 1, this.matched + matched, this.modified + modified, batchSize);
+        }
+
+        private static Progress of(Document checkpoint) {
+            return new Progress(
+                    checkpoint.get("lastId"),
+                    number(checkpoint, "batches"),
+                    number(checkpoint, "nMatched"),
+                    number(checkpoint, "nModified"),
+                    (int) Math.max(1, number(checkpoint, "batchSize"))
+            );
+        }
+
+        private Document toDocument() {
+            return new Document("lastId", lastId)
+                    .append("batches", batches)
+                    .append("nMatched", matched)
+                    .append("nModified", modified)
+                    .append("batchSize", batchSize);
+        }
+
+        private static long number(Document document, String field) {
+            Object value = document.get(field);
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import java.util.*;
+
+/**
+ * Infers the collections a migration command reads or writes, so migrations on unrelated collections can be run concurrently.
+ *
+ * Commands whose collections cannot be determined (eg. {@code dropDatabase}, {@code renameCollection} or anything not listed here) are reported as unknown, and must be treated as touching every collection.
+ */
+public class CommandTargets {
+    private final static Set<String> COLLECTION_COMMANDS = Set.of(
+            "insert", "update", "delete", "findAndModify", "findandmodify", "find", "count", "distinct",
+            "create", "drop", "collMod", "createIndexes", "dropIndexes", "reIndex", "compact", "validate",
+            "aggregate", "mapReduce", "mapreduce", "batchUpdate"
+    );
+
+    private final static Set<String> PIPELINE_COLLECTION_STAGES = Set.of("$lookup", "$graphLookup", "$unionWith");
+
+    public static Optional<Set<String>> of(DBObject command) {
+        Map<String, ?> fields = command instanceof BasicDBObject ? (BasicDBObject) command : new BasicDBObject(command.toMap());
+        return of(fields);
+    }
+
+    public static Optional<Set<String>> of(Map<String, ?> command) {
+        if (command.isEmpty()) return Optional.empty();
+
+        Map.Entry<String, ?> name = command.entrySet().iterator().next();
+        if (!COLLECTION_COMMANDS.contains(name.getKey()) || !(name.getValue() instanceof String))
+            return Optional.empty();
+
+        Set<String> targets = new TreeSet<>();
+        targets.add((String) name.getValue());
+
+        if (command.get("viewOn") instanceof String)
+            targets.add((String) command.get("viewOn"));
+
+        if (!addOutput(targets, command.get("out")))
+            return Optional.empty();
+
+        if (!addPipeline(targets, command.get("pipeline")))
+            return Optional.empty();
+
+        return Optional.of(targets);
+    }
+
+    // Output to another database, or in a form not understood, cannot be attributed to a collection here.
+    @SuppressWarnings("unchecked")
+    private static boolean addOutput(Set<String> targets, Object out) {
+        if (out == null) return true;
+        if (out instanceof String) {
+            targets.add((String) out);
+            return true;
+        }
+        if (!(out instanceof Map)) return false;
+
+        Map<String, Object> options = (Map<String, Object>) out;
+        if (options.containsKey("db")) return false;
+        if (options.get("inline") != null) return true;
+
+        for (String mode : List.of("replace", "merge", "reduce"))
+            if (options.containsKey(mode))
+                return addOutput(targets, options.get(mode));
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean addPipeline(Set<String> targets, Object pipeline) {
+        if (pipeline == null) return true;
+        if (!(pipeline instanceof List)) return false;
+
+        for (Object stage : (List<Object>) pipeline) {
+            if (!(stage instanceof Map)) return false;
+
+            for (Map.Entry<String, Object> operator : ((Map<String, Object>) stage).entrySet()) {
+                String name = operator.getKey();
+                Object argument = operator.getValue();
+                Map<String, Object> options = argument instanceof Map ? (Map<String, Object>) argument : Collections.emptyMap();
+
+                if (name.equals("$out")) {
+                    Object into = argument instanceof Map ? options.get("coll") : argument;
+                    if (into == null || options.containsKey("db") || !addOutput(targets, into)) return false;
+                } else if (name.equals("$merge")) {
+                    Object into = argument instanceof Map ? options.get("into") : argument;
+                    if (into == null || !addOutput(targets, into)) return false;
+                } else if (PIPELINE_COLLECTION_STAGES.contains(name)) {
+                    Object from = argument instanceof Map ? options.getOrDefault("from", options.get("coll")) : argument;
+                    if (!addOutput(targets, from) || !addPipeline(targets, options.get("pipeline"))) return false;
+                } else if (name.equals("$facet")) {
+                    for (Object facet : options.values())
+                        if (!addPipeline(targets, facet)) return false;
+                }
+            }
+        }
+        return true;
+    }
+}
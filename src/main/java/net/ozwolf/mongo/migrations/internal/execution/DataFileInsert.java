@@ -0,0 +1,174 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+import org.bson.json.JsonReader;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs an {@code insert} command whose documents are read from a data file ({@code documentsFrom}) rather than held in the migrations file.
+ *
+ * The file is read as a stream, relative to the migrations file that declares it, and each document is decoded straight to BSON and sent with batched {@code insertMany} calls, so only one batch is held in memory at a time.  Newline-delimited Extended JSON ({@code .jsonl} or {@code .ndjson}) and Extended JSON arrays ({@code .json}) are supported, optionally gzipped ({@code .gz}).
+ */
+public class DataFileInsert {
+    public final static String DOCUMENTS_FROM = "documentsFrom";
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static int MAX_BATCH_BYTES = 16 * 1024 * 1024 - 16 * 1024;
+
+    private final static RawBsonDocumentCodec CODEC = new RawBsonDocumentCodec();
+    private final static DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final int batchSize;
+
+    public DataFileInsert(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write batch size must be at least 1.");
+
+        this.batchSize = Math.min(batchSize, WriteCommandBatcher.MAX_WRITE_BATCH_SIZE);
+    }
+
+    public static boolean isDataFileInsert(Map<String, Object> command) {
+        return !command.isEmpty() && "insert".equals(command.keySet().iterator().next()) && command.get(DOCUMENTS_FROM) instanceof String;
+    }
+
+    public Document run(MongoDatabase database, Map<String, Object> command, URL origin) {
+        String file = (String) command.get(DOCUMENTS_FROM);
+        if (command.containsKey("documents"))
+            throw new IllegalArgumentException(String.format("Insert into [ %s ] cannot have both [ documents ] and [ %s ].", command.get("insert"), DOCUMENTS_FROM));
+
+        MongoCollection<RawBsonDocument> collection = database.getCollection((String) command.get("insert"), RawBsonDocument.class);
+        InsertManyOptions options = new InsertManyOptions()
+                .ordered(!Boolean.FALSE.equals(command.get("ordered")))
+                .bypassDocumentValidation((Boolean) command.get("bypassDocumentValidation"));
+
+        Result result = new Result(options.isOrdered());
+        try (InputStream stream = open(origin, file)) {
+            Batcher batcher = new Batcher(collection, options, result);
+            if (isLineDelimited(file)) {
+                readLines(stream, batcher);
+            } else {
+                readArray(stream, batcher);
+            }
+            batcher.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read documents from [ %s ]", file), e);
+        }
+        return result.toDocument();
+    }
+
+    private static InputStream open(URL origin, String file) throws IOException {
+        URL url = origin == null ? new File(file).toURI().toURL() : new URL(origin, file);
+        InputStream stream = new BufferedInputStream(url.openStream(), BUFFER_SIZE);
+        return file.toLowerCase().endsWith(".gz") ? new GZIPInputStream(stream, BUFFER_SIZE) : stream;
+    }
+
+    private static boolean isLineDelimited(String file) {
+        String name = file.toLowerCase();
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    private static void readLines(InputStream stream, Batcher batcher) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null && !batcher.isStopped()) {
+            if (!line.isBlank())
+                batcher.add(RawBsonDocument.parse(line));
+        }
+    }
+
+    private static void readArray(InputStream stream, Batcher batcher) {
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), BUFFER_SIZE));
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT && !batcher.isStopped())
+            batcher.add(CODEC.decode(reader, DECODER_CONTEXT));
+    }
+
+    private class Batcher {
+        private final MongoCollection<RawBsonDocument> collection;
+        private final InsertManyOptions options;
+        private final Result result;
+
+        private List<RawBsonDocument> batch = new ArrayList<>();
+        private long bytes = 0;
+
+        private Batcher(MongoCollection<RawBsonDocument> collection, InsertManyOptions options, Result result) {
+            this.collection = collection;
+            this.options = options;
+            this.result = result;
+        }
+
+        void add(RawBsonDocument document) {
+            int size = document.getByteBuffer().remaining();
+            if (!batch.isEmpty() && (batch.size() >= batchSize || bytes + size > MAX_BATCH_BYTES))
+                flush();
+
+            batch.add(document);
+            bytes += size;
+        }
+
+        void flush() {
+            if (batch.isEmpty() || isStopped()) return;
+
+            try {
+                collection.insertMany(batch, options);
+                result.add(batch.size(), batch.size(), List.of());
+            } catch (MongoBulkWriteException e) {
+                result.add(batch.size(), e.getWriteResult().getInsertedCount(), e.getWriteErrors());
+            }
+            batch = new ArrayList<>();
+            bytes = 0;
+        }
+
+        boolean isStopped() {
+            return result.isStopped();
+        }
+    }
+
+    private static class Result {
+        private final boolean ordered;
+        private int offset = 0;
+        private int n = 0;
+        private final List<Document> writeErrors = new ArrayList<>();
+
+        private Result(boolean ordered) {
+            this.ordered = ordered;
+        }
+
+        void add(int count, int inserted, List<BulkWriteError> errors) {
+            n += inserted;
+            for (BulkWriteError error : errors)
+                writeErrors.add(new Document("index", error.getIndex() + offset)
+                        .append("code", error.getCode())
+                        .append("errmsg", error.getMessage()));
+            offset += count;
+        }
+
+        // An ordered insert stops at its first write error, as the server would.
+        boolean isStopped() {
+            return ordered && !writeErrors.isEmpty();
+        }
+
+        Document toDocument() {
+            Document document = new Document("n", n);
+            if (!writeErrors.isEmpty()) document.append("writeErrors", writeErrors);
+            return document.append("ok", 1.0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Merges runs of consecutive pending {@code createIndexes} migrations into one build per collection, so each collection is scanned once however many migrations index it.
+ *
+ * Only idempotent migrations whose command is a plain {@code createIndexes} (no options beyond the collection and its {@code indexes}) are merged.  A run ends at any other migration, or at a migration that names an earlier migration in the run in {@code dependsOn}.  The builds of a run are applied concurrently, one per collection.
+ *
+ * Once a build fails the others are allowed to finish, and the failure of the build holding the lowest version is rethrown.
+ */
+public class IndexBuildConsolidator {
+    private final static String CREATE_INDEXES = "createIndexes";
+    private final static Set<String> PLAIN_FIELDS = Set.of(CREATE_INDEXES, "indexes");
+
+    public static boolean isConsolidatable(Migration migration) {
+        if (!migration.getCommand().isIdempotent()) return false;
+
+        BasicDBObject command = (BasicDBObject) migration.getCommand().getCommand();
+        return !command.isEmpty() &&
+                CREATE_INDEXES.equals(command.keySet().iterator().next()) &&
+                PLAIN_FIELDS.containsAll(command.keySet()) &&
+                command.get(CREATE_INDEXES) instanceof String &&
+                command.get("indexes") instanceof List;
+    }
+
+    // Splits the pending migrations, in order, into runs of consolidatable migrations and single migrations to be applied as they are.
+    public static List<List<Migration>> runs(List<Migration> pending) {
+        List<List<Migration>> runs = new ArrayList<>();
+        List<Migration> run = new ArrayList<>();
+        Set<String> versions = new HashSet<>();
+
+        for (Migration migration : pending) {
+            boolean consolidatable = isConsolidatable(migration);
+            if (!run.isEmpty() && (!consolidatable || migration.getCommand().getDependsOn().stream().anyMatch(versions::contains))) {
+                runs.add(run);
+                run = new ArrayList<>();
+                versions.clear();
+            }
+
+            if (consolidatable) {
+                run.add(migration);
+                versions.add(migration.getVersion());
+            } else {
+                runs.add(List.of(migration));
+            }
+        }
+        if (!run.isEmpty())
+            runs.add(run);
+
+        return runs;
+    }
+
+    // Keyed by collection, in the order each collection is first indexed in the run.
+    public static Map<String, List<Migration>> buildsOf(List<Migration> run) {
+        Map<String, List<Migration>> builds = new LinkedHashMap<>();
+        for (Migration migration : run)
+            builds.computeIfAbsent(collectionOf(migration), c -> new ArrayList<>()).add(migration);
+        return builds;
+    }
+
+    public static String collectionOf(Migration migration) {
+        return ((BasicDBObject) migration.getCommand().getCommand()).getString(CREATE_INDEXES);
+    }
+
+    // One command building every index of the given migrations, which must all index the same collection.
+    public static BasicDBObject merge(List<Migration> build) {
+        List<Object> indexes = new ArrayList<>();
+        for (Migration migration : build)
+            indexes.addAll((List<?>) migration.getCommand().getCommand().get("indexes"));
+
+        return new BasicDBObject(CREATE_INDEXES, collectionOf(build.get(0))).append("indexes", indexes);
+    }
+
+    public void run(List<Migration> run, Consumer<List<Migration>> apply) {
+        Map<String, List<Migration>> builds = buildsOf(run);
+        if (builds.size() == 1) {
+            apply.accept(builds.values().iterator().next());
+            return;
+        }
+
+        ExecutorService executor = executor(builds.size());
+        Map<Migration, Future<?>> futures = new TreeMap<>(Migration.sortByVersionAscending());
+        try {
+            for (List<Migration> build : builds.values())
+                futures.put(build.get(0), executor.submit(() -> apply.accept(build)));
+
+            RuntimeException failure = null;
+            for (Future<?> future : futures.values()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                }
+            }
+            if (failure != null)
+                throw failure;
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building indexes.", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService executor(int threads) {
+        AtomicInteger count = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mongo-trek-index-build-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
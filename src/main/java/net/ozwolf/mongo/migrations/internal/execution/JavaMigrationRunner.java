@@ -0,0 +1,50 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.JavaMigration;
+import org.bson.Document;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs a {@code javaMigration} command by creating the named {@link JavaMigration} class, loaded with the given class loader, and applying it.
+ */
+public class JavaMigrationRunner {
+    private final ClassLoader classLoader;
+
+    public final static String JAVA_MIGRATION = "javaMigration";
+
+    public JavaMigrationRunner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public static boolean isJavaMigration(Map<String, Object> command) {
+        return !command.isEmpty() && JAVA_MIGRATION.equals(command.keySet().iterator().next());
+    }
+
+    public Document run(MongoDatabase database, Map<String, Object> command) {
+        JavaMigration migration = create(command.get(JAVA_MIGRATION));
+        try {
+            return Optional.ofNullable(migration.migrate(database)).orElseGet(() -> new Document("ok", 1.0));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(String.format("Java migration [ %s ] failed: %s", migration.getClass().getName(), e.getMessage()), e);
+        }
+    }
+
+    private JavaMigration create(Object name) {
+        if (!(name instanceof String))
+            throw new IllegalArgumentException(String.format("[ %s ] must name a class.", JAVA_MIGRATION));
+
+        try {
+            Class<?> type = Class.forName((String) name, true, classLoader);
+            if (!JavaMigration.class.isAssignableFrom(type))
+                throw new IllegalArgumentException(String.format("Class [ %s ] is not a [ %s ].", name, JavaMigration.class.getName()));
+            return (JavaMigration) type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(String.format("Java migration [ %s ] could not be created.", name), e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Applies pending migrations concurrently, in dependency order.
+ *
+ * A migration depends on the migrations it names in {@code dependsOn} and on the latest earlier pending migration touching any of the same collections.  A migration whose collections cannot be inferred depends on every earlier pending migration, and every later one depends on it.  Ready migrations are started in version order, at most {@code parallelism} at a time.
+ *
+ * Once a migration fails no further migrations are started; those already running are allowed to finish, and the failure of the lowest failed version is rethrown.
+ */
+public class MigrationScheduler {
+    private final int parallelism;
+    private final boolean virtualThreads;
+
+    public MigrationScheduler(int parallelism, boolean virtualThreads) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return virtualThreadExecutorFactory().isPresent();
+    }
+
+    public void run(List<Migration> pending, Consumer<Migration> apply) {
+        Map<String, Set<Migration>> dependencies = plan(pending);
+
+        Map<String, List<Migration>> dependents = new HashMap<>();
+        Map<String, Integer> waiting = new HashMap<>();
+        Queue<Migration> ready = new PriorityQueue<>(Migration.sortByVersionAscending());
+        for (Migration migration : pending) {
+            Set<Migration> required = dependencies.get(migration.getVersion());
+            waiting.put(migration.getVersion(), required.size());
+            required.forEach(r -> dependents.computeIfAbsent(r.getVersion(), v -> new ArrayList<>()).add(migration));
+            if (required.isEmpty()) ready.add(migration);
+        }
+
+        ExecutorService executor = executor();
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+        Map<Migration, Throwable> failures = new TreeMap<>(Migration.sortByVersionAscending());
+        int running = 0;
+
+        try {
+            while (true) {
+                while (failures.isEmpty() && running < parallelism && !ready.isEmpty()) {
+                    Migration migration = ready.poll();
+                    completion.submit(() -> Outcome.of(migration, apply));
+                    running++;
+                }
+                if (running == 0) break;
+
+                Outcome outcome = completion.take().get();
+                running--;
+
+                if (outcome.failure != null) {
+                    failures.put(outcome.migration, outcome.failure);
+                    continue;
+                }
+
+                for (Migration dependent : dependents.getOrDefault(outcome.migration.getVersion(), Collections.emptyList()))
+                    if (waiting.merge(dependent.getVersion(), -1, Integer::sum) == 0)
+                        ready.add(dependent);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying migrations.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        if (!failures.isEmpty())
+            throw rethrown(failures.values().iterator().next());
+    }
+
+    private static RuntimeException rethrown(Throwable failure) {
+        if (failure instanceof Error) throw (Error) failure;
+        return failure instanceof RuntimeException ? (RuntimeException) failure : new IllegalStateException(failure);
+    }
+
+    // Keyed by version, the pending migrations each pending migration must wait for.
+    static Map<String, Set<Migration>> plan(List<Migration> pending) {
+        List<Migration> ordered = new ArrayList<>(pending);
+        ordered.sort(Migration.sortByVersionAscending());
+
+        Map<String, Migration> byVersion = new HashMap<>();
+        ordered.forEach(m -> byVersion.put(m.getVersion(), m));
+
+        Map<String, Set<Migration>> dependencies = new HashMap<>();
+        Map<String, Migration> lastByCollection = new HashMap<>();
+        List<Migration> earlier = new ArrayList<>();
+        Migration lastBarrier = null;
+
+        for (Migration migration : ordered) {
+            Set<Migration> required = new TreeSet<>(Migration.sortByVersionAscending());
+            for (String version : migration.getCommand().getDependsOn())
+                Optional.ofNullable(byVersion.get(version)).ifPresent(required::add);
+
+            Optional<Set<String>> targets = CommandTargets.of(migration.getCommand().getCommand());
+            if (targets.isPresent()) {
+                if (lastBarrier != null) required.add(lastBarrier);
+                for (String collection : targets.get()) {
+                    Optional.ofNullable(lastByCollection.get(collection)).ifPresent(required::add);
+                    lastByCollection.put(collection, migration);
+                }
+            } else {
+                required.addAll(earlier);
+                lastByCollection.clear();
+                lastBarrier = migration;
+            }
+
+            dependencies.put(migration.getVersion(), required);
+            earlier.add(migration);
+        }
+        return dependencies;
+    }
+
+    private ExecutorService executor() {
+        if (virtualThreads) {
+            Optional<Method> factory = virtualThreadExecutorFactory();
+            if (factory.isPresent()) {
+                try {
+                    return (ExecutorService) factory.get().invoke(null);
+                } catch (ReflectiveOperationException ignored) {
+                    // Fall back to platform threads.
+                }
+            }
+        }
+
+        AtomicInteger count = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "mongo-trek-migration-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Virtual threads are only available from Java 21, so are looked up rather than linked against.
+    private static Optional<Method> virtualThreadExecutorFactory() {
+        try {
+            return Optional.of(Executors.class.getMethod("newVirtualThreadPerTaskExecutor"));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static class Outcome {
+        private final Migration migration;
+        private final Throwable failure;
+
+        private Outcome(Migration migration, Throwable failure) {
+            this.migration = migration;
+            this.failure = failure;
+        }
+
+        // Errors are caught too, so the run still waits for the migrations already running before rethrowing them.
+        static Outcome of(Migration migration, Consumer<Migration> apply) {
+            try {
+                apply.accept(migration);
+                return new Outcome(migration, null);
+            } catch (Throwable e) {
+                return new Outcome(migration, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Splits a multi-document {@code update} or {@code delete} command into {@code _id} ranges that are applied concurrently, and merges the range results back into a single command result.
+ *
+ * Range boundaries are taken from a {@code $bucketAuto} over a {@code $sample} of the collection's {@code _id}s, so each range holds roughly the same number of documents.  Every document falls in exactly one range, so each statement still applies once to each document it matches.  Only commands whose every statement is multi-document ({@code multi: true} updates, {@code limit: 0} deletes) and none of which upsert can be split this way.
+ *
+ * An ordered command stops at the first write error within a range, but the other ranges carry on.  Write error indexes in the merged result refer to the statement in the original command.  As range queries do not cross BSON types, a collection whose {@code _id}s are not all of one type (all numbers counting as one) is not split, and the command is applied as written.
+ */
+public class PartitionedWriteCommand {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PartitionedWriteCommand.class);
+    private final static int SAMPLES_PER_PARTITION = 100;
+
+    private final int parallelism;
+    private final WriteCommandBatcher batcher;
+
+    public PartitionedWriteCommand(int parallelism, WriteCommandBatcher batcher) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Migration parallelism must be at least 1.");
+
+        this.parallelism = parallelism;
+        this.batcher = batcher;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static boolean isPartitionable(Map<String, Object> command) {
+        String field = statementsField(command);
+        if (field == null || !(command.get(field) instanceof List) || ((List<?>) command.get(field)).isEmpty())
+            return false;
+
+        for (Object statement : (List<?>) command.get(field)) {
+            if (!(statement instanceof Map)) return false;
+
+            Map<String, Object> s = (Map<String, Object>) statement;
+            boolean multiDocument = field.equals("updates") ?
+                    Boolean.TRUE.equals(s.get("multi")) && !Boolean.TRUE.equals(s.get("upsert")) :
+                    s.get("limit") instanceof Number && ((Number) s.get("limit")).intValue() == 0;
+            if (!multiDocument) return false;
+        }
+        return true;
+    }
+
+    public Document run(MongoDatabase database, BasicDBObject command) {
+        if (!isPartitionable(command))
+            throw new IllegalArgumentException("[ parallelism ] only applies to multi-document [ update ] and [ delete ] commands that do not upsert.");
+
+        List<Object> boundaries = parallelism == 1 || !hasSingleIdType(database, command) ? List.of() : boundaries(database, command);
+        if (boundaries.isEmpty())
+            return batcher.run(database, command);
+
+        List<BasicDBObject> partitions = partition(command, boundaries);
+        ExecutorService executor = executor(partitions.size());
+        try {
+            List<Callable<Document>> tasks = partitions.stream().map(p -> (Callable<Document>) () -> batcher.run(database, p)).collect(toList());
+            List<Document> results = new ArrayList<>(partitions.size());
+            for (Future<Document> future : executor.invokeAll(tasks))
+                results.add(future.get());
+            return merge(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while applying partitioned [ %s ] of [ %s ].", statementsField(command), command.get(command.keySet().iterator().next())), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Documents sort by the type of their _id first, so the lowest and highest _id are of one type only if every _id is.
+    private static boolean hasSingleIdType(MongoDatabase database, BasicDBObject command) {
+        String collection = command.getString(command.keySet().iterator().next());
+        Object lowest = firstId(database, command, ascending("_id"));
+        Object highest = firstId(database, command, descending("_id"));
+        if (isSameType(lowest, highest))
+            return true;
+
+        LOGGER.warn(String.format("Collection [ %s ] has _ids of more than one type; applying [ %s ] without partitioning.", collection, statementsField(command)));
+        return false;
+    }
+
+    private static Object firstId(MongoDatabase database, BasicDBObject command, Bson sort) {
+        FindIterable<Document> found = database.getCollection(command.getString(command.keySet().iterator().next())).find().projection(include("_id")).sort(sort).limit(1);
+        if (command.get("comment") != null)
+            found = found.comment(command.getString("comment"));
+
+        Document first = found.first();
+        return first == null ? null : first.get("_id");
+    }
+
+    // Range queries compare numbers across their types, but no other types.
+    static boolean isSameType(Object a, Object b) {
+        if (a == null || b == null)
+            return a == b;
+        if (a instanceof Number && b instanceof Number)
+            return true;
+        return Objects.equals(a.getClass(), b.getClass());
+    }
+
+    // Each bucket's upper bound is exclusive, bar the last; the last is left open so documents inserted since sampling are still covered.
+    private List<Object> boundaries(MongoDatabase database, BasicDBObject command) {
+        String collection = command.getString(command.keySet().iterator().next());
+        AggregateIterable<Document> buckets = database.getCollection(collection).aggregate(List.of(
+                new Document("$sample", new Document("size", parallelism * SAMPLES_PER_PARTITION)),
+                new Document("$bucketAuto", new Document("groupBy", "$_id").append("buckets", parallelism))
+        ));
+        if (command.get("comment") != null)
+            buckets = buckets.comment(command.getString("comment"));
+
+        List<Object> boundaries = new ArrayList<>(parallelism);
+        for (Document bucket : buckets)
+            boundaries.add(bucket.get("_id", Document.class).get("max"));
+        if (!boundaries.isEmpty())
+            boundaries.remove(boundaries.size() - 1);
+        return boundaries;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<BasicDBObject> partition(BasicDBObject command, List<Object> boundaries) {
+        String field = statementsField(command);
+        List<BasicDBObject> partitions = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            Document range = new Document();
+            if (i > 0) range.append("$gte", boundaries.get(i - 1));
+            if (i < boundaries.size()) range.append("$lt", boundaries.get(i));
+            Document inRange = new Document("_id", range);
+
+            List<BasicDBObject> statements = new ArrayList<>();
+            for (Object statement : (List<?>) command.get(field)) {
+                BasicDBObject ranged = new BasicDBObject((Map<String, Object>) statement);
+                Object query = ranged.get("q");
+                ranged.put("q", query == null || (query instanceof Map && ((Map<?, ?>) query).isEmpty()) ? inRange : new Document("$and", List.of(query, inRange)));
+                statements.add(ranged);
+            }
+
+            BasicDBObject partition = new BasicDBObject();
+            command.forEach((k, v) -> partition.put(k, k.equals(field) ? statements : v));
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    static Document merge(List<Document> results) {
+        boolean ok = true;
+        int n = 0;
+        Integer nModified = null;
+        List<Document> writeErrors = new ArrayList<>();
+        Object writeConcernError = null;
+        Object clusterTime = null;
+        Object operationTime = null;
+
+        for (Document result : results) {
+            ok &= result.get("ok", Number.class).doubleValue() == 1.0;
+            n += result.get("n", 0);
+            if (result.containsKey("nModified"))
+                nModified = (nModified == null ? 0 : nModified) + result.getInteger("nModified");
+            if (result.containsKey("writeErrors"))
+                writeErrors.addAll(result.getList("writeErrors", Document.class));
+            if (writeConcernError == null)
+                writeConcernError = result.get("writeConcernError");
+            if (result.containsKey("$clusterTime"))
+                clusterTime = result.get("$clusterTime");
+            if (result.containsKey("operationTime"))
+                operationTime = result.get("operationTime");
+        }
+
+        Document document = new Document("n", n);
+        if (nModified != null) document.append("nModified", nModified);
+        if (!writeErrors.isEmpty()) document.append("writeErrors", writeErrors);
+        if (writeConcernError != null) document.append("writeConcernError", writeConcernError);
+        document.append("partitions", results.size());
+        document.append("ok", ok ? 1.0 : 0.0);
+        if (clusterTime != null) document.append("$clusterTime", clusterTime);
+        if (operationTime != null) document.append("operationTime", operationTime);
+        return document;
+    }
+
+    private static String statementsField(Map<String, Object> command) {
+        if (command.isEmpty()) return null;
+
+        switch (command.keySet().iterator().next()) {
+            case "update":
+                return "updates";
+            case "delete":
+                return "deletes";
+            default:
+                return null;
+        }
+    }
+
+    private static ExecutorService executor(int threads) {
+        AtomicInteger count = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mongo-trek-partition-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.bson.Document;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.completion;
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.first;
+import static net.ozwolf.mongo.migrations.internal.util.Publishers.toList;
+
+/**
+ * Applies migration commands over the reactive streams driver, with the same batching of large write commands as {@code MigrationCommand.migrate}.
+ *
+ * Commands that insert from a data file ({@code documentsFrom}) are not supported, as reading the file would block.  A migration's {@code parallelism} is ignored; its command is sent as written.
+ */
+public class ReactiveCommandRunner {
+    private final MongoDatabase database;
+    private final int defaultBatchSize;
+
+    public ReactiveCommandRunner(MongoDatabase database, int defaultBatchSize) {
+        this.database = database;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    public CompletionStage<Document> migrate(MigrationCommand migration) {
+        BasicDBObject command = (BasicDBObject) migration.getCommand();
+
+        if (DataFileInsert.isDataFileInsert(command))
+            return CompletableFuture.failedFuture(new UnsupportedOperationException(String.format("Migration [ %s ] inserts from a data file, which is not supported by the reactive driver.", migration.getVersion())));
+
+        if (JavaMigrationRunner.isJavaMigration(command))
+            return CompletableFuture.failedFuture(new UnsupportedOperationException(String.format("Migration [ %s ] is a Java migration, which is not supported by the reactive driver.", migration.getVersion())));
+
+        if (CheckpointedBatchUpdate.isBatchUpdate(command))
+            return CompletableFuture.failedFuture(new UnsupportedOperationException(String.format("Migration [ %s ] is a checkpointed batch update, which is not supported by the reactive driver.", migration.getVersion())));
+
+        WriteCommandBatcher batcher = new WriteCommandBatcher(migration.getBatchSize().orElse(defaultBatchSize));
+        return ensureMapReduceCollection(command)
+                .thenCompose(v -> batcher.runAsync(this::runCommand, command))
+                .thenApply(MigrationCommand::resultOf);
+    }
+
+    private CompletionStage<Document> runCommand(BasicDBObject command) {
+        return first(database.runCommand(command))
+                .thenApply(r -> r.orElseThrow(() -> new IllegalStateException(String.format("Command [ %s ] returned no result.", command.keySet().iterator().next()))));
+    }
+
+    private CompletionStage<Void> ensureMapReduceCollection(BasicDBObject command) {
+        String collection = command.getString("mapReduce", null);
+        if (collection == null) return CompletableFuture.completedFuture(null);
+
+        return toList(database.listCollectionNames())
+                .thenCompose(names -> names.stream().anyMatch(c -> c.equalsIgnoreCase(collection)) ?
+                        CompletableFuture.completedFuture(null) :
+                        completion(database.createCollection(collection)));
+    }
+}
@@ -0,0 +1,206 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoDatabase;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Splits {@code insert}, {@code update} and {@code delete} commands that are too large to send in one go into batches, and merges the batch results back into a single command result.
+ *
+ * A batch holds at most the configured number of documents (never more than the server's {@code maxWriteBatchSize}) and stays under the 16MB command limit.  Ordered commands stop at the first batch with write errors, as the server would; unordered commands ({@code ordered: false}) carry on.  Write error and upsert indexes in the merged result refer to the position in the original command.
+ */
+public class WriteCommandBatcher {
+    public final static int MAX_WRITE_BATCH_SIZE = 100_000;
+
+    // Leaves room for the command envelope (name, options, session and cluster time fields) under the 16MB limit.
+    private final static int MAX_BATCH_BYTES = 16 * 1024 * 1024 - 16 * 1024;
+    private final static int ELEMENT_OVERHEAD = 8;
+
+    private final static Codec<BasicDBObject> CODEC = MongoClientSettings.getDefaultCodecRegistry().get(BasicDBObject.class);
+
+    private final int batchSize;
+    private final int batchBytes;
+
+    public WriteCommandBatcher(int batchSize) {
+        this(batchSize, MAX_BATCH_BYTES);
+    }
+
+    WriteCommandBatcher(int batchSize, int batchBytes) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Write batch size must be at least 1.");
+
+        this.batchSize = Math.min(batchSize, MAX_WRITE_BATCH_SIZE);
+        this.batchBytes = batchBytes;
+    }
+
+    public Document run(MongoDatabase database, BasicDBObject command) {
+        List<BasicDBObject> batches = split(command);
+        if (batches.size() == 1)
+            return database.runCommand(batches.get(0));
+
+        boolean ordered = command.getBoolean("ordered", true);
+        Result result = new Result();
+        for (BasicDBObject batch : batches) {
+            Document batchResult = database.runCommand(batch);
+            result.add(batchResult, listOf(batch).size());
+            if (ordered && batchResult.containsKey("writeErrors"))
+                break;
+        }
+        return result.toDocument();
+    }
+
+    // As run, but each batch is sent through an asynchronous command runner once the previous batch has completed.
+    public CompletionStage<Document> runAsync(Function<BasicDBObject, CompletionStage<Document>> runner, BasicDBObject command) {
+        List<BasicDBObject> batches = split(command);
+        if (batches.size() == 1)
+            return runner.apply(batches.get(0));
+
+        boolean ordered = command.getBoolean("ordered", true);
+        Result result = new Result();
+        return runBatches(runner, batches.iterator(), ordered, result).thenApply(v -> result.toDocument());
+    }
+
+    private static CompletionStage<Void> runBatches(Function<BasicDBObject, CompletionStage<Document>> runner, Iterator<BasicDBObject> batches, boolean ordered, Result result) {
+        if (!batches.hasNext())
+            return CompletableFuture.completedFuture(null);
+
+        BasicDBObject batch = batches.next();
+        return runner.apply(batch).thenCompose(batchResult -> {
+            result.add(batchResult, listOf(batch).size());
+            if (ordered && batchResult.containsKey("writeErrors"))
+                return CompletableFuture.completedFuture(null);
+            return runBatches(runner, batches, ordered, result);
+        });
+    }
+
+    List<BasicDBObject> split(BasicDBObject command) {
+        String field = arrayField(command);
+        if (field == null || !(command.get(field) instanceof List))
+            return List.of(command);
+
+        List<?> elements = listOf(command, field);
+        if (elements.size() <= batchSize && sizeOf(command) <= batchBytes)
+            return List.of(command);
+
+        List<BasicDBObject> batches = new ArrayList<>();
+        List<Object> batch = new ArrayList<>();
+        long bytes = 0;
+        for (Object element : elements) {
+            int size = sizeOf(element) + ELEMENT_OVERHEAD;
+            if (!batch.isEmpty() && (batch.size() >= batchSize || bytes + size > batchBytes)) {
+                batches.add(withElements(command, field, batch));
+                batch = new ArrayList<>();
+                bytes = 0;
+            }
+            batch.add(element);
+            bytes += size;
+        }
+        if (!batch.isEmpty())
+            batches.add(withElements(command, field, batch));
+
+        return batches;
+    }
+
+    private static String arrayField(BasicDBObject command) {
+        if (command.isEmpty()) return null;
+
+        switch (command.keySet().iterator().next()) {
+            case "insert":
+                return "documents";
+            case "update":
+                return "updates";
+            case "delete":
+                return "deletes";
+            default:
+                return null;
+        }
+    }
+
+    private static List<?> listOf(BasicDBObject batch) {
+        return listOf(batch, arrayField(batch));
+    }
+
+    private static List<?> listOf(BasicDBObject command, String field) {
+        return (List<?>) command.get(field);
+    }
+
+    private static BasicDBObject withElements(BasicDBObject command, String field, List<Object> elements) {
+        BasicDBObject batch = new BasicDBObject();
+        command.forEach((k, v) -> batch.put(k, k.equals(field) ? elements : v));
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int sizeOf(Object value) {
+        BasicDBObject document = value instanceof BasicDBObject ?
+                (BasicDBObject) value :
+                new BasicDBObject(value instanceof Map ? (Map<String, Object>) value : Map.of("v", value));
+        return new RawBsonDocument(document, CODEC).getByteBuffer().remaining();
+    }
+
+    private static class Result {
+        private int offset = 0;
+        private boolean ok = true;
+        private int n = 0;
+        private Integer nModified;
+        private final List<Document> upserted = new ArrayList<>();
+        private final List<Document> writeErrors = new ArrayList<>();
+        private Object writeConcernError;
+        private Object clusterTime;
+        private Object operationTime;
+
+        void add(Document result, int count) {
+            ok &= result.get("ok", Number.class).doubleValue() == 1.0;
+            n += result.get("n", 0);
+            if (result.containsKey("nModified"))
+                nModified = (nModified == null ? 0 : nModified) + result.getInteger("nModified");
+
+            upserted.addAll(offset(result.getList("upserted", Document.class)));
+            writeErrors.addAll(offset(result.getList("writeErrors", Document.class)));
+
+            if (writeConcernError == null)
+                writeConcernError = result.get("writeConcernError");
+            if (result.containsKey("$clusterTime"))
+                clusterTime = result.get("$clusterTime");
+            if (result.containsKey("operationTime"))
+                operationTime = result.get("operationTime");
+
+            offset += count;
+        }
+
+        Document toDocument() {
+            Document document = new Document("n", n);
+            if (nModified != null) document.append("nModified", nModified);
+            if (!upserted.isEmpty()) document.append("upserted", upserted);
+            if (!writeErrors.isEmpty()) document.append("writeErrors", writeErrors);
+            if (writeConcernError != null) document.append("writeConcernError", writeConcernError);
+            document.append("ok", ok ? 1.0 : 0.0);
+            if (clusterTime != null) document.append("$clusterTime", clusterTime);
+            if (operationTime != null) document.append("operationTime", operationTime);
+            return document;
+        }
+
+        private List<Document> offset(List<Document> entries) {
+            if (entries == null) return List.of();
+
+            List<Document> offset = new ArrayList<>(entries.size());
+            for (Document entry : entries) {
+                Document copy = new Document(entry);
+                copy.put("index", entry.getInteger("index") + this.offset);
+                offset.add(copy);
+            }
+            return offset;
+        }
+    }
+}
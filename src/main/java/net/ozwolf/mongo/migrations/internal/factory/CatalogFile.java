@@ -0,0 +1,38 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CatalogFile {
+    private final CatalogSource source;
+    private final List<MigrationCommand> migrations = new ArrayList<>();
+    private final List<String> includes = new ArrayList<>();
+    private String schemaVersionCollection;
+
+    CatalogFile(CatalogSource source) {
+        this.source = source;
+    }
+
+    CatalogSource getSource() {
+        return source;
+    }
+
+    String getSchemaVersionCollection() {
+        return schemaVersionCollection;
+    }
+
+    List<MigrationCommand> getMigrations() {
+        return migrations;
+    }
+
+    List<String> getIncludes() {
+        return includes;
+    }
+
+    void setSchemaVersionCollection(String schemaVersionCollection) {
+        if (this.schemaVersionCollection == null)
+            this.schemaVersionCollection = schemaVersionCollection;
+    }
+}
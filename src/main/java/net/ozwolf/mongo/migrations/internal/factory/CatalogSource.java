@@ -0,0 +1,120 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+abstract class CatalogSource {
+    private final static List<String> EXTENSIONS = List.of(".yml", ".yaml", ".json");
+
+    abstract String getName();
+
+    abstract InputStream open() throws IOException;
+
+    // A URL that stays readable after any file system the source was read through has been closed, for resolving data files at migration time.
+    abstract URL toUrl() throws IOException;
+
+    abstract CatalogSource resolve(String relative) throws IOException;
+
+    // Directories expand to every catalog file beneath them, in path order.
+    abstract List<CatalogSource> expand() throws IOException;
+
+    static CatalogSource of(Path path) {
+        return new PathSource(path);
+    }
+
+    static CatalogSource of(URL url) {
+        return new UrlSource(url);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static class PathSource extends CatalogSource {
+        private final Path path;
+
+        private PathSource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        String getName() {
+            return path.toUri().toString();
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        URL toUrl() throws IOException {
+            return path.toUri().toURL();
+        }
+
+        @Override
+        CatalogSource resolve(String relative) {
+            return new PathSource(path.resolveSibling(relative).normalize());
+        }
+
+        @Override
+        List<CatalogSource> expand() throws IOException {
+            if (!Files.isDirectory(path)) return Collections.singletonList(this);
+
+            try (Stream<Path> files = Files.walk(path)) {
+                return files.filter(Files::isRegularFile)
+                        .filter(PathSource::isCatalogFile)
+                        .sorted()
+                        .map(PathSource::new)
+                        .collect(toList());
+            }
+        }
+
+        private static boolean isCatalogFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return EXTENSIONS.stream().anyMatch(name::endsWith);
+        }
+    }
+
+    private static class UrlSource extends CatalogSource {
+        private final URL url;
+
+        private UrlSource(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        String getName() {
+            return url.toString();
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return url.openStream();
+        }
+
+        @Override
+        URL toUrl() {
+            return url;
+        }
+
+        @Override
+        CatalogSource resolve(String relative) throws IOException {
+            return new UrlSource(new URL(url, relative));
+        }
+
+        @Override
+        List<CatalogSource> expand() {
+            return Collections.singletonList(this);
+        }
+    }
+}
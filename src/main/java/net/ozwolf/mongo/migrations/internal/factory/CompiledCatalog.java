@@ -0,0 +1,160 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoClientSettings;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DocumentCodec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Reads and writes the compiled (binary) form of a migrations catalog.
+ *
+ * The layout is a 4 byte magic ({@code MTRK}), a 4 byte format version, then a BSON header document holding the schema version collection, the fingerprint of the source catalog, the {@link SourceIdentity} of the source files and an index of each migration's version, description, author, checksum and the offset and length of its command.  The commands follow as concatenated BSON documents, already interpolated and validated, and are only decoded when first requested.
+ */
+public class CompiledCatalog {
+    public final static String EXTENSION = ".mtc";
+
+    private final static byte[] MAGIC = "MTRK".getBytes(StandardCharsets.US_ASCII);
+    private final static int FORMAT_VERSION = 1;
+    private final static int PREAMBLE_LENGTH = MAGIC.length + Integer.BYTES;
+
+    private final static Codec<BasicDBObject> COMMAND_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(BasicDBObject.class);
+    private final static DocumentCodec DOCUMENT_CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+    // The base is the location the compiled catalog will be read from; command origins beneath it are written relative to it so data files still resolve once the catalog is packaged.
+    public static void write(MigrationCommands commands, String base, SourceIdentity source, OutputStream output) throws IOException {
+        List<Document> index = new ArrayList<>(commands.getMigrations().size());
+        List<RawBsonDocument> bodies = new ArrayList<>(commands.getMigrations().size());
+
+        int offset = 0;
+        for (MigrationCommand command : commands.getMigrations()) {
+            RawBsonDocument body = new RawBsonDocument((BasicDBObject) command.getCommand(), COMMAND_CODEC);
+            int length = body.getByteBuffer().remaining();
+
+            index.add(new Document("version", command.getVersion())
+                    .append("description", command.getDescription())
+                    .append("author", command.getAuthor())
+                    .append("checksum", command.getChecksum())
+                    .append("idempotent", command.isIdempotent())
+                    .append("batchSize", command.getBatchSize().orElse(null))
+                    .append("parallelism", command.getParallelism().orElse(null))
+                    .append("origin", command.getOrigin().map(o -> relativize(base, o)).orElse(null))
+                    .append("dependsOn", command.getDependsOn())
+                    .append("offset", offset)
+                    .append("length", length));
+            bodies.add(body);
+            offset += length;
+        }
+
+        Document header = new Document("collectionName", commands.getSchemaVersionCollection().orElse(null))
+                .append("fingerprint", commands.getFingerprint())
+                .append("source", new Document("roots", source.getRoots()).append("digest", source.getDigest()))
+                .append("migrations", index);
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.write(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        writeBson(data, new RawBsonDocument(header, DOCUMENT_CODEC));
+        for (RawBsonDocument body : bodies)
+            writeBson(data, body);
+        data.flush();
+    }
+
+    // Returns empty if the source is not a compiled catalog of a format version this library reads, so the caller can fall back to the source catalog.
+    public static Optional<MigrationCommands> read(InputStream input, URL location) throws IOException {
+        return read(input.readAllBytes(), location);
+    }
+
+    public static Optional<MigrationCommands> read(byte[] bytes, URL location) throws IOException {
+        if (!isCompiled(bytes)) return Optional.empty();
+
+        RawBsonDocument header = headerOf(bytes);
+        int bodyStart = PREAMBLE_LENGTH + header.getByteBuffer().remaining();
+
+        List<MigrationCommand> migrations = new ArrayList<>();
+        for (BsonValue value : header.getArray("migrations")) {
+            BsonDocument entry = value.asDocument();
+            int offset = bodyStart + entry.getInt32("offset").getValue();
+            int length = entry.getInt32("length").getValue();
+
+            migrations.add(new MigrationCommand(
+                    entry.getString("version").getValue(),
+                    entry.getString("description").getValue(),
+                    entry.getString("author").getValue(),
+                    entry.isString("checksum") ? entry.getString("checksum").getValue() : null,
+                    () -> new RawBsonDocument(bytes, offset, length).decode(DOCUMENT_CODEC)
+            ).idempotent(!entry.isBoolean("idempotent") || entry.getBoolean("idempotent").getValue())
+                    .batchSize(entry.isInt32("batchSize") ? entry.getInt32("batchSize").getValue() : null)
+                    .parallelism(entry.isInt32("parallelism") ? entry.getInt32("parallelism").getValue() : null)
+                    .origin(entry.isString("origin") ? new URL(location, entry.getString("origin").getValue()) : null)
+                    .dependsOn(entry.isArray("dependsOn") ? entry.getArray("dependsOn").stream().map(v -> v.asString().getValue()).collect(toList()) : null));
+        }
+
+        String collectionName = header.isString("collectionName") ? header.getString("collectionName").getValue() : null;
+        String fingerprint = header.isString("fingerprint") ? header.getString("fingerprint").getValue() : null;
+        return Optional.of(new MigrationCommands(collectionName, migrations, fingerprint));
+    }
+
+    // Empty for a catalog compiled without a source identity, which cannot be checked against its source.
+    static Optional<SourceIdentity> sourceOf(byte[] bytes) {
+        if (!isCompiled(bytes)) return Optional.empty();
+
+        BsonDocument header = headerOf(bytes);
+        if (!header.isDocument("source")) return Optional.empty();
+
+        BsonDocument source = header.getDocument("source");
+        List<String> roots = source.getArray("roots").stream().map(v -> v.asString().getValue()).collect(toList());
+        return Optional.of(new SourceIdentity(roots, source.getString("digest").getValue()));
+    }
+
+    // The directory a migrations file's compiled catalog sits in, given the migrations file (or directory) location.
+    public static String baseOf(URL migrationsFile) {
+        String location = StringUtils.removeEnd(migrationsFile.toString(), "/");
+        return location.substring(0, location.lastIndexOf('/') + 1);
+    }
+
+    static String relativize(String base, URL origin) {
+        String location = origin.toString();
+        return location.startsWith(base) ? location.substring(base.length()) : location;
+    }
+
+    private static RawBsonDocument headerOf(byte[] bytes) {
+        int headerLength = ByteBuffer.wrap(bytes, PREAMBLE_LENGTH, Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        return new RawBsonDocument(bytes, PREAMBLE_LENGTH, headerLength);
+    }
+
+    private static boolean isCompiled(byte[] bytes) {
+        if (bytes.length < PREAMBLE_LENGTH + Integer.BYTES) return false;
+        for (int i = 0; i < MAGIC.length; i++)
+            if (bytes[i] != MAGIC[i]) return false;
+
+        return ByteBuffer.wrap(bytes, MAGIC.length, Integer.BYTES).getInt() == FORMAT_VERSION;
+    }
+
+    private static void writeBson(DataOutputStream output, RawBsonDocument document) throws IOException {
+        ByteBuffer buffer = document.getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        output.write(bytes);
+    }
+}
@@ -2,42 +2,288 @@ package net.ozwolf.mongo.migrations.internal.factory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import net.ozwolf.mongo.migrations.exception.DuplicateVersionException;
 import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import net.ozwolf.mongo.migrations.internal.jfr.CatalogParseEvent;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.Charset;
-import java.util.Optional;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class MigrationCommandsFactory {
     private final static ObjectMapper MAPPER = new YAMLMapper();
+    private final static Logger LOGGER = LoggerFactory.getLogger(MigrationCommandsFactory.class);
+
+    private final MigrationCommandsParser parser;
+    private final ForkJoinPool pool;
+
+    public MigrationCommandsFactory() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MigrationCommandsFactory(ForkJoinPool pool) {
+        this(pool, new MigrationCommandsParser(MAPPER));
+    }
+
+    MigrationCommandsFactory(ForkJoinPool pool, MigrationCommandsParser parser) {
+        this.pool = pool;
+        this.parser = parser;
+    }
 
     public MigrationCommands getCommands(String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
+        CatalogParseEvent event = new CatalogParseEvent();
+        event.begin();
+
+        byte[] compiledCatalog = getCompiledCatalog(migrationsFile, classLoader).orElse(null);
+        Optional<MigrationCommands> compiled = compiledCatalog == null ? Optional.empty() : readCompiled(compiledCatalog, migrationsFile, classLoader);
+        MigrationCommands commands;
+        if (compiled.isEmpty()) {
+            commands = getSourceCommands(migrationsFile, classLoader);
+        } else if (migrationsFile.endsWith(CompiledCatalog.EXTENSION) || !hasSource(migrationsFile, classLoader) || isCurrent(compiledCatalog, migrationsFile, classLoader)) {
+            commands = compiled.get();
+        } else {
+            // A compiled catalog left behind after the source was edited would silently skip the new migrations.
+            LOGGER.warn(String.format("Compiled catalog for [ %s ] does not match its source; using the source.", migrationsFile));
+            compiled = Optional.empty();
+            commands = getSourceCommands(migrationsFile, classLoader);
+        }
+        commands.getMigrations().forEach(c -> c.classLoader(classLoader));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.migrationsFile = migrationsFile;
+            event.compiled = compiled.isPresent();
+            event.migrations = commands.getMigrations().size();
+            event.commit();
+        }
+        return commands;
+    }
+
+    // Compiles the source catalog, ignoring any existing compiled catalog, after checking it for duplicate versions.
+    public void compile(String migrationsFile, ClassLoader classLoader, OutputStream output) throws MongoTrekFailureException {
+        List<URL> root = new ArrayList<>(1);
+        List<CatalogSource> expanded = new ArrayList<>();
+        MigrationCommands commands = getSourceCommands(migrationsFile, classLoader, root, expanded);
+
+        Set<String> versions = new HashSet<>();
+        for (MigrationCommand command : commands.getMigrations())
+            if (!versions.add(command.getVersion()))
+                throw new MongoTrekFailureException(new DuplicateVersionException(new Migration(command)));
+
+        try {
+            String base = CompiledCatalog.baseOf(root.get(0));
+            CompiledCatalog.write(commands, base, SourceIdentity.of(expanded, base), output);
+        } catch (IOException | RuntimeException e) {
+            throw new MongoTrekFailureException(e);
+        }
+    }
+
+    private static boolean hasSource(String migrationsFile, ClassLoader classLoader) {
+        return classLoader.getResource(migrationsFile) != null || new File(migrationsFile).exists();
+    }
+
+    // The source is checked against the identity recorded by the compiler, reading its files' bytes but never parsing them.
+    private static boolean isCurrent(byte[] compiled, String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
+        Optional<SourceIdentity> identity = CompiledCatalog.sourceOf(compiled);
+        if (identity.isEmpty()) return false;
+
+        List<FileSystem> opened = new ArrayList<>();
+        try {
+            return locate(migrationsFile, classLoader, opened).map(s -> identity.get().matches(s)).orElse(false);
+        } finally {
+            opened.forEach(MigrationCommandsFactory::closeQuietly);
+        }
+    }
+
+    private static Optional<URL> compiledUrlOf(String migrationsFile, ClassLoader classLoader) throws IOException {
+        String compiledFile = migrationsFile.endsWith(CompiledCatalog.EXTENSION) ? migrationsFile : StringUtils.removeEnd(migrationsFile, "/") + CompiledCatalog.EXTENSION;
+        URL url = classLoader.getResource(compiledFile);
+        File file = new File(compiledFile);
+        if (url == null && !file.isFile()) return Optional.empty();
+        return Optional.of(url != null ? url : file.toURI().toURL());
+    }
+
+    private static Optional<byte[]> getCompiledCatalog(String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
+        try {
+            Optional<URL> url = compiledUrlOf(migrationsFile, classLoader);
+            if (url.isEmpty()) return Optional.empty();
+
+            try (InputStream source = url.get().openStream()) {
+                return Optional.of(source.readAllBytes());
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new MongoTrekFailureException(e);
+        }
+    }
+
+    private static Optional<MigrationCommands> readCompiled(byte[] bytes, String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
         try {
-            String source = load(migrationsFile, classLoader).orElseThrow(() -> new MongoTrekFailureException(new IllegalArgumentException(String.format("Could not find migrations file [ %s ] on classpath or file system.", migrationsFile))));
-            return MAPPER.readValue(source, MigrationCommands.class);
-        } catch (IOException e) {
+            return CompiledCatalog.read(bytes, compiledUrlOf(migrationsFile, classLoader).orElseThrow());
+        } catch (IOException | RuntimeException e) {
             throw new MongoTrekFailureException(e);
         }
     }
 
-    private static Optional<String> load(String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
+    private MigrationCommands getSourceCommands(String migrationsFile, ClassLoader classLoader) throws MongoTrekFailureException {
+        return getSourceCommands(migrationsFile, classLoader, new ArrayList<>(1), new ArrayList<>());
+    }
+
+    // The URL of the located migrations file is added to root, in the same form as the origins of the commands read from it, and each source expanded to find catalog files to expanded.
+    private MigrationCommands getSourceCommands(String migrationsFile, ClassLoader classLoader, List<URL> root, List<CatalogSource> expanded) throws MongoTrekFailureException {
+        List<FileSystem> opened = new ArrayList<>();
+        try {
+            CatalogSource source = locate(migrationsFile, classLoader, opened).orElseThrow(() -> new MongoTrekFailureException(new IllegalArgumentException(String.format("Could not find migrations file [ %s ] on classpath or file system.", migrationsFile))));
+            root.add(source.toUrl());
+            return validateDependencies(merge(parseAll(source, expanded)));
+        } catch (IOException | IllegalStateException | UncheckedIOException | DuplicateVersionException e) {
+            throw new MongoTrekFailureException(e);
+        } finally {
+            opened.forEach(MigrationCommandsFactory::closeQuietly);
+        }
+    }
+
+    // Parses the catalog files concurrently, then any files they include, until no new files are found.
+    private List<CatalogFile> parseAll(CatalogSource root, List<CatalogSource> expanded) throws IOException {
+        List<CatalogFile> parsed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        expanded.add(root);
+        List<CatalogSource> next = new ArrayList<>(root.expand());
+
+        while (!next.isEmpty()) {
+            next.removeIf(s -> !seen.add(s.getName()));
+
+            List<CatalogFile> files = parse(next);
+            parsed.addAll(files);
+
+            next = new ArrayList<>();
+            for (CatalogFile file : files)
+                for (String include : file.getIncludes()) {
+                    CatalogSource included = file.getSource().resolve(include);
+                    expanded.add(included);
+                    next.addAll(included.expand());
+                }
+        }
+
+        return parsed;
+    }
+
+    private List<CatalogFile> parse(List<CatalogSource> sources) throws IOException {
+        if (sources.size() == 1)
+            return Collections.singletonList(parser.parse(sources.get(0)));
+
+        List<ForkJoinTask<CatalogFile>> tasks = new ArrayList<>(sources.size());
+        for (CatalogSource source : sources)
+            tasks.add(pool.submit(() -> parser.parse(source)));
+
+        List<CatalogFile> files = new ArrayList<>(sources.size());
+        try {
+            for (ForkJoinTask<CatalogFile> task : tasks)
+                files.add(task.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing migrations files.", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(t -> t.cancel(true));
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return files;
+    }
+
+    private static MigrationCommands merge(List<CatalogFile> files) throws DuplicateVersionException {
+        if (files.size() == 1)
+            return new MigrationCommands(files.get(0).getSchemaVersionCollection(), files.get(0).getMigrations());
+
+        String schemaVersionCollection = null;
+        List<MigrationCommand> migrations = new ArrayList<>();
+        Map<String, CatalogSource> owners = new HashMap<>();
+
+        for (CatalogFile file : files) {
+            if (schemaVersionCollection == null)
+                schemaVersionCollection = file.getSchemaVersionCollection();
+
+            for (MigrationCommand command : file.getMigrations()) {
+                CatalogSource owner = owners.putIfAbsent(command.getVersion(), file.getSource());
+                if (owner != null && owner != file.getSource())
+                    throw new DuplicateVersionException(command.getVersion(), owner.getName(), file.getSource().getName());
+                migrations.add(command);
+            }
+        }
+
+        return new MigrationCommands(schemaVersionCollection, migrations);
+    }
+
+    // A migration may only depend on an earlier migration in the same catalog, so dependencies can never form a cycle.
+    private static MigrationCommands validateDependencies(MigrationCommands commands) {
+        Map<String, MigrationCommand> byVersion = new HashMap<>();
+        commands.getMigrations().forEach(c -> byVersion.putIfAbsent(c.getVersion(), c));
+
+        for (MigrationCommand command : commands.getMigrations()) {
+            for (String version : command.getDependsOn()) {
+                MigrationCommand dependency = byVersion.get(version);
+                if (dependency == null)
+                    throw new IllegalStateException(String.format("Migration [ %s ] depends on unknown migration [ %s ].", command.getVersion(), version));
+                if (dependency.getVersionKey().compareTo(command.getVersionKey()) >= 0)
+                    throw new IllegalStateException(String.format("Migration [ %s ] depends on migration [ %s ], which is not an earlier version.", command.getVersion(), version));
+            }
+        }
+        return commands;
+    }
+
+    private static Optional<CatalogSource> locate(String migrationsFile, ClassLoader classLoader, List<FileSystem> opened) throws MongoTrekFailureException {
         URL url = classLoader.getResource(migrationsFile);
         File file = new File(migrationsFile);
         try {
             if (url != null) {
-                return Optional.ofNullable(IOUtils.toString(url.openStream(), Charset.defaultCharset()));
+                return Optional.of(fromClasspath(url, opened));
             } else if (file.exists()) {
-                return Optional.ofNullable(FileUtils.readFileToString(file, Charset.defaultCharset()));
+                return Optional.of(CatalogSource.of(file.toPath()));
             } else {
                 return Optional.empty();
             }
-        } catch (IOException e) {
+        } catch (IOException | URISyntaxException e) {
             throw new MongoTrekFailureException(e);
         }
     }
+
+    // Classpath resources in directories or plain jars are read as paths so directories can be listed; anything else is read as a single URL.
+    private static CatalogSource fromClasspath(URL url, List<FileSystem> opened) throws IOException, URISyntaxException {
+        URI uri = url.toURI();
+        if (uri.getScheme().equals("file"))
+            return CatalogSource.of(Paths.get(uri));
+
+        if (uri.getScheme().equals("jar")) {
+            try {
+                FileSystem fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
+                opened.add(fileSystem);
+                return CatalogSource.of(fileSystem.provider().getPath(uri));
+            } catch (FileSystemAlreadyExistsException e) {
+                return CatalogSource.of(Paths.get(uri));
+            } catch (ProviderNotFoundException | IllegalArgumentException e) {
+                return CatalogSource.of(url);
+            }
+        }
+
+        return CatalogSource.of(url);
+    }
+
+    private static void closeQuietly(FileSystem fileSystem) {
+        try {
+            fileSystem.close();
+        } catch (IOException ignored) {
+        }
+    }
 }
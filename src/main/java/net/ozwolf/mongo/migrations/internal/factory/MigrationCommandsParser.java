@@ -0,0 +1,161 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.util.ChecksumUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reads a migrations file from the parser token stream.  Multi-document YAML files are supported, as is an {@code include} list of further migrations files or directories.
+ *
+ * The {@code version}, {@code description} and {@code author} of each migration are read eagerly, but each {@code command} is only buffered as its raw token sequence.  The command is deserialized (and interpolated) by the {@code MigrationCommand} the first time it is requested, which in practice is only for pending migrations.
+ */
+class MigrationCommandsParser {
+    private final ObjectMapper mapper;
+
+    private final static TypeReference<Map<String, Object>> COMMAND_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    MigrationCommandsParser(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    CatalogFile parse(CatalogSource source) throws IOException {
+        try (InputStream stream = source.open(); JsonParser parser = mapper.getFactory().createParser(stream)) {
+            if (parser.nextToken() == null)
+                throw new JsonParseException(parser, String.format("Migrations file [ %s ] has no content.", source));
+
+            CatalogFile file = new CatalogFile(source);
+
+            // A YAML file may hold several documents, each of which is read as part of the same catalog file.
+            do {
+                if (parser.currentToken() != JsonToken.VALUE_NULL)
+                    readDocument(parser, file);
+            } while (parser.nextToken() != null);
+
+            return file;
+        }
+    }
+
+    private void readDocument(JsonParser parser, CatalogFile file) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "migrations file");
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if (value == JsonToken.VALUE_NULL) continue;
+
+            switch (field) {
+                case "collectionName":
+                    file.setSchemaVersionCollection(parser.getValueAsString());
+                    break;
+                case "migrations":
+                    expect(parser, JsonToken.START_ARRAY, "migrations");
+                    while (parser.nextToken() != JsonToken.END_ARRAY)
+                        file.getMigrations().add(readCommand(parser).origin(file.getSource().toUrl()));
+                    break;
+                case "include":
+                    expect(parser, JsonToken.START_ARRAY, "include");
+                    while (parser.nextToken() != JsonToken.END_ARRAY)
+                        file.getIncludes().add(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private MigrationCommand readCommand(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "migration");
+
+        String version = null;
+        String description = null;
+        String author = null;
+        boolean idempotent = true;
+        Integer batchSize = null;
+        Integer parallelism = null;
+        List<String> dependsOn = new ArrayList<>();
+        TokenBuffer command = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "version":
+                    version = parser.getValueAsString();
+                    break;
+                case "description":
+                    description = parser.getValueAsString();
+                    break;
+                case "author":
+                    author = parser.getValueAsString();
+                    break;
+                case "idempotent":
+                    idempotent = parser.getValueAsBoolean(true);
+                    break;
+                case "batchSize":
+                    if (value != JsonToken.VALUE_NULL) batchSize = parser.getValueAsInt();
+                    break;
+                case "parallelism":
+                    if (value != JsonToken.VALUE_NULL) parallelism = parser.getValueAsInt();
+                    break;
+                case "dependsOn":
+                    if (value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY)
+                            dependsOn.add(parser.getValueAsString());
+                    } else if (value != JsonToken.VALUE_NULL) {
+                        dependsOn.add(parser.getValueAsString());
+                    }
+                    break;
+                case "command":
+                    if (value == JsonToken.VALUE_NULL) break;
+                    expect(parser, JsonToken.START_OBJECT, "command");
+                    command = new TokenBuffer(parser);
+                    command.copyCurrentStructure(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (command == null)
+            return new MigrationCommand(version, description, author, null, null);
+
+        return new MigrationCommand(version, description, author, checksum(command), materializer(version, command)).idempotent(idempotent).batchSize(batchSize).parallelism(parallelism).dependsOn(dependsOn);
+    }
+
+    private String checksum(TokenBuffer command) throws IOException {
+        try (JsonParser parser = command.asParser(mapper)) {
+            return ChecksumUtils.checksum(parser);
+        }
+    }
+
+    private Supplier<Map<String, Object>> materializer(String version, TokenBuffer command) {
+        return () -> {
+            try (JsonParser parser = command.asParser(mapper)) {
+                return mapper.readValue(parser, COMMAND_TYPE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not read command for migration [ %s ]", version), e);
+            }
+        };
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, String element) throws JsonParseException {
+        if (parser.currentToken() != token)
+            throw new JsonParseException(parser, String.format("Expected %s to be %s but found %s.", element, token, parser.currentToken()));
+    }
+}
@@ -0,0 +1,75 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import net.ozwolf.mongo.migrations.internal.util.ChecksumUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Identifies the source files a catalog was compiled from, so a compiled catalog can be checked against its source without parsing it.
+ *
+ * The identity holds the sources that were expanded to find the catalog files (the migrations file and each included file or directory), relative to the catalog's directory, and a digest of the relative name, size and raw bytes of every file they expand to.  Editing, adding or removing a catalog file changes the digest.
+ */
+class SourceIdentity {
+    private final List<String> roots;
+    private final String digest;
+
+    SourceIdentity(List<String> roots, String digest) {
+        this.roots = roots;
+        this.digest = digest;
+    }
+
+    List<String> getRoots() {
+        return roots;
+    }
+
+    String getDigest() {
+        return digest;
+    }
+
+    // The roots are the sources as they were expanded while parsing, in order.
+    static SourceIdentity of(List<CatalogSource> roots, String base) throws IOException {
+        List<String> names = new ArrayList<>(roots.size());
+        for (CatalogSource root : roots)
+            names.add(CompiledCatalog.relativize(base, root.toUrl()));
+        return new SourceIdentity(names, digest(roots, base));
+    }
+
+    // Whether the catalog files found from the located migrations file are still those this identity was taken from.
+    boolean matches(CatalogSource source) {
+        try {
+            List<CatalogSource> resolved = new ArrayList<>(roots.size());
+            for (String root : roots)
+                resolved.add(source.resolve(root));
+            return digest.equals(digest(resolved, CompiledCatalog.baseOf(source.toUrl())));
+        } catch (IOException | RuntimeException e) {
+            // A source that has been moved or removed no longer matches.
+            return false;
+        }
+    }
+
+    private static String digest(List<CatalogSource> roots, String base) throws IOException {
+        MessageDigest digest = ChecksumUtils.digest();
+        Set<String> seen = new HashSet<>();
+        for (CatalogSource root : roots) {
+            for (CatalogSource file : root.expand()) {
+                if (!seen.add(file.getName())) continue;
+
+                byte[] bytes;
+                try (InputStream stream = file.open()) {
+                    bytes = stream.readAllBytes();
+                }
+                ChecksumUtils.update(digest, CompiledCatalog.relativize(base, file.toUrl()));
+                digest.update(ByteBuffer.allocate(Long.BYTES).putLong(bytes.length).array());
+                digest.update(bytes);
+            }
+        }
+        return ChecksumUtils.hex(digest.digest());
+    }
+}
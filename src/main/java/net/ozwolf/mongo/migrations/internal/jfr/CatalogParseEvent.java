@@ -0,0 +1,20 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.*;
+
+@Name("net.ozwolf.mongotrek.CatalogParse")
+@Label("Catalog Parse")
+@Category("mongoTrek")
+@Description("Reading the migrations file, or its compiled catalog")
+@StackTrace(false)
+public class CatalogParseEvent extends Event {
+    @Label("Migrations File")
+    public String migrationsFile;
+
+    @Label("Compiled")
+    @Description("Whether a compiled catalog was read")
+    public boolean compiled;
+
+    @Label("Migrations")
+    public int migrations;
+}
@@ -0,0 +1,29 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.*;
+
+@Name("net.ozwolf.mongotrek.CommandExecution")
+@Label("Command Execution")
+@Category("mongoTrek")
+@Description("Running a migration command against the database")
+@StackTrace(false)
+public class CommandExecutionEvent extends Event {
+    @Label("Database")
+    public String database;
+
+    @Label("Version")
+    public String version;
+
+    @Label("Command")
+    public String command;
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Result Size")
+    @DataAmount
+    public long resultSize;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
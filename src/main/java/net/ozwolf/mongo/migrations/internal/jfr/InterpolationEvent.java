@@ -0,0 +1,13 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.*;
+
+@Name("net.ozwolf.mongotrek.Interpolation")
+@Label("Command Interpolation")
+@Category("mongoTrek")
+@Description("Deserializing and interpolating a migration command on first use")
+@StackTrace(false)
+public class InterpolationEvent extends Event {
+    @Label("Version")
+    public String version;
+}
@@ -0,0 +1,20 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.*;
+
+@Name("net.ozwolf.mongotrek.SchemaVersionWrite")
+@Label("Schema Version Write")
+@Category("mongoTrek")
+@Description("A write to the schema version collection")
+@StackTrace(false)
+public class SchemaVersionWriteEvent extends Event {
+    @Label("Collection")
+    public String collection;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Migrations")
+    @Description("The number of migration records written")
+    public int migrations;
+}
@@ -0,0 +1,22 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.*;
+
+@Name("net.ozwolf.mongotrek.StateComputation")
+@Label("State Computation")
+@Category("mongoTrek")
+@Description("Reading the schema version history and reconciling it with the catalog")
+@StackTrace(false)
+public class StateComputationEvent extends Event {
+    @Label("Migrations")
+    public int migrations;
+
+    @Label("Pending")
+    public int pending;
+
+    @Label("Orphaned")
+    public int orphaned;
+
+    @Label("Drifted")
+    public int drifted;
+}
@@ -0,0 +1,56 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks running migrations as alive at a fixed interval, so a migration left running by a node that died can be told apart from one that is still going.
+ */
+public class MigrationHeartbeat implements AutoCloseable {
+    private final SchemaVersionDAO schemaVersionDAO;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MigrationHeartbeat.class);
+
+    public MigrationHeartbeat(SchemaVersionDAO schemaVersionDAO, Duration interval) {
+        this.schemaVersionDAO = schemaVersionDAO;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mongo-trek-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Beats until the returned handle is closed.
+    public Beat start(Migration migration) {
+        ScheduledFuture<?> beat = scheduler.scheduleAtFixedRate(() -> {
+            try {
+                schemaVersionDAO.heartbeat(migration);
+            } catch (RuntimeException e) {
+                LOGGER.warn(String.format("Could not record heartbeat for migration [ %s ].", migration.getVersion()), e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+
+        return () -> beat.cancel(false);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public interface Beat extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
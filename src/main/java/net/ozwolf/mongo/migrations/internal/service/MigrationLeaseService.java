@@ -0,0 +1,143 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import com.mongodb.client.MongoCollection;
+import net.ozwolf.mongo.migrations.internal.dao.MigrationLeaseDAO;
+import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionWatch;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationLease;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Makes sure only one node applies migrations at a time.
+ *
+ * A node either acquires the lease, or waits until whoever holds it has brought the schema up to date.  If the holder dies, its lease expires and a waiting node takes over.  A held lease is renewed in the background at a third of its duration, and checked again before every migration.
+ */
+public class MigrationLeaseService {
+    private final MigrationLeaseDAO leaseDAO;
+    private final MongoCollection<Document> collection;
+    private final String owner;
+    private final Duration duration;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MigrationLeaseService.class);
+
+    public MigrationLeaseService(MongoCollection<Document> collection, Duration duration, Duration waitTimeout, Duration pollInterval) {
+        this(new MigrationLeaseDAO(collection), collection, defaultOwner(), duration, waitTimeout, pollInterval);
+    }
+
+    MigrationLeaseService(MigrationLeaseDAO leaseDAO, MongoCollection<Document> collection, String owner, Duration duration, Duration waitTimeout, Duration pollInterval) {
+        this.leaseDAO = leaseDAO;
+        this.collection = collection;
+        this.owner = owner;
+        this.duration = duration;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Acquire the lease, or wait for another node to finish.
+     *
+     * @param done Whether the schema has been brought up to date
+     * @return The held lease, or empty if the schema was brought up to date by another node
+     */
+    public Optional<Held> acquireOrAwait(BooleanSupplier done) throws InterruptedException {
+        Instant deadline = Instant.now().plus(waitTimeout);
+        boolean waiting = false;
+
+        try (SchemaVersionWatch watch = SchemaVersionWatch.open(collection, pollInterval)) {
+            while (true) {
+                Optional<MigrationLease> lease = leaseDAO.acquire(owner, duration);
+                if (lease.isPresent())
+                    return Optional.of(new Held(lease.get()));
+
+                if (done.getAsBoolean())
+                    return Optional.empty();
+
+                Duration remaining = Duration.between(Instant.now(), deadline);
+                if (remaining.isNegative() || remaining.isZero())
+                    throw new IllegalStateException(String.format("Timed out after [ %d seconds ] waiting for migrations by [ %s ].", waitTimeout.getSeconds(), holder()));
+
+                if (!waiting) {
+                    LOGGER.info(String.format("   Waiting for migrations by [ %s ] (%s)", holder(), watch.isPolling() ? "polling" : "watching"));
+                    waiting = true;
+                }
+
+                watch.await(remaining.compareTo(pollInterval) < 0 ? remaining : pollInterval);
+            }
+        }
+    }
+
+    private String holder() {
+        return leaseDAO.findCurrent().map(MigrationLease::getOwner).orElse("unknown");
+    }
+
+    private static String defaultOwner() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public class Held implements AutoCloseable {
+        private volatile MigrationLease lease;
+        private volatile boolean lost;
+        private final ScheduledExecutorService renewer;
+
+        private Held(MigrationLease lease) {
+            this.lease = lease;
+            this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mongo-trek-lease");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            long period = Math.max(duration.toMillis() / 3, 1);
+            this.renewer.scheduleAtFixedRate(this::renewQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        public long getToken() {
+            return lease.getToken();
+        }
+
+        // Fails the migration run if another node has taken over the lease.
+        public void ensureHeld() {
+            if (lost || !renew())
+                throw new IllegalStateException(String.format("Migration lease [ %d ] held by [ %s ] has been lost to another node.", lease.getToken(), owner));
+        }
+
+        private synchronized boolean renew() {
+            Optional<MigrationLease> renewed = leaseDAO.renew(lease, duration);
+            renewed.ifPresentOrElse(l -> lease = l, () -> lost = true);
+            return renewed.isPresent();
+        }
+
+        private void renewQuietly() {
+            try {
+                renew();
+            } catch (RuntimeException e) {
+                LOGGER.warn(String.format("Could not renew migration lease [ %d ].", lease.getToken()), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            renewer.shutdownNow();
+            if (lost) return;
+
+            try {
+                leaseDAO.release(lease);
+            } catch (RuntimeException e) {
+                LOGGER.warn(String.format("Could not release migration lease [ %d ]; it will expire instead.", lease.getToken()), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import net.ozwolf.mongo.migrations.MigrationListener;
+import net.ozwolf.mongo.migrations.MigrationProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Calls every registered listener, so a failing listener never stops the others or the migration.
+public class MigrationListeners implements MigrationListener {
+    private final List<MigrationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MigrationListeners.class);
+
+    public void add(MigrationListener listener) {
+        listeners.add(listener);
+    }
+
+    public List<MigrationListener> getListeners() {
+        return listeners;
+    }
+
+    public boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    @Override
+    public void onCatalogLoaded(String database, int migrations, long durationNanos) {
+        notify(l -> l.onCatalogLoaded(database, migrations, durationNanos));
+    }
+
+    @Override
+    public void onStateComputed(String database, int migrations, int pending, long durationNanos) {
+        notify(l -> l.onStateComputed(database, migrations, pending, durationNanos));
+    }
+
+    @Override
+    public void onMigrationStarted(String database, String version, String commandType) {
+        notify(l -> l.onMigrationStarted(database, version, commandType));
+    }
+
+    @Override
+    public void onMigrationFinished(String database, String version, String commandType, long durationNanos) {
+        notify(l -> l.onMigrationFinished(database, version, commandType, durationNanos));
+    }
+
+    @Override
+    public void onMigrationFailed(String database, String version, String commandType, long durationNanos, Throwable failure) {
+        notify(l -> l.onMigrationFailed(database, version, commandType, durationNanos, failure));
+    }
+
+    @Override
+    public void onMigrationProgress(String database, MigrationProgress progress) {
+        notify(l -> l.onMigrationProgress(database, progress));
+    }
+
+    @Override
+    public void onSchemaVersionWrite(String database, String operation, long durationNanos) {
+        notify(l -> l.onSchemaVersionWrite(database, operation, durationNanos));
+    }
+
+    private void notify(Consumer<MigrationListener> event) {
+        for (MigrationListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.warn(String.format("Migration listener [ %s ] failed.", listener.getClass().getName()), e);
+            }
+        }
+    }
+}
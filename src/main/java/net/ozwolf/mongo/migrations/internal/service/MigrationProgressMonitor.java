@@ -0,0 +1,144 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import com.mongodb.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.MigrationProgress;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.execution.CommandTargets;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reports on running migrations at a fixed interval, so a long command can be told apart from a stuck one.
+ *
+ * Commands that accept a {@code comment} are tagged with the database name and migration version, which is how they are found in the admin database's {@code $currentOp} output.  Operations are also matched on their namespace, so migrations of several databases on one deployment never report each other's operations.  Without access to the admin database, or for a command that cannot be tagged, only the elapsed time is reported.
+ */
+public class MigrationProgressMonitor implements AutoCloseable {
+    private final MongoDatabase admin;
+    private final MongoDatabase database;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean currentOpAvailable;
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MigrationProgressMonitor.class);
+    private final static Set<String> TAGGABLE = Set.of("insert", "update", "delete", "findAndModify", "aggregate", "mapReduce", "createIndexes", "count", "distinct");
+
+    public MigrationProgressMonitor(MongoDatabase admin, MongoDatabase database, Duration interval) {
+        this.admin = admin;
+        this.database = database;
+        this.interval = interval;
+        this.currentOpAvailable = admin != null;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mongo-trek-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Reports until the returned handle is closed.
+    public Watch watch(Migration migration, Consumer<MigrationProgress> listener) {
+        MigrationCommand command = migration.getCommand();
+        String name = command.getCommandName();
+        String tag = currentOpAvailable && TAGGABLE.contains(name) && !command.getCommand().containsField("comment") ? "mongotrek:" + database.getName() + ":" + migration.getVersion() : null;
+
+        long started = System.nanoTime();
+        Long[] estimated = new Long[1];
+        ScheduledFuture<?> poll = scheduler.scheduleAtFixedRate(() -> {
+            try {
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+                Document op = tag == null ? null : currentOp(tag);
+                if (op != null && estimated[0] == null && progressTotal(op) == null)
+                    estimated[0] = estimatedCount(command).orElse(-1L);
+                listener.accept(progressOf(migration.getVersion(), name, elapsed, op, estimated[0] == null || estimated[0] < 0 ? null : estimated[0]));
+            } catch (RuntimeException e) {
+                LOGGER.warn(String.format("Could not report progress of migration [ %s ].", migration.getVersion()), e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+
+        return new Watch(tag, poll);
+    }
+
+    static MigrationProgress progressOf(String version, String name, Duration elapsed, Document op, Long estimatedTotal) {
+        if (op == null)
+            return new MigrationProgress(version, name, elapsed, null, null, null);
+
+        Long total = progressTotal(op);
+        Long examined = number(op, "docsExamined");
+        if (examined == null && op.get("progress") instanceof Document)
+            examined = number(op.get("progress", Document.class), "done");
+
+        return new MigrationProgress(version, name, elapsed, examined, number(op, "nModified"), total != null ? total : estimatedTotal);
+    }
+
+    private Document currentOp(String tag) {
+        if (!currentOpAvailable) return null;
+
+        try {
+            return admin.aggregate(Arrays.asList(
+                    new Document("$currentOp", new Document()),
+                    new Document("$match", new Document("$or", Arrays.asList(new Document("command.comment", tag), new Document("comment", tag)))
+                            .append("ns", new Document("$regex", "^" + Pattern.quote(database.getName() + ".")))),
+                    new Document("$limit", 1)
+            )).first();
+        } catch (RuntimeException e) {
+            // Usually a lack of privilege; there is no point asking again.
+            currentOpAvailable = false;
+            LOGGER.warn("Could not read $currentOp; only the elapsed time of migrations will be reported.", e);
+            return null;
+        }
+    }
+
+    private Optional<Long> estimatedCount(MigrationCommand command) {
+        Optional<Set<String>> targets = CommandTargets.of(command.getCommand());
+        return targets.filter(t -> t.size() == 1).map(t -> database.getCollection(t.iterator().next()).estimatedDocumentCount());
+    }
+
+    private static Long progressTotal(Document op) {
+        return op.get("progress") instanceof Document ? number(op.get("progress", Document.class), "total") : null;
+    }
+
+    private static Long number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public static class Watch implements AutoCloseable {
+        private final String tag;
+        private final ScheduledFuture<?> poll;
+
+        public final static Watch NONE = new Watch(null, null);
+
+        private Watch(String tag, ScheduledFuture<?> poll) {
+            this.tag = tag;
+            this.poll = poll;
+        }
+
+        // The comment to send with the command so it can be found in $currentOp.
+        public Optional<String> getComment() {
+            return Optional.ofNullable(tag);
+        }
+
+        @Override
+        public void close() {
+            if (poll != null) poll.cancel(false);
+        }
+    }
+}
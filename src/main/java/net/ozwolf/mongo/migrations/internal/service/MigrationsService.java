@@ -4,13 +4,15 @@ import net.ozwolf.mongo.migrations.MongoTrekState;
 import net.ozwolf.mongo.migrations.exception.DuplicateVersionException;
 import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.domain.Reconciliation;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
+import net.ozwolf.mongo.migrations.internal.jfr.StateComputationEvent;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.function.Function;
-
-import static java.util.stream.Collectors.toList;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 
 public class MigrationsService {
     private final SchemaVersionDAO schemaVersionDAO;
@@ -19,43 +21,104 @@ public class MigrationsService {
         this.schemaVersionDAO = schemaVersionDAO;
     }
 
-    public MongoTrekState getState(MigrationCommands commands) {
-        return new MongoTrekState(getFullState(commands));
+    public MongoTrekState getState(MigrationCommands commands) throws DuplicateVersionException {
+        StateComputationEvent event = new StateComputationEvent();
+        event.begin();
+
+        MongoTrekState state = stateOf(reconcile(commands));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.migrations = state.getMigrations().size();
+            event.pending = state.getPending().getMigrations().size();
+            event.orphaned = state.getOrphaned().size();
+            event.drifted = state.getDrifted().size();
+            event.commit();
+        }
+        return state;
     }
 
-    private List<Migration> getFullState(MigrationCommands commands) throws DuplicateVersionException {
-        List<Migration> alreadyRun = schemaVersionDAO.findAll();
+    public static MongoTrekState stateOf(Reconciliation reconciliation) throws DuplicateVersionException {
+        if (reconciliation.hasDuplicates())
+            throw new DuplicateVersionException(reconciliation.getDuplicates().get(0));
 
-        List<Migration> commandMigrations = commands.getMigrations()
-                .stream()
-                .map(Migration::new)
-                .collect(toList());
+        return new MongoTrekState(reconciliation.getMigrations(), reconciliation.getOrphaned(), reconciliation.getDrifted());
+    }
 
-        checkForDuplicateVersions(commandMigrations);
+    // The head is only recorded once the catalog is fully and faithfully applied, so a matching head means there is nothing to reconcile.
+    public Optional<SchemaVersionHead> findUpToDateHead(MigrationCommands commands) {
+        return schemaVersionDAO.findHead().filter(h -> h.matches(commands));
+    }
 
-        return commandMigrations
-                .stream()
-                .map(joinWith(alreadyRun))
-                .collect(toList());
+    public void recordHead(MigrationCommands commands, MongoTrekState state) {
+        headOf(commands, state).ifPresent(schemaVersionDAO::saveHead);
+    }
+
+    public static Optional<SchemaVersionHead> headOf(MigrationCommands commands, MongoTrekState state) {
+        if (state.getPending().hasPendingMigrations() || !state.getDrifted().isEmpty() || state.getMigrations().stream().anyMatch(Migration::isRunning))
+            return Optional.empty();
 
+        return Optional.of(new SchemaVersionHead(commands.getFingerprint(), state.getCurrentVersion(), commands.getMigrations().size(), Instant.now()));
     }
 
-    private void checkForDuplicateVersions(List<Migration> migrations) throws DuplicateVersionException {
-        List<Migration> duplicateVersions = migrations.stream()
-                .filter(m -> migrations.stream().filter(cm -> cm.getVersion().equals(m.getVersion())).count() > 1)
-                .collect(toList());
+    /**
+     * Reclassifies migrations left running by a node that has since died as failed, so they are applied again.
+     *
+     * A stale migration that is not idempotent may have been partly applied, so is not retried; it fails the run until resolved by hand.
+     *
+     * @return The stale migrations that were reclassified
+     */
+    public List<Migration> recoverStale(MongoTrekState state, Duration timeout, Instant now) {
+        List<Migration> stale = new ArrayList<>();
+        for (Migration migration : state.getMigrations()) {
+            if (!migration.isStale(timeout, now)) continue;
+
+            if (!migration.getCommand().isIdempotent())
+                throw new IllegalStateException(String.format("Migration [ %s ] was interrupted while running and is not idempotent, so must be resolved manually.", migration.getVersion()));
+            stale.add(migration);
+        }
+
+        for (Migration migration : stale)
+            schemaVersionDAO.save(migration.interrupted());
+        schemaVersionDAO.flush();
 
-        if (!duplicateVersions.isEmpty())
-            throw new DuplicateVersionException(duplicateVersions.get(0));
+        return stale;
     }
 
-    private static Function<Migration, Migration> joinWith(final List<Migration> alreadyRun) {
-        return migration -> {
-            Optional<Migration> found = alreadyRun.stream().filter(o -> o.getVersion().equals(migration.getVersion())).findFirst();
-            return found
-                    .orElse(migration)
-                    .assign(migration.getCommand());
-        };
+    public Reconciliation reconcile(MigrationCommands commands) {
+        return reconcile(commands, schemaVersionDAO.findAll());
     }
 
+    // Single pass over history and catalog; each catalog entry claims its history record, so whatever is left unclaimed is orphaned.
+    public static Reconciliation reconcile(MigrationCommands commands, List<Migration> history) {
+        List<MigrationCommand> catalog = commands.getMigrations();
+
+        Map<String, Migration> unclaimed = new LinkedHashMap<>(capacityFor(history.size()));
+        for (Migration record : history)
+            unclaimed.putIfAbsent(record.getVersion(), record);
+
+        Set<String> versions = new HashSet<>(capacityFor(catalog.size()));
+        List<Migration> migrations = new ArrayList<>(catalog.size());
+        List<Migration> duplicates = new ArrayList<>();
+        List<Migration> drifted = new ArrayList<>();
+
+        for (MigrationCommand command : catalog) {
+            if (!versions.add(command.getVersion())) {
+                duplicates.add(new Migration(command));
+                continue;
+            }
+
+            Migration record = unclaimed.remove(command.getVersion());
+            Migration migration = record == null ? new Migration(command) : record.assign(command);
+            migrations.add(migration);
+            if (migration.isDrifted())
+                drifted.add(migration);
+        }
+
+        return new Reconciliation(migrations, duplicates, new ArrayList<>(unclaimed.values()), drifted);
+    }
+
+    private static int capacityFor(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
 }
@@ -0,0 +1,102 @@
+package net.ozwolf.mongo.migrations.internal.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checksums of migration commands and catalogs.
+ *
+ * A command checksum digests the command's token sequence (structure, field names and scalar values) as it appears in the migrations file, before any strict JSON interpolation.  Commands held as maps are digested as the same token sequence, so either form of the same command has the same checksum.
+ */
+public class ChecksumUtils {
+    private final static String ALGORITHM = "SHA-256";
+    private final static char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static String checksum(JsonParser parser) throws IOException {
+        MessageDigest digest = digest();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME || token.isScalarValue()) {
+                update(digest, token, parser.getText());
+            } else {
+                update(digest, token, null);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    public static String checksum(Map<String, Object> command) {
+        MessageDigest digest = digest();
+        updateObject(digest, command);
+        return hex(digest.digest());
+    }
+
+    public static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    public static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void updateValue(MessageDigest digest, Object value) {
+        if (value instanceof Map) {
+            updateObject(digest, (Map<String, Object>) value);
+        } else if (value instanceof List) {
+            update(digest, JsonToken.START_ARRAY, null);
+            for (Object element : (List<Object>) value)
+                updateValue(digest, element);
+            update(digest, JsonToken.END_ARRAY, null);
+        } else if (value == null) {
+            update(digest, JsonToken.VALUE_NULL, "null");
+        } else if (value instanceof String) {
+            update(digest, JsonToken.VALUE_STRING, (String) value);
+        } else if (value instanceof Boolean) {
+            update(digest, (Boolean) value ? JsonToken.VALUE_TRUE : JsonToken.VALUE_FALSE, value.toString());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+            update(digest, JsonToken.VALUE_NUMBER_INT, value.toString());
+        } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+            update(digest, JsonToken.VALUE_NUMBER_FLOAT, value.toString());
+        } else {
+            update(digest, JsonToken.VALUE_EMBEDDED_OBJECT, value.toString());
+        }
+    }
+
+    private static void updateObject(MessageDigest digest, Map<String, Object> object) {
+        update(digest, JsonToken.START_OBJECT, null);
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            update(digest, JsonToken.FIELD_NAME, entry.getKey());
+            updateValue(digest, entry.getValue());
+        }
+        update(digest, JsonToken.END_OBJECT, null);
+    }
+
+    private static void update(MessageDigest digest, JsonToken token, String text) {
+        digest.update((byte) token.id());
+        if (text != null) update(digest, text);
+    }
+}
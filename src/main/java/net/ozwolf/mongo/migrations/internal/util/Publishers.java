@@ -0,0 +1,95 @@
+package net.ozwolf.mongo.migrations.internal.util;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bridges reactive streams publishers to completion stages without blocking.
+ *
+ * Lists are collected with bounded demand, requesting the next batch only once the previous one has been received, so a large result never outruns its subscriber.
+ */
+public class Publishers {
+    public final static int DEFAULT_DEMAND = 100;
+
+    public static <T> CompletionStage<Optional<T>> first(Publisher<T> publisher) {
+        CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                if (future.complete(Optional.ofNullable(item)))
+                    subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(Optional.empty());
+            }
+        });
+        return future;
+    }
+
+    public static <T> CompletionStage<List<T>> toList(Publisher<T> publisher) {
+        return toList(publisher, DEFAULT_DEMAND);
+    }
+
+    public static <T> CompletionStage<List<T>> toList(Publisher<T> publisher, int demand) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+            private Subscription subscription;
+            private int outstanding;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                this.outstanding = demand;
+                subscription.request(demand);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+                if (--outstanding == 0) {
+                    outstanding = demand;
+                    subscription.request(demand);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+
+    // Completes once the publisher does, ignoring whatever it emits.
+    public static CompletionStage<Void> completion(Publisher<?> publisher) {
+        return toList(publisher).thenApply(i -> null);
+    }
+}
@@ -0,0 +1,85 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.client.MongoClient;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoTrekFleetITCase {
+    @RegisterExtension
+    final static MongoDBServerExtension DATABASE = new MongoDBServerExtension();
+
+    private final static List<String> TENANTS = List.of("tenant_a", "tenant_b", "tenant_c");
+
+    private MongoClient client;
+
+    @BeforeEach
+    void setUp() {
+        this.client = DATABASE.getClient();
+        TENANTS.forEach(t -> client.getDatabase(t).drop());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TENANTS.forEach(t -> client.getDatabase(t).drop());
+    }
+
+    @Test
+    void shouldMigrateEveryNamedDatabase() throws MongoTrekFailureException {
+        MongoTrekFleet fleet = new MongoTrekFleet("fixtures/migrations-deserialization-test.yml", client);
+        fleet.setConcurrency(2);
+
+        MongoTrekFleetState state = fleet.migrate(TENANTS);
+
+        assertThat(state.isSuccessful()).isTrue();
+        assertThat(state.getStates()).containsOnlyKeys(TENANTS.toArray(new String[0]));
+        assertThat(state.getStates().values()).allSatisfy(s -> assertThat(s.getCurrentVersion()).isEqualTo("1.0.1"));
+        assertThat(state.getDurations()).containsOnlyKeys(TENANTS.toArray(new String[0]));
+        assertThat(state.getTotalDuration()).isGreaterThanOrEqualTo(state.getDurations().get("tenant_a"));
+
+        TENANTS.forEach(t -> assertThat(client.getDatabase(t).getCollection("test").countDocuments()).isEqualTo(2));
+    }
+
+    @Test
+    void shouldMigrateEachDatabaseUnderItsOwnLease() throws MongoTrekFailureException {
+        MongoTrekFleet fleet = new MongoTrekFleet("fixtures/migrations-deserialization-test.yml", client);
+        fleet.setLeaseDuration(Duration.ofMinutes(1));
+
+        MongoTrekFleetState state = fleet.migrate(TENANTS);
+
+        assertThat(state.isSuccessful()).isTrue();
+        TENANTS.forEach(t -> assertThat(client.getDatabase(t).getCollection("_schema_version").countDocuments(new Document("_id", "_lease"))).isEqualTo(1));
+    }
+
+    @Test
+    void shouldDiscoverDatabasesByFilter() throws MongoTrekFailureException {
+        TENANTS.forEach(t -> client.getDatabase(t).getCollection("marker").insertOne(new Document("tenant", t)));
+
+        MongoTrekFleetState state = new MongoTrekFleet("fixtures/migrations-deserialization-test.yml", client).migrate(n -> n.startsWith("tenant_"));
+
+        assertThat(state.getStates()).containsOnlyKeys(TENANTS.toArray(new String[0]));
+    }
+
+    @Test
+    void shouldReportFailedDatabasesWithoutStoppingOthers() throws MongoTrekFailureException {
+        client.getDatabase("tenant_b").getCollection("_schema_version").insertMany(List.of(
+                new Document("version", "1.0.0").append("status", "Successful"),
+                new Document("version", "1.0.0").append("status", "Successful")
+        ));
+
+        MongoTrekFleetState state = new MongoTrekFleet("fixtures/migrations-deserialization-test.yml", client).migrate(TENANTS);
+
+        assertThat(state.isSuccessful()).isFalse();
+        assertThat(state.getFailures()).containsOnlyKeys("tenant_b");
+        assertThat(state.getStates()).containsOnlyKeys("tenant_a", "tenant_c");
+    }
+}
@@ -0,0 +1,35 @@
+package net.ozwolf.mongo.migrations;
+
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoTrekFleetStateTest {
+    @Test
+    void shouldReportDatabasesInGivenOrderWithAggregatedTiming() {
+        MongoTrekState migrated = new MongoTrekState(Collections.emptyList());
+        MongoTrekFailureException failure = new MongoTrekFailureException(new IllegalStateException("Broken"));
+
+        MongoTrekFleetState state = new MongoTrekFleetState(
+                List.of("tenant_c", "tenant_a", "tenant_b"),
+                Map.of("tenant_a", migrated, "tenant_c", migrated),
+                Map.of("tenant_b", failure),
+                Map.of("tenant_a", Duration.ofSeconds(2), "tenant_b", Duration.ofSeconds(5), "tenant_c", Duration.ofSeconds(1)),
+                Duration.ofSeconds(6)
+        );
+
+        assertThat(state.isSuccessful()).isFalse();
+        assertThat(state.getStates().keySet()).containsExactly("tenant_c", "tenant_a");
+        assertThat(state.getFailures()).containsExactly(Map.entry("tenant_b", failure));
+        assertThat(state.getDurations().keySet()).containsExactly("tenant_c", "tenant_a", "tenant_b");
+        assertThat(state.getTotalDuration()).isEqualTo(Duration.ofSeconds(8));
+        assertThat(state.getElapsed()).isEqualTo(Duration.ofSeconds(6));
+        assertThat(state.getSlowestDatabase()).contains("tenant_b");
+    }
+}
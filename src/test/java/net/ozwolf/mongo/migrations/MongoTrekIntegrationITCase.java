@@ -31,6 +31,7 @@ import static com.mongodb.client.model.Filters.and;
 import static net.ozwolf.mongo.migrations.matchers.LoggingMatchers.loggedMessage;
 import static net.ozwolf.mongo.migrations.matchers.MigrationMatchers.migrationOf;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 
@@ -151,6 +152,129 @@ class MongoTrekIntegrationITCase {
         }
     }
 
+    @Test
+    void shouldNotifyListenersOfMigrations() {
+        MigrationListener listener = mock(MigrationListener.class);
+
+        MongoTrek migrations = new MongoTrek("fixtures/last-failure-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection(SCHEMA_VERSION_COLLECTION);
+        migrations.addListener(listener);
+
+        assertThatThrownBy(migrations::migrate).isInstanceOf(MongoTrekFailureException.class);
+
+        String schema = MongoDBServerExtension.SCHEMA_NAME;
+        verify(listener).onCatalogLoaded(eq(schema), eq(6), anyLong());
+        verify(listener).onStateComputed(eq(schema), eq(6), eq(4), anyLong());
+        verify(listener).onMigrationStarted(schema, "2.0.0", "insert");
+        verify(listener).onMigrationFinished(eq(schema), eq("2.0.0"), eq("insert"), anyLong());
+        verify(listener).onMigrationStarted(schema, "3.0.0", "rubbish");
+        verify(listener).onMigrationFailed(eq(schema), eq("3.0.0"), eq("rubbish"), anyLong(), any(MongoCommandException.class));
+        verify(listener, atLeastOnce()).onSchemaVersionWrite(eq(schema), eq("save"), anyLong());
+    }
+
+    @Test
+    void shouldTraceMigrations() {
+        List<String> spans = new ArrayList<>();
+        MigrationTracer tracer = name -> {
+            spans.add(name);
+            return MigrationTracer.Span.NOOP;
+        };
+
+        MongoTrek migrations = new MongoTrek("fixtures/last-failure-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection(SCHEMA_VERSION_COLLECTION);
+        migrations.setTracer(tracer);
+
+        assertThatThrownBy(migrations::migrate).isInstanceOf(MongoTrekFailureException.class);
+
+        assertThat(spans.get(0)).isEqualTo("mongotrek.migrate");
+        assertThat(spans).contains("mongotrek.catalog.load", "mongotrek.state", "mongotrek.schema_version.findAll", "mongotrek.schema_version.save");
+        assertThat(spans.stream().filter("mongotrek.migration"::equals)).hasSize(4);
+    }
+
+    @Test
+    void shouldApplyJavaMigrations() throws MongoTrekFailureException {
+        this.database.getCollection("people").drop();
+
+        MongoTrek migrations = new MongoTrek("fixtures/java-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection("_java_schema_version");
+        MongoTrekState state = migrations.migrate();
+
+        assertThat(state.getCurrentVersion()).isEqualTo("1.1.0");
+        assertThat(state.getMigrations()).anySatisfy(m -> {
+            assertThat(m.getVersion()).isEqualTo("1.1.0");
+            assertThat(m.getResult()).containsEntry("nModified", 3L).containsEntry("batches", 2L);
+        });
+        assertThat(this.database.getCollection("people").countDocuments(Filters.exists("fullName"))).isEqualTo(0L);
+        assertThat(this.database.getCollection("people").countDocuments(Filters.eq("lastName", "Simpson"))).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldConsolidateIndexBuilds() throws MongoTrekFailureException {
+        this.database.getCollection("people").drop();
+        this.database.getCollection("towns").drop();
+
+        List<String> indexesAtStart = new ArrayList<>();
+        MigrationListener listener = mock(MigrationListener.class);
+        doAnswer(i -> {
+            if (i.getArgument(1).equals("1.1.2"))
+                this.database.getCollection("people").listIndexes().map(x -> x.getString("name")).into(indexesAtStart);
+            return null;
+        }).when(listener).onMigrationStarted(anyString(), anyString(), anyString());
+
+        MongoTrek migrations = new MongoTrek("fixtures/index-build-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection("_index_schema_version");
+        migrations.setConsolidateIndexBuilds(true);
+        migrations.addListener(listener);
+        MongoTrekState state = migrations.migrate();
+
+        assertThat(indexesAtStart).doesNotContain("age_1", "town_1");
+        verify(listener).onMigrationFinished(eq(MongoDBServerExtension.SCHEMA_NAME), eq("1.1.0"), eq("createIndexes"), anyLong());
+        verify(listener).onMigrationFinished(eq(MongoDBServerExtension.SCHEMA_NAME), eq("1.1.2"), eq("createIndexes"), anyLong());
+
+        assertThat(state.getCurrentVersion()).isEqualTo("1.1.2");
+        assertThat(state.getMigrations()).filteredOn(m -> m.getVersion().startsWith("1.1.")).hasSize(3).allSatisfy(m -> {
+            assertThat(m.isSuccessful()).isTrue();
+            assertThat(m.getResult()).containsKey("numIndexesAfter");
+        });
+        assertThat(state.getMigrations()).filteredOn(m -> m.getVersion().equals("1.1.0")).singleElement()
+                .satisfies(m -> assertThat(m.getResult()).containsEntry("consolidated", List.of("1.1.0", "1.1.2")));
+        assertThat(this.database.getCollection("people").listIndexes().map(i -> i.getString("name")).into(new ArrayList<>())).contains("age_1", "town_1");
+        assertThat(this.database.getCollection("towns").listIndexes().map(i -> i.getString("name")).into(new ArrayList<>())).contains("name_1");
+    }
+
+    @Test
+    void shouldAttributeFailedIndexBuildToItsMigration() {
+        this.database.getCollection("people").drop();
+
+        MongoTrek migrations = new MongoTrek("fixtures/failing-index-build-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection("_failing_index_schema_version");
+        migrations.setConsolidateIndexBuilds(true);
+
+        assertThatThrownBy(migrations::migrate).isInstanceOf(MongoTrekFailureException.class);
+
+        List<Document> records = this.database.getCollection("_failing_index_schema_version").find().into(new ArrayList<>());
+        assertThat(records).filteredOn(r -> "1.1.0".equals(r.getString("version"))).singleElement().satisfies(r -> assertThat(r.getString("status")).isEqualTo("Successful"));
+        assertThat(records).filteredOn(r -> "1.1.1".equals(r.getString("version"))).singleElement().satisfies(r -> assertThat(r.getString("status")).isEqualTo("Failed"));
+        assertThat(this.database.getCollection("people").listIndexes().map(i -> i.getString("name")).into(new ArrayList<>())).contains("age_1").doesNotContain("name_1");
+    }
+
+    @Test
+    void shouldLeaveMigrationsAfterFailedIndexBuildPending() throws MongoTrekFailureException {
+        this.database.getCollection("people").drop();
+
+        MongoTrek migrations = new MongoTrek("fixtures/failing-first-index-build-migrations.yml", this.database);
+        migrations.setSchemaVersionCollection("_failing_first_index_schema_version");
+        migrations.setConsolidateIndexBuilds(true);
+
+        assertThatThrownBy(migrations::migrate).isInstanceOf(MongoTrekFailureException.class);
+
+        List<Document> records = this.database.getCollection("_failing_first_index_schema_version").find().into(new ArrayList<>());
+        assertThat(records).filteredOn(r -> "1.1.0".equals(r.getString("version"))).singleElement().satisfies(r -> assertThat(r.getString("status")).isEqualTo("Failed"));
+        assertThat(records).filteredOn(r -> "1.1.1".equals(r.getString("version"))).singleElement().satisfies(r -> assertThat(r.getString("status")).isEqualTo("Pending"));
+        assertThat(this.database.getCollection("people").listIndexes().map(i -> i.getString("name")).into(new ArrayList<>())).doesNotContain("name_1", "age_1");
+        assertThat(migrations.getCurrentVersion()).isEqualTo("1.0.0");
+    }
+
     @Test
     void shouldReportOnMigrations() throws MongoTrekFailureException {
         MongoTrek migrations = new MongoTrek("fixtures/last-failure-migrations.yml", this.database);
@@ -0,0 +1,92 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveMongoTrekITCase {
+    @RegisterExtension
+    final static MongoDBServerExtension DATABASE = new MongoDBServerExtension();
+
+    private MongoClient client;
+
+    @BeforeEach
+    void setUp() {
+        this.client = MongoClients.create(DATABASE.getConnectionString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.client.close();
+    }
+
+    @Test
+    void shouldMigrateWithReactiveDriver() {
+        ReactiveMongoTrek trek = new ReactiveMongoTrek("fixtures/migrations-deserialization-test.yml", client.getDatabase(MongoDBServerExtension.SCHEMA_NAME));
+
+        MongoTrekState state = trek.migrate().toCompletableFuture().join();
+
+        assertThat(state.getCurrentVersion()).isEqualTo("1.0.1");
+        assertThat(state.getPending().hasPendingMigrations()).isFalse();
+        assertThat(state.getMigrations()).allSatisfy(m -> assertThat(m.isSuccessful()).isTrue());
+        assertThat(DATABASE.getDatabase().getCollection("test").countDocuments(new Document("value3", false))).isEqualTo(2);
+
+        assertThat(trek.getCurrentVersion().toCompletableFuture().join()).isEqualTo("1.0.1");
+        assertThat(trek.status().toCompletableFuture().join().getMigrations()).extracting(Migration::getVersion).containsExactly("1.0.0", "1.0.1");
+    }
+
+    @Test
+    void shouldRecordFailedMigrationAndStop() {
+        ReactiveMongoTrek trek = new ReactiveMongoTrek("fixtures/failing-command-migrations.yml", client.getDatabase(MongoDBServerExtension.SCHEMA_NAME));
+
+        assertThatThrownBy(() -> trek.migrate().toCompletableFuture().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(MongoTrekFailureException.class);
+
+        MongoTrekState state = trek.status().toCompletableFuture().join();
+        assertThat(state.getCurrentVersion()).isEqualTo("1.0.0");
+        assertThat(state.getFailed()).extracting(Migration::getVersion).containsExactly("1.0.1");
+        assertThat(state.getPending().getMigrations()).extracting(Migration::getVersion).containsExactly("1.0.1", "1.0.2");
+    }
+
+    @Test
+    void shouldReadStatusWithoutWriting() {
+        com.mongodb.client.MongoCollection<Document> collection = DATABASE.getDatabase().getCollection("_reactive_read_schema_version");
+        collection.drop();
+        collection.insertOne(new Document("version", "1.0.0").append("description", "My first migration").append("author", "Homer Simpson")
+                .append("started", new Date()).append("finished", new Date()).append("status", "Successful").append("result", new Document("n", 2)));
+
+        ReactiveMongoTrek trek = new ReactiveMongoTrek("fixtures/migrations-deserialization-test.yml", client.getDatabase(MongoDBServerExtension.SCHEMA_NAME));
+        trek.setSchemaVersionCollection("_reactive_read_schema_version");
+
+        assertThat(trek.getCurrentVersion().toCompletableFuture().join()).isEqualTo("1.0.0");
+        MongoTrekState state = trek.status().toCompletableFuture().join();
+
+        assertThat(state.getApplied()).singleElement().satisfies(m -> assertThat(m.getResult()).containsEntry("n", 2));
+        assertThat(collection.listIndexes().into(new ArrayList<>())).hasSize(1);
+        assertThat(collection.countDocuments(new Document("versionKey", new Document("$exists", true)))).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldFailWithMongoTrekFailureExceptionForInvalidCatalog() {
+        ReactiveMongoTrek trek = new ReactiveMongoTrek("fixtures/invalid-migrations.yml", client.getDatabase(MongoDBServerExtension.SCHEMA_NAME));
+
+        assertThatThrownBy(() -> trek.migrate().toCompletableFuture().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(MongoTrekFailureException.class);
+    }
+}
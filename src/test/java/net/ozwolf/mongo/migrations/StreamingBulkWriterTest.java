@@ -0,0 +1,71 @@
+package net.ozwolf.mongo.migrations;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class StreamingBulkWriterTest {
+    private final MongoCollection<Document> target = mock(MongoCollection.class);
+    private final List<Integer> batches = new ArrayList<>();
+
+    @Test
+    void shouldWriteTransformsInBoundedBatches() {
+        when(target.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenAnswer(i -> {
+            List<?> batch = i.getArgument(0);
+            batches.add(batch.size());
+            return BulkWriteResult.acknowledged(batch.size(), 0, 0, 0, Collections.emptyList(), Collections.emptyList());
+        });
+        MongoIterable<Document> source = source(7);
+
+        BulkWriteSummary summary = StreamingBulkWriter.into(target)
+                .batchSize(3)
+                .write(source, d -> d.getInteger("n") == 4 ? null : new InsertOneModel<>(d));
+
+        assertThat(batches).containsExactly(3, 3);
+        assertThat(summary.getRead()).isEqualTo(7L);
+        assertThat(summary.getBatches()).isEqualTo(2L);
+        assertThat(summary.getInserted()).isEqualTo(6L);
+        assertThat(summary.toDocument().getLong("nInserted")).isEqualTo(6L);
+        verify(source).batchSize(3);
+    }
+
+    @Test
+    void shouldNotWriteWhenNothingToWrite() {
+        BulkWriteSummary summary = StreamingBulkWriter.into(target).write(source(0), InsertOneModel::new);
+
+        assertThat(summary.getBatches()).isZero();
+        verify(target, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    private static MongoIterable<Document> source(int count) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+            documents.add(new Document("n", i));
+
+        Iterator<Document> iterator = documents.iterator();
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(i -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(i -> iterator.next());
+
+        MongoIterable<Document> source = mock(MongoIterable.class);
+        when(source.batchSize(anyInt())).thenReturn(source);
+        when(source.iterator()).thenReturn(cursor);
+        return source;
+    }
+}
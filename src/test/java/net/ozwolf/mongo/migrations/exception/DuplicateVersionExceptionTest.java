@@ -15,4 +15,9 @@ class DuplicateVersionExceptionTest {
 
         assertThat(new DuplicateVersionException(migration).getMessage()).isEqualTo("Migration [ 1.2.3 ] has duplicate commands.");
     }
+
+    @Test
+    void shouldProvideExpectedExceptionMessageWithSources() {
+        assertThat(new DuplicateVersionException("1.2.3", "a.yml", "b.yml").getMessage()).isEqualTo("Migration [ 1.2.3 ] has duplicate commands in [ a.yml ] and [ b.yml ].");
+    }
 }
\ No newline at end of file
@@ -20,9 +20,18 @@ import java.util.function.Consumer;
 public class MongoDBServerExtension implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
     private TransitionWalker.ReachedState<RunningMongodProcess> process;
     private MongoClient client;
+    private ConnectionString connectionString;
 
     public final static String SCHEMA_NAME = "mongo_trek_test";
 
+    public ConnectionString getConnectionString() {
+        return connectionString;
+    }
+
+    public MongoClient getClient() {
+        return client;
+    }
+
     public MongoDatabase getDatabase() {
         return client.getDatabase(SCHEMA_NAME);
     }
@@ -38,6 +47,7 @@ public class MongoDBServerExtension implements BeforeAllCallback, AfterAllCallba
 
 
         ConnectionString uri = new ConnectionString("mongodb://localhost:" + this.process.current().getServerAddress().getPort() + "/" + SCHEMA_NAME);
+        connectionString = uri;
         client = MongoClients.create(uri);
     }
 
@@ -1,21 +1,31 @@
 package net.ozwolf.mongo.migrations.internal.dao;
 
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
 import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
 import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
 import static net.ozwolf.mongo.migrations.matchers.MigrationMatchers.migrationOf;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class DefaultSchemaVersionDAOITCase {
 
@@ -59,6 +69,17 @@ public class DefaultSchemaVersionDAOITCase {
         assertThat(latest.getResult().get("n")).isEqualTo(1);
     }
 
+    @Test
+    void shouldReturnLatestSuccessfulMigrationBySemanticVersion() {
+        persistMigration("1.9.0", "Ninth migration", "Homer Simpson", "2014-12-04T22:04:00.000Z", "2014-12-04T22:04:02.000Z", MigrationStatus.Successful, null, new Document("n", 1));
+
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+        dao.save(new Migration("1.10.0", "Tenth migration", "Homer Simpson", Instant.parse("2014-12-04T22:05:00.000Z"), Instant.parse("2014-12-04T22:05:02.000Z"), MigrationStatus.Successful, null, new Document("n", 1)));
+
+        assertThat(dao.findLastSuccessful()).hasValueSatisfying(m -> assertThat(m).is(migrationOf("1.10.0")));
+        assertThat(this.collection.countDocuments(exists("versionKey", false))).isEqualTo(0L);
+    }
+
     @Test
     void shouldInsertVersionToDatabase() {
         Migration migration = new Migration(
@@ -118,6 +139,136 @@ public class DefaultSchemaVersionDAOITCase {
         assertThat(this.collection.countDocuments(afterQuery)).isEqualTo(1L);
     }
 
+    @Test
+    void shouldOnlyLoadResultWhenRequested() {
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        Migration migration = dao.findAll().stream().filter(Migration::isSuccessful).findFirst().orElseThrow(() -> new AssertionError("Failed to find successful migration."));
+
+        this.collection.updateOne(eq("version", "1.0.0"), new Document("$set", new Document("result.n", 2)));
+
+        assertThat(migration.getResult().get("n")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldLoadResultWithHistoryWhenNotLazy() {
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection, false);
+
+        Migration migration = dao.findAll().stream().filter(Migration::isSuccessful).findFirst().orElseThrow(() -> new AssertionError("Failed to find successful migration."));
+
+        this.collection.updateOne(eq("version", "1.0.0"), new Document("$set", new Document("result.n", 2)));
+
+        assertThat(migration.getResult().get("n")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIndexVersionsWhenEnsured() {
+        DefaultSchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        dao.ensureIndexes();
+
+        List<Document> indexes = this.collection.listIndexes().into(new ArrayList<>());
+
+        assertThat(indexes)
+                .anyMatch(i -> i.get("key", Document.class).equals(new Document("version", 1)) && i.getBoolean("unique", false))
+                .anyMatch(i -> i.get("key", Document.class).equals(new Document("status", 1).append("versionKey", 1)));
+    }
+
+    @Test
+    void shouldFailToIndexDuplicateVersions() {
+        persistMigration("1.0.1", "Second migration again", "Homer Simpson", "2014-12-04T22:03:00.000Z", null, MigrationStatus.Failed, "failure", null);
+
+        DefaultSchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        assertThatThrownBy(dao::ensureIndexes)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Schema version collection [ _schema_version ] has more than one record for the same version and cannot be uniquely indexed.");
+    }
+
+    @Test
+    void shouldReadWithoutIndexing() {
+        persistMigration("1.9.0", "Ninth migration", "Homer Simpson", "2014-12-04T22:04:00.000Z", "2014-12-04T22:04:02.000Z", MigrationStatus.Successful, null, new Document("n", 1));
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        assertThat(dao.findAll()).hasSize(3);
+        assertThat(dao.findLastSuccessful()).hasValueSatisfying(m -> assertThat(m).is(migrationOf("1.9.0")));
+        assertThat(dao.findHead()).isEmpty();
+        assertThat(this.collection.listIndexes().into(new ArrayList<>())).hasSize(1);
+    }
+
+    @Test
+    void shouldFindLastSuccessfulInOneQueryOnceBackfilled() {
+        new DefaultSchemaVersionDAO(this.collection).ensureIndexes();
+
+        List<String> commands = new CopyOnWriteArrayList<>();
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(DATABASE.getConnectionString())
+                .addCommandListener(new CommandListener() {
+                    @Override
+                    public void commandStarted(CommandStartedEvent event) {
+                        if (event.getDatabaseName().equals(MongoDBServerExtension.SCHEMA_NAME))
+                            commands.add(event.getCommandName());
+                    }
+                })
+                .build();
+        try (MongoClient client = MongoClients.create(settings)) {
+            SchemaVersionDAO dao = new DefaultSchemaVersionDAO(client.getDatabase(MongoDBServerExtension.SCHEMA_NAME).getCollection(SCHEMA_VERSION_COLLECTION), false);
+
+            assertThat(dao.findLastSuccessful()).hasValueSatisfying(m -> assertThat(m).is(migrationOf("1.0.0")));
+        }
+
+        assertThat(commands).containsExactly("find");
+    }
+
+    @Test
+    void shouldSaveAndFindHeadWithoutAffectingHistory() {
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        assertThat(dao.findHead()).isEmpty();
+
+        dao.saveHead(new SchemaVersionHead("fingerprint-1", "1.0.0", 2, Instant.parse("2014-12-04T22:05:00.000Z")));
+        dao.saveHead(new SchemaVersionHead("fingerprint-2", "1.0.1", 2, Instant.parse("2014-12-04T22:06:00.000Z")));
+
+        SchemaVersionHead head = dao.findHead().orElseThrow(() -> new AssertionError("Failed to find schema version head."));
+
+        assertThat(head.getFingerprint()).isEqualTo("fingerprint-2");
+        assertThat(head.getCurrentVersion()).isEqualTo("1.0.1");
+        assertThat(head.getUpdated()).isEqualTo(Instant.parse("2014-12-04T22:06:00.000Z"));
+
+        assertThat(dao.findAll()).hasSize(2);
+    }
+
+    @Test
+    void shouldOnlyRecordHeartbeatForRunningMigration() {
+        persistMigration("1.0.2", "Third migration", "Homer Simpson", "2014-12-04T22:04:00.000Z", null, MigrationStatus.Running, null, null);
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+
+        Instant before = Instant.now().minusSeconds(1);
+        dao.findAll().forEach(dao::heartbeat);
+
+        List<Migration> migrations = dao.findAll();
+        assertThat(migrations).filteredOn(Migration::isRunning).singleElement().satisfies(m -> assertThat(m.getHeartbeat()).isAfter(before));
+        assertThat(migrations).filteredOn(m -> !m.isRunning()).allSatisfy(m -> assertThat(m.getHeartbeat()).isNull());
+    }
+
+    @Test
+    void shouldKeepCheckpointUntilSuccessful() {
+        SchemaVersionDAO dao = new DefaultSchemaVersionDAO(this.collection);
+        Migration migration = dao.findAll().stream().filter(Migration::isFailed).findFirst().orElseThrow();
+
+        dao.save(migration.running());
+        dao.checkpoint(migration.checkpoint(new Document("lastId", 9).append("batches", 1L)));
+        dao.save(migration.failed(new IllegalStateException("failover")));
+
+        Migration failed = dao.findAll().stream().filter(Migration::isFailed).findFirst().orElseThrow();
+        assertThat(failed.getCheckpoint()).hasValueSatisfying(c -> assertThat(c.get("lastId")).isEqualTo(9));
+
+        dao.save(migration.running());
+        dao.save(migration.successful(new Document("ok", 1.0)));
+
+        assertThat(dao.findAll()).allSatisfy(m -> assertThat(m.getCheckpoint()).isEmpty());
+    }
+
     @SuppressWarnings("SameParameterValue")
     private void persistMigration(String version,
                                   String description,
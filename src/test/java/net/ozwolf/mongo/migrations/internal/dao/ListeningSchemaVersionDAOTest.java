@@ -0,0 +1,47 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.MigrationListener;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ListeningSchemaVersionDAOTest {
+    private final SchemaVersionDAO delegate = mock(SchemaVersionDAO.class);
+    private final MigrationListener listener = mock(MigrationListener.class);
+    private final ListeningSchemaVersionDAO dao = new ListeningSchemaVersionDAO(delegate, listener, "trek");
+
+    @Test
+    void shouldTimeWrites() {
+        Migration migration = new Migration(new MigrationCommand("1.0.0", "First", null, new HashMap<>()));
+
+        dao.save(migration);
+        dao.heartbeat(migration);
+        dao.flush();
+        dao.findAll();
+
+        verify(delegate).save(migration);
+        verify(delegate).heartbeat(migration);
+        verify(delegate).flush();
+        verify(listener).onSchemaVersionWrite(eq("trek"), eq("save"), anyLong());
+        verify(listener).onSchemaVersionWrite(eq("trek"), eq("heartbeat"), anyLong());
+        verify(listener).onSchemaVersionWrite(eq("trek"), eq("flush"), anyLong());
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void shouldNotReportFailedWrites() {
+        doThrow(new IllegalStateException("unavailable")).when(delegate).flush();
+
+        assertThatThrownBy(dao::flush).isInstanceOf(IllegalStateException.class);
+
+        verify(listener, never()).onSchemaVersionWrite(anyString(), anyString(), anyLong());
+    }
+}
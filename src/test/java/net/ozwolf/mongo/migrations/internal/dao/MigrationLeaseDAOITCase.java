@@ -0,0 +1,67 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import com.mongodb.client.MongoCollection;
+import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationLease;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MigrationLeaseDAOITCase {
+    @RegisterExtension
+    final static MongoDBServerExtension DATABASE = new MongoDBServerExtension();
+
+    private final static Duration TTL = Duration.ofMinutes(1);
+
+    private MongoCollection<Document> collection;
+
+    @BeforeEach
+    void setUp() {
+        this.collection = DATABASE.getDatabase().getCollection("_schema_version");
+        this.collection.drop();
+    }
+
+    @Test
+    void shouldOnlyGrantLeaseToOneOwnerAtATime() {
+        MigrationLeaseDAO dao = new MigrationLeaseDAO(collection);
+
+        Optional<MigrationLease> first = dao.acquire("node-a", TTL);
+        Optional<MigrationLease> second = dao.acquire("node-b", TTL);
+
+        assertThat(first).hasValueSatisfying(l -> {
+            assertThat(l.getOwner()).isEqualTo("node-a");
+            assertThat(l.getToken()).isEqualTo(1L);
+        });
+        assertThat(second).isEmpty();
+        assertThat(dao.findCurrent()).hasValueSatisfying(l -> assertThat(l.getOwner()).isEqualTo("node-a"));
+    }
+
+    @Test
+    void shouldHandOverReleasedLeaseWithHigherToken() {
+        MigrationLeaseDAO dao = new MigrationLeaseDAO(collection);
+
+        MigrationLease first = dao.acquire("node-a", TTL).orElseThrow();
+        dao.release(first);
+        MigrationLease second = dao.acquire("node-b", TTL).orElseThrow();
+
+        assertThat(second.getToken()).isEqualTo(first.getToken() + 1);
+        assertThat(dao.renew(first, TTL)).isEmpty();
+        assertThat(dao.renew(second, TTL)).hasValueSatisfying(l -> assertThat(l.getToken()).isEqualTo(second.getToken()));
+    }
+
+    @Test
+    void shouldTakeOverExpiredLease() throws InterruptedException {
+        MigrationLeaseDAO dao = new MigrationLeaseDAO(collection);
+
+        dao.acquire("node-a", Duration.ofMillis(50)).orElseThrow();
+        Thread.sleep(100);
+
+        assertThat(dao.acquire("node-b", TTL)).hasValueSatisfying(l -> assertThat(l.getOwner()).isEqualTo("node-b"));
+    }
+}
@@ -0,0 +1,48 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.MigrationTracer;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TracingSchemaVersionDAOTest {
+    private final SchemaVersionDAO delegate = mock(SchemaVersionDAO.class);
+    private final MigrationTracer tracer = mock(MigrationTracer.class);
+    private final MigrationTracer.Span span = mock(MigrationTracer.Span.class);
+    private final TracingSchemaVersionDAO dao = new TracingSchemaVersionDAO(delegate, tracer, "_schema_version");
+
+    @Test
+    void shouldTraceEachCall() {
+        when(tracer.start(anyString())).thenReturn(span);
+        when(span.attribute(anyString(), anyString())).thenReturn(span);
+        Migration migration = new Migration(new MigrationCommand("1.0.0", "First", null, new HashMap<>()));
+
+        dao.save(migration);
+        dao.findAll();
+
+        verify(tracer).start("mongotrek.schema_version.save");
+        verify(tracer).start("mongotrek.schema_version.findAll");
+        verify(span, times(2)).attribute("db.mongodb.collection", "_schema_version");
+        verify(span).attribute("mongotrek.version", "1.0.0");
+        verify(span, times(2)).close();
+        verify(delegate).save(migration);
+        verify(delegate).findAll();
+    }
+
+    @Test
+    void shouldRecordFailedCalls() {
+        when(tracer.start(anyString())).thenReturn(span);
+        IllegalStateException failure = new IllegalStateException("unavailable");
+        doThrow(failure).when(delegate).flush();
+
+        assertThatThrownBy(dao::flush).isSameAs(failure);
+
+        verify(span).failed(failure);
+        verify(span).close();
+    }
+}
@@ -0,0 +1,92 @@
+package net.ozwolf.mongo.migrations.internal.dao;
+
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import static net.ozwolf.mongo.migrations.matchers.MigrationMatchers.migrationOf;
+import static net.ozwolf.mongo.migrations.internal.domain.MigrationStatus.Running;
+import static net.ozwolf.mongo.migrations.internal.domain.MigrationStatus.Successful;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class WriteBehindSchemaVersionDAOTest {
+    private final DefaultSchemaVersionDAO delegate = mock(DefaultSchemaVersionDAO.class);
+
+    @Test
+    void shouldCoalesceTransitionsAndWriteFullBatches() {
+        WriteBehindSchemaVersionDAO dao = new WriteBehindSchemaVersionDAO(delegate, 2);
+
+        Migration first = migration("1.0.0");
+        Migration second = migration("1.0.1");
+
+        dao.save(first.running());
+        dao.save(first.successful(new Document("ok", 1)));
+        verify(delegate, never()).saveAll(any());
+
+        dao.save(second.running());
+
+        ArgumentCaptor<Collection<Migration>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(delegate).saveAll(batch.capture());
+        assertThat(batch.getValue())
+                .hasSize(2)
+                .areAtLeastOne(migrationOf("1.0.0", Successful))
+                .areAtLeastOne(migrationOf("1.0.1", Running));
+    }
+
+    @Test
+    void shouldFlushBeforeCheckpoint() {
+        WriteBehindSchemaVersionDAO dao = new WriteBehindSchemaVersionDAO(delegate, 100);
+        Migration migration = migration("1.0.0");
+
+        dao.save(migration.running());
+        dao.checkpoint(migration.checkpoint(new Document("lastId", 9)));
+
+        InOrder order = inOrder(delegate);
+        order.verify(delegate).saveAll(any());
+        order.verify(delegate).checkpoint(migration);
+    }
+
+    @Test
+    void shouldFlushBeforeReading() {
+        WriteBehindSchemaVersionDAO dao = new WriteBehindSchemaVersionDAO(delegate, 100);
+
+        dao.save(migration("1.0.0").running());
+        dao.findAll();
+
+        verify(delegate).saveAll(any());
+        verify(delegate).findAll();
+    }
+
+    @Test
+    void shouldKeepPendingTransitionsWhenWriteFails() {
+        WriteBehindSchemaVersionDAO dao = new WriteBehindSchemaVersionDAO(delegate, 100);
+        doThrow(new IllegalStateException("unavailable")).doNothing().when(delegate).saveAll(any());
+
+        dao.save(migration("1.0.0").running());
+
+        try {
+            dao.flush();
+        } catch (IllegalStateException ignored) {
+        }
+        dao.flush();
+
+        ArgumentCaptor<Collection<Migration>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(delegate, times(2)).saveAll(batch.capture());
+        List<Collection<Migration>> batches = batch.getAllValues();
+        assertThat(batches.get(1)).hasSize(1).areAtLeastOne(migrationOf("1.0.0", Running));
+    }
+
+    private static Migration migration(String version) {
+        return new Migration(new MigrationCommand(version, "Migration " + version, null, new HashMap<>()));
+    }
+}
@@ -0,0 +1,51 @@
+package net.ozwolf.mongo.migrations.internal.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionKeyTest {
+    @Test
+    void shouldOrderVersionsSemantically() {
+        List<String> sorted = Arrays.asList("1.10.0", "2.0.0.1", "1.0.0-alpha.1", "1.9.0", "2.0.0", "1.0.0", "1.0.0-alpha.2", "20230101.0.0", "1.0.0-beta")
+                .stream()
+                .map(VersionKey::of)
+                .sorted()
+                .map(VersionKey::getVersion)
+                .collect(toList());
+
+        assertThat(sorted).containsExactly("1.0.0-alpha.1", "1.0.0-alpha.2", "1.0.0-beta", "1.0.0", "1.9.0", "1.10.0", "2.0.0", "2.0.0.1", "20230101.0.0");
+    }
+
+    @Test
+    void shouldSortUnreadableVersionsFirst() {
+        assertThat(VersionKey.of("rubbish").compareTo(VersionKey.of("0.0.1"))).isNegative();
+        assertThat(VersionKey.of("0.0.1").compareTo(VersionKey.of("rubbish"))).isPositive();
+        assertThat(VersionKey.of("rubbish").compareTo(VersionKey.of("rubbish"))).isZero();
+    }
+
+    @Test
+    void shouldProduceSortKeysInTheSameOrder() {
+        List<String> versions = Arrays.asList("1.10.0", "2.0.0.1", "1.0.0-alpha.1", "1.9.0", "2.0.0", "1.0.0", "1.0.0-alpha.2", "20230101.0.0", "1.0.0-beta", "1.0.0-alpha", "1.0.0-alpha.beta", "1.0.0-alpha-x", "1.0.0-rc.10", "1.0.0-rc.9", "rubbish");
+
+        List<String> bySortKey = versions.stream()
+                .map(VersionKey::of)
+                .sorted(Comparator.comparing(VersionKey::toSortKey))
+                .map(VersionKey::getVersion)
+                .collect(toList());
+
+        List<String> byKey = versions.stream()
+                .map(VersionKey::of)
+                .sorted()
+                .map(VersionKey::getVersion)
+                .collect(toList());
+
+        assertThat(bySortKey).isEqualTo(byKey);
+        assertThat(bySortKey.get(0)).isEqualTo("rubbish");
+    }
+}
@@ -0,0 +1,92 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckpointedBatchUpdateITCase {
+    @RegisterExtension
+    final static MongoDBServerExtension DATABASE = new MongoDBServerExtension();
+
+    private MongoCollection<Document> people;
+
+    @BeforeEach
+    void setUp() {
+        people = DATABASE.getDatabase().getCollection("people");
+        people.drop();
+
+        List<Document> documents = new ArrayList<>();
+        for (int i = 1; i <= 25; i++)
+            documents.add(new Document("_id", i).append("age", i % 2 == 0 ? 30 : 40));
+        people.insertMany(documents);
+    }
+
+    @Test
+    void shouldUpdateInCheckpointedBatches() {
+        Recorder recorder = new Recorder(null);
+
+        Document result = new CheckpointedBatchUpdate().run(DATABASE.getDatabase(), command(), recorder, null);
+
+        assertThat(people.countDocuments(Filters.eq("status", "senior"))).isEqualTo(13L);
+        assertThat(people.countDocuments(Filters.exists("status"))).isEqualTo(13L);
+        assertThat(result.getLong("nMatched")).isEqualTo(13L);
+        assertThat(result.getLong("nModified")).isEqualTo(13L);
+        assertThat(result.containsKey("resumedFrom")).isFalse();
+        assertThat(recorder.checkpoints).hasSize(result.getLong("batches").intValue());
+        assertThat(recorder.checkpoints.get(0).get("lastId")).isEqualTo(9);
+        assertThat(recorder.checkpoints.get(recorder.checkpoints.size() - 1).get("lastId")).isEqualTo(25);
+    }
+
+    @Test
+    void shouldCarryOnFromCheckpoint() {
+        Recorder recorder = new Recorder(new Document("lastId", 9).append("batches", 1L).append("nMatched", 5L).append("nModified", 5L).append("batchSize", 5));
+
+        Document result = new CheckpointedBatchUpdate().run(DATABASE.getDatabase(), command(), recorder, null);
+
+        assertThat(people.countDocuments(Filters.and(Filters.lte("_id", 9), Filters.exists("status")))).isEqualTo(0L);
+        assertThat(people.countDocuments(Filters.and(Filters.gt("_id", 9), Filters.eq("status", "senior")))).isEqualTo(8L);
+        assertThat(result.getLong("nMatched")).isEqualTo(13L);
+        assertThat(result.get("resumedFrom")).isEqualTo(9);
+    }
+
+    private static Map<String, Object> command() {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("batchUpdate", "people");
+        command.put("filter", new Document("age", 40));
+        command.put("update", new Document("$set", new Document("status", "senior")));
+        command.put("batchSize", 5);
+        command.put("targetBatchMillis", 60_000);
+        return command;
+    }
+
+    private static class Recorder implements CheckpointedBatchUpdate.Checkpoint {
+        private final Document last;
+        private final List<Document> checkpoints = new ArrayList<>();
+
+        private Recorder(Document last) {
+            this.last = last;
+        }
+
+        @Override
+        public Optional<Document> last() {
+            return Optional.ofNullable(last);
+        }
+
+        @Override
+        public void record(Document checkpoint) {
+            checkpoints.add(checkpoint);
+        }
+    }
+}
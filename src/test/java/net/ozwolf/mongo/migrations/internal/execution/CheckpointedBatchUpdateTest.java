@@ -0,0 +1,48 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class CheckpointedBatchUpdateTest {
+    @Test
+    void shouldResizeBatchesTowardsTargetDuration() {
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(1_000, 500_000_000L, 1_000_000_000L)).isEqualTo(2_000);
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(1_000, 1_250_000_000L, 1_000_000_000L)).isEqualTo(800);
+    }
+
+    @Test
+    void shouldAtMostHalveOrDoubleBatches() {
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(1_000, 1_000L, 1_000_000_000L)).isEqualTo(2_000);
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(1_000, 60_000_000_000L, 1_000_000_000L)).isEqualTo(500);
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(1, 60_000_000_000L, 1_000_000_000L)).isEqualTo(1);
+        assertThat(CheckpointedBatchUpdate.nextBatchSize(WriteCommandBatcher.MAX_WRITE_BATCH_SIZE, 1_000L, 1_000_000_000L)).isEqualTo(WriteCommandBatcher.MAX_WRITE_BATCH_SIZE);
+    }
+
+    @Test
+    void shouldOnlyRecogniseBatchUpdates() {
+        Map<String, Object> batchUpdate = new LinkedHashMap<>();
+        batchUpdate.put("batchUpdate", "people");
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("update", "people");
+
+        assertThat(CheckpointedBatchUpdate.isBatchUpdate(batchUpdate)).isTrue();
+        assertThat(CheckpointedBatchUpdate.isBatchUpdate(update)).isFalse();
+    }
+
+    @Test
+    void shouldRequireAnUpdate() {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("batchUpdate", "people");
+
+        assertThatThrownBy(() -> new CheckpointedBatchUpdate().run(mock(MongoDatabase.class), command, CheckpointedBatchUpdate.Checkpoint.NONE, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("[ batchUpdate ] of [ people ] requires an [ update ] document or pipeline.");
+    }
+}
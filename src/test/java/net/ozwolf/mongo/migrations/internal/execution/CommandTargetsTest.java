@@ -0,0 +1,49 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandTargetsTest {
+    @Test
+    void shouldInferCollectionOfCollectionCommands() {
+        assertThat(CommandTargets.of(new Document("insert", "people").append("documents", List.of())))
+                .hasValueSatisfying(t -> assertThat(t).containsExactly("people"));
+        assertThat(CommandTargets.of(new Document("createIndexes", "towns").append("indexes", List.of())))
+                .hasValueSatisfying(t -> assertThat(t).containsExactly("towns"));
+    }
+
+    @Test
+    void shouldIncludeCollectionsReferencedByAggregations() {
+        Document command = new Document("aggregate", "people")
+                .append("pipeline", List.of(
+                        new Document("$lookup", new Document("from", "towns")),
+                        new Document("$facet", new Document("all", List.of(new Document("$unionWith", "villages")))),
+                        new Document("$merge", new Document("into", "summary"))
+                ))
+                .append("cursor", new Document());
+
+        assertThat(CommandTargets.of(command)).hasValueSatisfying(t -> assertThat(t).containsExactly("people", "summary", "towns", "villages"));
+    }
+
+    @Test
+    void shouldIncludeViewSourceAndMapReduceOutput() {
+        assertThat(CommandTargets.of(new Document("create", "adults").append("viewOn", "people")))
+                .hasValueSatisfying(t -> assertThat(t).containsExactly("adults", "people"));
+        assertThat(CommandTargets.of(new Document("mapReduce", "people").append("out", new Document("merge", "totals"))))
+                .hasValueSatisfying(t -> assertThat(t).containsExactly("people", "totals"));
+        assertThat(CommandTargets.of(new Document("mapReduce", "people").append("out", new Document("inline", 1))))
+                .hasValueSatisfying(t -> assertThat(t).containsExactly("people"));
+    }
+
+    @Test
+    void shouldReportUnknownTargets() {
+        assertThat(CommandTargets.of(new Document("dropDatabase", 1))).isEmpty();
+        assertThat(CommandTargets.of(new Document("renameCollection", "db.a").append("to", "db.b"))).isEmpty();
+        assertThat(CommandTargets.of(new Document("mapReduce", "people").append("out", new Document("replace", "totals").append("db", "other")))).isEmpty();
+        assertThat(CommandTargets.of(new Document("aggregate", 1).append("pipeline", List.of()))).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class DataFileInsertTest {
+    private final MongoDatabase database = mock(MongoDatabase.class);
+    private final MongoCollection<RawBsonDocument> collection = mock(MongoCollection.class);
+    private final List<List<RawBsonDocument>> batches = new ArrayList<>();
+
+    private final static URL ORIGIN = DataFileInsertTest.class.getClassLoader().getResource("fixtures/data-file-migrations.yml");
+
+    @BeforeEach
+    void setUp() {
+        when(database.getCollection("countries", RawBsonDocument.class)).thenReturn(collection);
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(i -> {
+            batches.add(new ArrayList<>((List<RawBsonDocument>) i.getArgument(0)));
+            return null;
+        });
+    }
+
+    @Test
+    void shouldStreamLineDelimitedDocumentsInBatches() {
+        assertStreamedInBatches("data/countries.jsonl");
+    }
+
+    @Test
+    void shouldStreamDocumentArraysInBatches() {
+        assertStreamedInBatches("data/countries.json");
+    }
+
+    @Test
+    void shouldStreamGzippedDocumentsInBatches() {
+        assertStreamedInBatches("data/countries.jsonl.gz");
+    }
+
+    @Test
+    void shouldReportWriteErrorsAgainstTheirPositionInTheFile() {
+        doReturn(null)
+                .doThrow(bulkWriteException(1, 1))
+                .doReturn(null)
+                .when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        Map<String, Object> command = command("data/countries.jsonl");
+        command.put("ordered", false);
+
+        Document result = new DataFileInsert(2).run(database, command, ORIGIN);
+
+        verify(collection, times(3)).insertMany(anyList(), any(InsertManyOptions.class));
+        assertThat(result.getInteger("n")).isEqualTo(4);
+        assertThat(result.getList("writeErrors", Document.class))
+                .extracting(d -> d.getInteger("index"))
+                .containsExactly(3);
+    }
+
+    @Test
+    void shouldStopOrderedInsertAtFirstWriteError() {
+        doThrow(bulkWriteException(0, 0))
+                .when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        Document result = new DataFileInsert(2).run(database, command("data/countries.jsonl"), ORIGIN);
+
+        verify(collection, times(1)).insertMany(anyList(), any(InsertManyOptions.class));
+        assertThat(result.getInteger("n")).isEqualTo(0);
+        assertThat(result.getList("writeErrors", Document.class)).hasSize(1);
+    }
+
+    @Test
+    void shouldOnlyHandleInsertsWithDataFiles() {
+        assertThat(DataFileInsert.isDataFileInsert(command("data/countries.jsonl"))).isTrue();
+        assertThat(DataFileInsert.isDataFileInsert(Map.of("insert", "countries"))).isFalse();
+        assertThat(DataFileInsert.isDataFileInsert(Map.of("update", "countries", "documentsFrom", "x.jsonl"))).isFalse();
+    }
+
+    private void assertStreamedInBatches(String file) {
+        Document result = new DataFileInsert(2).run(database, command(file), ORIGIN);
+
+        assertThat(result.getInteger("n")).isEqualTo(5);
+        assertThat(batches).extracting(List::size).containsExactly(2, 2, 1);
+
+        BsonDocument first = batches.get(0).get(0);
+        assertThat(first.getString("code").getValue()).isEqualTo("C00");
+        assertThat(first.isDateTime("joined")).isTrue();
+    }
+
+    private static MongoBulkWriteException bulkWriteException(int inserted, int failedIndex) {
+        BulkWriteError duplicate = new BulkWriteError(11000, "duplicate key", new BsonDocument(), failedIndex);
+        return new MongoBulkWriteException(BulkWriteResult.acknowledged(inserted, 0, 0, 0, List.of(), List.of()), List.of(duplicate), null, new ServerAddress(), Set.of());
+    }
+
+    private static Map<String, Object> command(String file) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("insert", "countries");
+        command.put("documentsFrom", file);
+        return command;
+    }
+}
@@ -0,0 +1,107 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexBuildConsolidatorTest {
+    @Test
+    void shouldOnlyConsolidatePlainIdempotentIndexBuilds() {
+        Map<String, Object> withOptions = createIndexes("people", "name");
+        withOptions.put("commitQuorum", "majority");
+
+        assertThat(IndexBuildConsolidator.isConsolidatable(migration("1.0.0", createIndexes("people", "name")))).isTrue();
+        assertThat(IndexBuildConsolidator.isConsolidatable(migration("1.0.1", withOptions))).isFalse();
+        assertThat(IndexBuildConsolidator.isConsolidatable(migration("1.0.2", Map.of("insert", "people")))).isFalse();
+        assertThat(IndexBuildConsolidator.isConsolidatable(new Migration(new MigrationCommand("1.0.3", "Migration 1.0.3", "test", createIndexes("people", "age")).idempotent(false)))).isFalse();
+    }
+
+    @Test
+    void shouldSplitPendingMigrationsIntoRuns() {
+        Migration a = migration("1.0.0", createIndexes("people", "name"));
+        Migration b = migration("1.0.1", createIndexes("towns", "name"));
+        Migration c = migration("1.0.2", createIndexes("people", "age"));
+        Migration d = migration("1.0.3", Map.of("insert", "people"));
+        Migration e = migration("1.0.4", createIndexes("people", "town"));
+        Migration f = migration("1.0.5", createIndexes("towns", "population"), "1.0.4");
+
+        List<List<Migration>> runs = IndexBuildConsolidator.runs(List.of(a, b, c, d, e, f));
+
+        assertThat(runs).containsExactly(List.of(a, b, c), List.of(d), List.of(e), List.of(f));
+        assertThat(IndexBuildConsolidator.buildsOf(runs.get(0))).containsExactly(
+                Map.entry("people", List.of(a, c)),
+                Map.entry("towns", List.of(b))
+        );
+    }
+
+    @Test
+    void shouldMergeIndexesOfBuild() {
+        Migration a = migration("1.0.0", createIndexes("people", "name"));
+        Migration c = migration("1.0.2", createIndexes("people", "age"));
+
+        BasicDBObject merged = IndexBuildConsolidator.merge(List.of(a, c));
+
+        assertThat(merged.keySet()).containsExactly("createIndexes", "indexes");
+        assertThat(merged.getString("createIndexes")).isEqualTo("people");
+        assertThat(((List<?>) merged.get("indexes")).stream().map(i -> (Object) ((Map<?, ?>) i).get("name"))).containsExactly("name_1", "age_1");
+    }
+
+    @Test
+    void shouldBuildCollectionsConcurrently() {
+        Migration a = migration("1.0.0", createIndexes("people", "name"));
+        Migration b = migration("1.0.1", createIndexes("towns", "name"));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Set<String> built = Collections.synchronizedSet(new HashSet<>());
+
+        new IndexBuildConsolidator().run(List.of(a, b), build -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS))
+                    throw new IllegalStateException("Index builds were not applied concurrently.");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            built.add(IndexBuildConsolidator.collectionOf(build.get(0)));
+        });
+
+        assertThat(built).containsExactlyInAnyOrder("people", "towns");
+    }
+
+    @Test
+    void shouldRethrowFailureOfLowestVersionAfterOtherBuildsFinish() {
+        Migration a = migration("1.0.0", createIndexes("people", "name"));
+        Migration b = migration("1.0.1", createIndexes("towns", "name"));
+        Migration c = migration("1.0.2", createIndexes("villages", "name"));
+        Set<String> built = Collections.synchronizedSet(new HashSet<>());
+
+        assertThatThrownBy(() -> new IndexBuildConsolidator().run(List.of(a, b, c), build -> {
+            String collection = IndexBuildConsolidator.collectionOf(build.get(0));
+            if (!collection.equals("towns"))
+                throw new IllegalStateException("Failed to index " + collection);
+            built.add(collection);
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Failed to index people");
+
+        assertThat(built).containsExactly("towns");
+    }
+
+    private static Map<String, Object> createIndexes(String collection, String field) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("createIndexes", collection);
+        command.put("indexes", List.of(new BasicDBObject("key", new BasicDBObject(field, 1)).append("name", field + "_1")));
+        return command;
+    }
+
+    private static Migration migration(String version, Map<String, Object> command, String... dependsOn) {
+        return new Migration(new MigrationCommand(version, "Migration " + version, "test", command).dependsOn(Arrays.asList(dependsOn)));
+    }
+}
@@ -0,0 +1,92 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.JavaMigration;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class JavaMigrationRunnerTest {
+    private final MongoDatabase database = mock(MongoDatabase.class);
+    private final JavaMigrationRunner runner = new JavaMigrationRunner(JavaMigrationRunnerTest.class.getClassLoader());
+
+    @Test
+    void shouldRunJavaMigration() {
+        assertThat(runner.run(database, command(Counting.class))).isEqualTo(new Document("n", 3));
+    }
+
+    @Test
+    void shouldRecordOkWithoutResult() {
+        assertThat(runner.run(database, command(NoResult.class))).isEqualTo(new Document("ok", 1.0));
+    }
+
+    @Test
+    void shouldWrapCheckedFailures() {
+        assertThatThrownBy(() -> runner.run(database, command(Failing.class)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(String.format("Java migration [ %s ] failed: disk full", Failing.class.getName()))
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldRejectClassesThatAreNotJavaMigrations() {
+        assertThatThrownBy(() -> runner.run(database, command(String.class)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Class [ java.lang.String ] is not a [ net.ozwolf.mongo.migrations.JavaMigration ].");
+    }
+
+    @Test
+    void shouldFailForUnknownClasses() {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put(JavaMigrationRunner.JAVA_MIGRATION, "com.example.Missing");
+
+        assertThatThrownBy(() -> runner.run(database, command))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Java migration [ com.example.Missing ] could not be created.");
+    }
+
+    @Test
+    void shouldLoadWithGivenClassLoader() {
+        JavaMigrationRunner isolated = new JavaMigrationRunner(new ClassLoader(null) {
+        });
+
+        assertThatThrownBy(() -> isolated.run(database, command(Counting.class)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(String.format("Java migration [ %s ] could not be created.", Counting.class.getName()))
+                .hasCauseInstanceOf(ClassNotFoundException.class);
+    }
+
+    private static Map<String, Object> command(Class<?> type) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put(JavaMigrationRunner.JAVA_MIGRATION, type.getName());
+        return command;
+    }
+
+    public static class Counting implements JavaMigration {
+        @Override
+        public Document migrate(MongoDatabase database) {
+            return new Document("n", 3);
+        }
+    }
+
+    public static class NoResult implements JavaMigration {
+        @Override
+        public Document migrate(MongoDatabase database) {
+            return null;
+        }
+    }
+
+    public static class Failing implements JavaMigration {
+        @Override
+        public Document migrate(MongoDatabase database) throws IOException {
+            throw new IOException("disk full");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MigrationSchedulerTest {
+    @Test
+    void shouldPlanDependenciesFromTargetsAndDependsOn() {
+        Migration a = migration("1.0.0", Map.of("insert", "people"));
+        Migration b = migration("1.0.1", Map.of("insert", "towns"));
+        Migration c = migration("1.0.2", Map.of("update", "people"));
+        Migration d = migration("1.0.3", Map.of("insert", "villages"), "1.0.1");
+        Migration e = migration("1.0.4", Map.of("dropDatabase", 1));
+        Migration f = migration("1.0.5", Map.of("insert", "villages"));
+
+        Map<String, Set<Migration>> plan = MigrationScheduler.plan(List.of(a, b, c, d, e, f));
+
+        assertThat(plan.get("1.0.0")).isEmpty();
+        assertThat(plan.get("1.0.1")).isEmpty();
+        assertThat(plan.get("1.0.2")).containsExactly(a);
+        assertThat(plan.get("1.0.3")).containsExactly(b);
+        assertThat(plan.get("1.0.4")).containsExactly(a, b, c, d);
+        assertThat(plan.get("1.0.5")).containsExactly(e);
+    }
+
+    @Test
+    void shouldTreatDependenciesOnAppliedMigrationsAsSatisfied() {
+        Migration b = migration("1.0.1", Map.of("insert", "towns"), "1.0.0");
+
+        assertThat(MigrationScheduler.plan(List.of(b)).get("1.0.1")).isEmpty();
+    }
+
+    @Test
+    void shouldRunIndependentMigrationsConcurrently() {
+        Migration a = migration("1.0.0", Map.of("insert", "people"));
+        Migration b = migration("1.0.1", Map.of("insert", "towns"));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Set<String> applied = ConcurrentHashMap.newKeySet();
+
+        new MigrationScheduler(2, false).run(List.of(a, b), m -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS))
+                    throw new IllegalStateException("Migrations were not applied concurrently.");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            applied.add(m.getVersion());
+        });
+
+        assertThat(applied).containsExactlyInAnyOrder("1.0.0", "1.0.1");
+    }
+
+    @Test
+    void shouldApplyDependentMigrationsInOrder() {
+        Migration a = migration("1.0.0", Map.of("insert", "people"));
+        Migration b = migration("1.0.1", Map.of("update", "people"));
+        Migration c = migration("1.0.2", Map.of("delete", "people"));
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+        new MigrationScheduler(4, true).run(List.of(c, a, b), m -> applied.add(m.getVersion()));
+
+        assertThat(applied).containsExactly("1.0.0", "1.0.1", "1.0.2");
+    }
+
+    @Test
+    void shouldStopSchedulingAndRethrowLowestFailure() {
+        Migration a = migration("1.0.0", Map.of("insert", "people"));
+        Migration b = migration("1.0.1", Map.of("insert", "towns"));
+        Migration c = migration("1.0.2", Map.of("update", "people"));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+
+        assertThatThrownBy(() -> new MigrationScheduler(2, false).run(List.of(a, b, c), m -> {
+            applied.add(m.getVersion());
+            bothStarted.countDown();
+            try {
+                bothStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalStateException("Failed " + m.getVersion());
+        })).isInstanceOf(IllegalStateException.class).hasMessage("Failed 1.0.0");
+
+        assertThat(applied).containsExactlyInAnyOrder("1.0.0", "1.0.1");
+    }
+
+    @Test
+    void shouldWaitForRunningMigrationsBeforeRethrowingError() {
+        Migration a = migration("1.0.0", Map.of("insert", "people"));
+        Migration b = migration("1.0.1", Map.of("insert", "towns"));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Set<String> finished = ConcurrentHashMap.newKeySet();
+
+        assertThatThrownBy(() -> new MigrationScheduler(2, false).run(List.of(a, b), m -> {
+            bothStarted.countDown();
+            try {
+                bothStarted.await(5, TimeUnit.SECONDS);
+                if (m == a)
+                    throw new AssertionError("Failed " + m.getVersion());
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            finished.add(m.getVersion());
+        })).isInstanceOf(AssertionError.class).hasMessage("Failed 1.0.0");
+
+        assertThat(finished).containsExactly("1.0.1");
+    }
+
+    private static Migration migration(String version, Map<String, Object> command, String... dependsOn) {
+        return new Migration(new MigrationCommand(version, "Migration " + version, "test", command).dependsOn(Arrays.asList(dependsOn)));
+    }
+}
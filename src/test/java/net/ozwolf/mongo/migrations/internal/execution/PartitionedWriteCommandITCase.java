@@ -0,0 +1,73 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import net.ozwolf.mongo.migrations.extension.MongoDBServerExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionedWriteCommandITCase {
+    @RegisterExtension
+    final static MongoDBServerExtension DATABASE = new MongoDBServerExtension();
+
+    private MongoCollection<Document> people;
+
+    @BeforeEach
+    void setUp() {
+        people = DATABASE.getDatabase().getCollection("people");
+        people.drop();
+
+        List<Document> documents = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++)
+            documents.add(new Document("_id", i).append("age", i % 2 == 0 ? 30 : 40));
+        people.insertMany(documents);
+    }
+
+    @Test
+    void shouldUpdateEachDocumentOnceAcrossPartitions() {
+        BasicDBObject command = new BasicDBObject("update", "people").append("updates", List.of(
+                new BasicDBObject("q", new BasicDBObject("age", 40)).append("u", new BasicDBObject("$inc", new BasicDBObject("visits", 1))).append("multi", true)
+        ));
+
+        Document result = new PartitionedWriteCommand(4, new WriteCommandBatcher(1_000)).run(DATABASE.getDatabase(), command);
+
+        assertThat(result.getInteger("n")).isEqualTo(500);
+        assertThat(result.getInteger("nModified")).isEqualTo(500);
+        assertThat(result.getInteger("partitions")).isGreaterThan(1);
+        assertThat(people.countDocuments(Filters.eq("visits", 1))).isEqualTo(500L);
+        assertThat(people.countDocuments(Filters.exists("visits"))).isEqualTo(500L);
+    }
+
+    @Test
+    void shouldDeleteAcrossPartitions() {
+        BasicDBObject command = new BasicDBObject("delete", "people").append("deletes", List.of(
+                new BasicDBObject("q", new BasicDBObject("age", 30)).append("limit", 0)
+        ));
+
+        Document result = new PartitionedWriteCommand(4, new WriteCommandBatcher(1_000)).run(DATABASE.getDatabase(), command);
+
+        assertThat(result.getInteger("n")).isEqualTo(500);
+        assertThat(people.countDocuments()).isEqualTo(500L);
+    }
+
+    @Test
+    void shouldNotPartitionEmptyCollection() {
+        people.drop();
+        BasicDBObject command = new BasicDBObject("delete", "people").append("deletes", List.of(
+                new BasicDBObject("q", new BasicDBObject()).append("limit", 0)
+        ));
+
+        Document result = new PartitionedWriteCommand(4, new WriteCommandBatcher(1_000)).run(DATABASE.getDatabase(), command);
+
+        assertThat(result.getInteger("n")).isEqualTo(0);
+        assertThat(result.containsKey("partitions")).isFalse();
+    }
+}
@@ -0,0 +1,115 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class PartitionedWriteCommandTest {
+    @Test
+    void shouldOnlyPartitionMultiDocumentWritesWithoutUpserts() {
+        assertThat(PartitionedWriteCommand.isPartitionable(update(new BasicDBObject("q", new BasicDBObject()).append("u", set()).append("multi", true)))).isTrue();
+        assertThat(PartitionedWriteCommand.isPartitionable(update(new BasicDBObject("q", new BasicDBObject()).append("u", set())))).isFalse();
+        assertThat(PartitionedWriteCommand.isPartitionable(update(new BasicDBObject("q", new BasicDBObject()).append("u", set()).append("multi", true).append("upsert", true)))).isFalse();
+        assertThat(PartitionedWriteCommand.isPartitionable(delete(new BasicDBObject("q", new BasicDBObject()).append("limit", 0)))).isTrue();
+        assertThat(PartitionedWriteCommand.isPartitionable(delete(new BasicDBObject("q", new BasicDBObject()).append("limit", 1)))).isFalse();
+        assertThat(PartitionedWriteCommand.isPartitionable(new BasicDBObject("insert", "people").append("documents", List.of(new BasicDBObject("name", "Homer"))))).isFalse();
+    }
+
+    @Test
+    void shouldRestrictEveryStatementToEachRange() {
+        BasicDBObject command = update(
+                new BasicDBObject("q", new BasicDBObject("age", 30)).append("u", set()).append("multi", true),
+                new BasicDBObject("q", new BasicDBObject()).append("u", set()).append("multi", true)
+        ).append("ordered", false);
+
+        List<BasicDBObject> partitions = PartitionedWriteCommand.partition(command, List.of(10, 20));
+
+        assertThat(partitions).hasSize(3);
+        assertThat(partitions).allSatisfy(p -> assertThat(p.getBoolean("ordered")).isFalse());
+        assertThat(statement(partitions.get(0), 0).get("q")).isEqualTo(new Document("$and", List.of(new BasicDBObject("age", 30), new Document("_id", new Document("$lt", 10)))));
+        assertThat(statement(partitions.get(1), 1).get("q")).isEqualTo(new Document("_id", new Document("$gte", 10).append("$lt", 20)));
+        assertThat(statement(partitions.get(2), 1).get("q")).isEqualTo(new Document("_id", new Document("$gte", 20)));
+        assertThat(statement(partitions.get(2), 1).get("multi")).isEqualTo(true);
+        assertThat(statement(command, 1).get("q")).isEqualTo(new BasicDBObject());
+    }
+
+    @Test
+    void shouldMergePartitionResults() {
+        Document merged = PartitionedWriteCommand.merge(List.of(
+                new Document("n", 3).append("nModified", 2).append("ok", 1.0),
+                new Document("n", 4).append("nModified", 4).append("writeErrors", List.of(new Document("index", 0).append("code", 121))).append("ok", 1.0)
+        ));
+
+        assertThat(merged.getInteger("n")).isEqualTo(7);
+        assertThat(merged.getInteger("nModified")).isEqualTo(6);
+        assertThat(merged.getInteger("partitions")).isEqualTo(2);
+        assertThat(merged.getList("writeErrors", Document.class)).singleElement().satisfies(e -> assertThat(e.getInteger("index")).isEqualTo(0));
+        assertThat(merged.getDouble("ok")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldRejectCommandsThatCannotBePartitioned() {
+        BasicDBObject command = update(new BasicDBObject("q", new BasicDBObject()).append("u", set()));
+
+        assertThatThrownBy(() -> new PartitionedWriteCommand(4, new WriteCommandBatcher(1_000)).run(mock(MongoDatabase.class), command))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("[ parallelism ] only applies to multi-document [ update ] and [ delete ] commands that do not upsert.");
+    }
+
+    @Test
+    void shouldTreatNumbersAsOneIdType() {
+        assertThat(PartitionedWriteCommand.isSameType(1, 2.5)).isTrue();
+        assertThat(PartitionedWriteCommand.isSameType(new ObjectId(), new ObjectId())).isTrue();
+        assertThat(PartitionedWriteCommand.isSameType(1, "a")).isFalse();
+        assertThat(PartitionedWriteCommand.isSameType(null, 1)).isFalse();
+    }
+
+    @Test
+    void shouldNotPartitionCollectionsWithMixedIdTypes() {
+        MongoDatabase database = mock(MongoDatabase.class);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<Document> found = mock(FindIterable.class);
+        when(database.getCollection("people")).thenReturn(collection);
+        when(collection.find()).thenReturn(found);
+        when(found.projection(any())).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.limit(1)).thenReturn(found);
+        when(found.first()).thenReturn(new Document("_id", 1), new Document("_id", "a"));
+
+        WriteCommandBatcher batcher = mock(WriteCommandBatcher.class);
+        BasicDBObject command = update(new BasicDBObject("q", new BasicDBObject()).append("u", set()).append("multi", true));
+        when(batcher.run(database, command)).thenReturn(new Document("n", 2).append("ok", 1.0));
+
+        assertThat(new PartitionedWriteCommand(4, batcher).run(database, command)).isEqualTo(new Document("n", 2).append("ok", 1.0));
+        verify(collection, never()).aggregate(anyList());
+    }
+
+    private static BasicDBObject update(BasicDBObject... statements) {
+        return new BasicDBObject("update", "people").append("updates", List.of(statements));
+    }
+
+    private static BasicDBObject delete(BasicDBObject... statements) {
+        return new BasicDBObject("delete", "people").append("deletes", List.of(statements));
+    }
+
+    private static BasicDBObject set() {
+        return new BasicDBObject("$set", new BasicDBObject("status", "senior"));
+    }
+
+    private static BasicDBObject statement(BasicDBObject command, int index) {
+        return (BasicDBObject) ((List<?>) command.get(command.containsField("updates") ? "updates" : "deletes")).get(index);
+    }
+}
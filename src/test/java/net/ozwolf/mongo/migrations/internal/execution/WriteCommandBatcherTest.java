@@ -0,0 +1,130 @@
+package net.ozwolf.mongo.migrations.internal.execution;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.MongoDatabase;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WriteCommandBatcherTest {
+    private final MongoDatabase database = mock(MongoDatabase.class);
+
+    @Test
+    void shouldSendSmallCommandsUnchanged() {
+        BasicDBObject command = insert(3, "");
+
+        assertThat(new WriteCommandBatcher(10).split(command)).containsExactly(command);
+    }
+
+    @Test
+    void shouldSplitByDocumentCount() {
+        List<BasicDBObject> batches = new WriteCommandBatcher(2).split(insert(5, "").append("ordered", false));
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches).allSatisfy(b -> {
+            assertThat(b.keySet()).containsExactly("insert", "documents", "ordered");
+            assertThat(b.getString("insert")).isEqualTo("people");
+            assertThat(b.getBoolean("ordered")).isFalse();
+        });
+        assertThat(batches.get(2).get("documents")).asList().hasSize(1);
+    }
+
+    @Test
+    void shouldSplitByBytes() {
+        String padding = StringUtils.repeat('x', 1000);
+
+        List<BasicDBObject> batches = new WriteCommandBatcher(100, 2500).split(insert(5, padding));
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(0).get("documents")).asList().hasSize(2);
+    }
+
+    @Test
+    void shouldMergeBatchResultsWithOriginalIndexes() {
+        when(database.runCommand(any(Bson.class)))
+                .thenReturn(new Document("n", 1).append("nModified", 1).append("upserted", List.of(new Document("index", 1).append("_id", "a"))).append("ok", 1.0))
+                .thenReturn(new Document("n", 2).append("nModified", 0).append("upserted", List.of(new Document("index", 0).append("_id", "b"))).append("ok", 1.0));
+
+        BasicDBObject command = new BasicDBObject("update", "people").append("updates", updates(4));
+
+        Document result = new WriteCommandBatcher(2).run(database, command);
+
+        assertThat(result.getInteger("n")).isEqualTo(3);
+        assertThat(result.getInteger("nModified")).isEqualTo(1);
+        assertThat(result.getList("upserted", Document.class))
+                .extracting(d -> d.getInteger("index"))
+                .containsExactly(1, 2);
+        assertThat(result.getDouble("ok")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldStopOrderedCommandsAtFirstBatchWithWriteErrors() {
+        when(database.runCommand(any(Bson.class)))
+                .thenReturn(new Document("n", 2).append("ok", 1.0))
+                .thenReturn(new Document("n", 0).append("writeErrors", List.of(new Document("index", 0).append("code", 11000))).append("ok", 1.0))
+                .thenReturn(new Document("n", 1).append("ok", 1.0));
+
+        Document result = new WriteCommandBatcher(2).run(database, insert(5, ""));
+
+        verify(database, times(2)).runCommand(any(Bson.class));
+        assertThat(result.getInteger("n")).isEqualTo(2);
+        assertThat(result.getList("writeErrors", Document.class))
+                .extracting(d -> d.getInteger("index"))
+                .containsExactly(2);
+    }
+
+    @Test
+    void shouldContinueUnorderedCommandsPastWriteErrors() {
+        when(database.runCommand(any(Bson.class)))
+                .thenReturn(new Document("n", 1).append("writeErrors", List.of(new Document("index", 1).append("code", 11000))).append("ok", 1.0))
+                .thenReturn(new Document("n", 2).append("ok", 1.0))
+                .thenReturn(new Document("n", 1).append("ok", 1.0));
+
+        Document result = new WriteCommandBatcher(2).run(database, insert(5, "").append("ordered", false));
+
+        verify(database, times(3)).runCommand(any(Bson.class));
+        assertThat(result.getInteger("n")).isEqualTo(4);
+        assertThat(result.getList("writeErrors", Document.class)).hasSize(1);
+    }
+
+    @Test
+    void shouldRunBatchesAsynchronouslyInOrder() {
+        List<BasicDBObject> sent = new ArrayList<>();
+        Document second = new Document("n", 0).append("writeErrors", List.of(new Document("index", 1).append("code", 11000))).append("ok", 1.0);
+
+        Document result = new WriteCommandBatcher(2).runAsync(batch -> {
+            sent.add(batch);
+            return CompletableFuture.completedFuture(sent.size() == 2 ? second : new Document("n", 2).append("ok", 1.0));
+        }, insert(5, "")).toCompletableFuture().join();
+
+        assertThat(sent).hasSize(2);
+        assertThat(result.getInteger("n")).isEqualTo(2);
+        assertThat(result.getList("writeErrors", Document.class))
+                .extracting(d -> d.getInteger("index"))
+                .containsExactly(3);
+    }
+
+    private static BasicDBObject insert(int count, String padding) {
+        List<Object> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            documents.add(new BasicDBObject("name", "person " + i).append("padding", padding));
+        return new BasicDBObject("insert", "people").append("documents", documents);
+    }
+
+    private static List<Object> updates(int count) {
+        Object[] updates = new Object[count];
+        for (int i = 0; i < count; i++)
+            updates[i] = new BasicDBObject("q", new BasicDBObject("name", "person " + i)).append("u", new BasicDBObject("$set", new BasicDBObject("seen", true))).append("upsert", true);
+        return Arrays.asList(updates);
+    }
+}
@@ -0,0 +1,149 @@
+package net.ozwolf.mongo.migrations.internal.factory;
+
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.mongodb.BasicDBObject;
+import net.ozwolf.mongo.migrations.MongoTrek;
+import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class CompiledCatalogTest {
+    private final static ClassLoader CLASS_LOADER = MongoTrek.class.getClassLoader();
+
+    @Test
+    void shouldRoundTripCompiledCatalog() throws MongoTrekFailureException, IOException {
+        MigrationCommandsFactory factory = new MigrationCommandsFactory();
+        MigrationCommands source = factory.getCommands("fixtures/last-failure-migrations.yml", CLASS_LOADER);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        factory.compile("fixtures/last-failure-migrations.yml", CLASS_LOADER, output);
+
+        URL location = new URL(CLASS_LOADER.getResource("fixtures/last-failure-migrations.yml"), "last-failure-migrations.yml.mtc");
+        MigrationCommands compiled = CompiledCatalog.read(new ByteArrayInputStream(output.toByteArray()), location).orElseThrow(() -> new AssertionError("Not read as a compiled catalog."));
+
+        assertSameCommands(compiled, source);
+        assertThat(compiled.getFingerprint()).isEqualTo(source.getFingerprint());
+        assertThat(compiled.getMigrations().get(0).getOrigin()).isEqualTo(source.getMigrations().get(0).getOrigin());
+    }
+
+    @Test
+    void shouldNotReadSourceCatalogAsCompiled() throws IOException {
+        byte[] yaml = Files.readAllBytes(Path.of("src/test/resources/fixtures/zero-migrations.yml"));
+
+        assertThat(CompiledCatalog.read(new ByteArrayInputStream(yaml), Path.of("src/test/resources/fixtures/zero-migrations.yml.mtc").toUri().toURL())).isEmpty();
+    }
+
+    @Test
+    void shouldPreferCompiledCatalogWhenPresent(@TempDir Path directory) throws MongoTrekFailureException, IOException {
+        MigrationCommandsFactory factory = new MigrationCommandsFactory();
+        Path compiledFile = directory.resolve("trek.yml" + CompiledCatalog.EXTENSION);
+        try (OutputStream output = Files.newOutputStream(compiledFile)) {
+            factory.compile("fixtures/migrations-deserialization-test.yml", CLASS_LOADER, output);
+        }
+
+        // Only the compiled catalog exists, so this would fail if it was not detected.
+        MigrationCommands commands = factory.getCommands(directory.resolve("trek.yml").toString(), CLASS_LOADER);
+
+        assertSameCommands(commands, factory.getCommands("fixtures/migrations-deserialization-test.yml", CLASS_LOADER));
+    }
+
+    @Test
+    void shouldUseSourceWhenCompiledCatalogIsStale(@TempDir Path directory) throws MongoTrekFailureException, IOException {
+        MigrationCommandsFactory factory = new MigrationCommandsFactory();
+        Path sourceFile = directory.resolve("migrations-deserialization-test.yml");
+        Files.copy(Path.of("src/test/resources/fixtures/migrations-deserialization-test.yml"), sourceFile);
+        try (OutputStream output = Files.newOutputStream(directory.resolve("migrations-deserialization-test.yml" + CompiledCatalog.EXTENSION))) {
+            factory.compile("fixtures/last-failure-migrations.yml", CLASS_LOADER, output);
+        }
+
+        MigrationCommands commands = factory.getCommands(sourceFile.toString(), CLASS_LOADER);
+
+        assertSameCommands(commands, factory.getCommands("fixtures/migrations-deserialization-test.yml", CLASS_LOADER));
+    }
+
+    @Test
+    void shouldUseCompiledCatalogMatchingItsSource(@TempDir Path directory) throws MongoTrekFailureException, IOException {
+        MigrationCommandsFactory factory = new MigrationCommandsFactory();
+        Path sourceFile = directory.resolve("migrations-deserialization-test.yml");
+        Files.copy(Path.of("src/test/resources/fixtures/migrations-deserialization-test.yml"), sourceFile);
+        try (OutputStream output = Files.newOutputStream(directory.resolve("migrations-deserialization-test.yml" + CompiledCatalog.EXTENSION))) {
+            factory.compile(sourceFile.toString(), CLASS_LOADER, output);
+        }
+
+        MigrationCommands commands = factory.getCommands(sourceFile.toString(), CLASS_LOADER);
+
+        assertThat(commands.getFingerprint()).isEqualTo(factory.getCommands("fixtures/migrations-deserialization-test.yml", CLASS_LOADER).getFingerprint());
+        assertSameCommands(commands, factory.getCommands("fixtures/migrations-deserialization-test.yml", CLASS_LOADER));
+    }
+
+    @Test
+    void shouldLoadCompiledCatalogBesideItsSourceWithoutParsing(@TempDir Path directory) throws MongoTrekFailureException, IOException {
+        Path sourceFile = directory.resolve("migrations-deserialization-test.yml");
+        Files.copy(Path.of("src/test/resources/fixtures/migrations-deserialization-test.yml"), sourceFile);
+        try (OutputStream output = Files.newOutputStream(directory.resolve("migrations-deserialization-test.yml" + CompiledCatalog.EXTENSION))) {
+            new MigrationCommandsFactory().compile(sourceFile.toString(), CLASS_LOADER, output);
+        }
+
+        MigrationCommandsParser parser = spy(new MigrationCommandsParser(new YAMLMapper()));
+        MigrationCommands commands = new MigrationCommandsFactory(ForkJoinPool.commonPool(), parser).getCommands(sourceFile.toString(), CLASS_LOADER);
+
+        verify(parser, never()).parse(any());
+        assertSameCommands(commands, new MigrationCommandsFactory().getCommands("fixtures/migrations-deserialization-test.yml", CLASS_LOADER));
+    }
+
+    @Test
+    void shouldUseSourceWhenEditedAfterCompiling(@TempDir Path directory) throws MongoTrekFailureException, IOException {
+        MigrationCommandsFactory factory = new MigrationCommandsFactory();
+        Path sourceFile = directory.resolve("trek.yml");
+        Files.copy(Path.of("src/test/resources/fixtures/migrations-deserialization-test.yml"), sourceFile);
+        try (OutputStream output = Files.newOutputStream(directory.resolve("trek.yml" + CompiledCatalog.EXTENSION))) {
+            factory.compile(sourceFile.toString(), CLASS_LOADER, output);
+        }
+        Files.writeString(sourceFile, Files.readString(sourceFile).replace("My first migration", "My edited migration"));
+
+        MigrationCommands commands = factory.getCommands(sourceFile.toString(), CLASS_LOADER);
+
+        assertThat(commands.getMigrations()).anySatisfy(m -> assertThat(m.getDescription()).isEqualTo("My edited migration"));
+    }
+
+    private static void assertSameCommands(MigrationCommands actual, MigrationCommands expected) {
+        assertThat(actual.getSchemaVersionCollection()).isEqualTo(expected.getSchemaVersionCollection());
+
+        List<MigrationCommand> actualMigrations = actual.getMigrations();
+        List<MigrationCommand> expectedMigrations = expected.getMigrations();
+        assertThat(actualMigrations).hasSameSizeAs(expectedMigrations);
+
+        for (int i = 0; i < expectedMigrations.size(); i++) {
+            MigrationCommand a = actualMigrations.get(i);
+            MigrationCommand e = expectedMigrations.get(i);
+
+            assertThat(a.getVersion()).isEqualTo(e.getVersion());
+            assertThat(a.getDescription()).isEqualTo(e.getDescription());
+            assertThat(a.getAuthor()).isEqualTo(e.getAuthor());
+            assertThat(a.getChecksum()).isEqualTo(e.getChecksum());
+            assertThat(a.isIdempotent()).isEqualTo(e.isIdempotent());
+            assertThat(a.getParallelism()).isEqualTo(e.getParallelism());
+            assertThat(a.getDependsOn()).isEqualTo(e.getDependsOn());
+            assertThat(a.getOrigin().map(o -> Path.of(o.getPath()).getFileName())).isEqualTo(e.getOrigin().map(o -> Path.of(o.getPath()).getFileName()));
+            assertThat(((BasicDBObject) a.getCommand()).toJson()).isEqualTo(((BasicDBObject) e.getCommand()).toJson());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.ozwolf.mongo.migrations.internal.factory;
 
 import com.mongodb.DBObject;
 import net.ozwolf.mongo.migrations.MongoTrek;
+import net.ozwolf.mongo.migrations.exception.DuplicateVersionException;
 import net.ozwolf.mongo.migrations.exception.MongoTrekFailureException;
 import net.ozwolf.mongo.migrations.internal.domain.Migration;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
@@ -9,11 +10,16 @@ import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
 import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SuppressWarnings({"OptionalGetWithoutIsPresent", "unchecked"})
 class MigrationCommandsFactoryTest {
@@ -28,10 +34,109 @@ class MigrationCommandsFactoryTest {
         assertSecondMigration(commands.getMigrations().stream().filter(c -> c.getVersion().equalsIgnoreCase("1.0.1")).findFirst().get());
     }
 
+    @Test
+    void shouldOnlyMaterializeCommandsWhenRequested() throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/lazy-command-migrations.yml", MongoTrek.class.getClassLoader());
+
+        assertThat(commands.getSchemaVersionCollection()).contains("_lazy_schema_version");
+        assertThat(commands.getMigrations()).hasSize(2);
+
+        MigrationCommand applied = commands.getMigrations().get(0);
+        assertThat(applied.getVersion()).isEqualTo("1.0.0");
+        assertThat(applied.getDescription()).isEqualTo("Applied migration with a broken date");
+        assertThatThrownBy(applied::getCommand)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .hasRootCauseMessage("Strict $date value of [ not a date ] does not match supported date or date-time formats.");
+
+        DBObject pending = commands.getMigrations().get(1).getCommand();
+        List<Map<String, Object>> documents = (List<Map<String, Object>>) pending.get("documents");
+        assertThat(documents.get(0).get("updatedAt")).isEqualTo(Date.from(Instant.parse("2018-12-18T00:29:33.123Z")));
+    }
+
+    @Test
+    void shouldChecksumParsedCommandsTheSameAsEquivalentMaps() throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/migrations-deserialization-test.yml", MongoTrek.class.getClassLoader());
+
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("insert", "test");
+        command.put("documents", Arrays.asList(document(1, "test1"), document(2, "test2")));
+
+        MigrationCommand parsed = commands.getMigrations().get(0);
+        MigrationCommand built = new MigrationCommand("1.0.0", "My first migration", "Homer Simpson", command);
+
+        assertThat(parsed.getChecksum()).isNotNull().isEqualTo(built.getChecksum());
+        assertThat(commands.getMigrations().get(1).getChecksum()).isNotEqualTo(parsed.getChecksum());
+    }
+
+    @Test
+    void shouldRecordTheMigrationsFileEachCommandWasReadFrom() throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/data-file-migrations.yml", MongoTrek.class.getClassLoader());
+
+        MigrationCommand command = commands.getMigrations().get(0);
+        assertThat(command.getBatchSize()).contains(2);
+        assertThat(command.getOrigin()).hasValueSatisfying(o -> assertThat(o.getPath()).endsWith("/fixtures/data-file-migrations.yml"));
+        assertThat(command.getCommand().get("documentsFrom")).isEqualTo("data/countries.jsonl");
+    }
+
+    @Test
+    void shouldRecordTheClassLoaderEachCommandWasReadWith() throws MongoTrekFailureException {
+        ClassLoader classLoader = new ClassLoader(MongoTrek.class.getClassLoader()) {
+        };
+
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/migrations-deserialization-test.yml", classLoader);
+
+        assertThat(commands.getMigrations()).allSatisfy(c -> assertThat(c.getClassLoader()).isSameAs(classLoader));
+    }
+
+    @Test
+    void shouldFailWhenMigrationHasNoCommand() {
+        assertThatThrownBy(() -> new MigrationCommandsFactory().getCommands("fixtures/invalid-migrations.yml", MongoTrek.class.getClassLoader()))
+                .isInstanceOf(MongoTrekFailureException.class)
+                .hasMessage("mongoTrek failed: A migration command requires at least a version, description and a command!");
+    }
+
+    @Test
+    void shouldReadAllMigrationsFilesInDirectory() throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/catalog", MongoTrek.class.getClassLoader());
+
+        assertThat(commands.getSchemaVersionCollection()).contains("_catalog_schema_version");
+        assertThat(commands.getMigrations())
+                .extracting(MigrationCommand::getVersion)
+                .containsExactly("1.0.0", "1.0.1", "2.0.0");
+    }
+
+    @Test
+    void shouldReadManifestAndItsIncludes() throws MongoTrekFailureException {
+        MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/manifest-migrations.yml", MongoTrek.class.getClassLoader());
+
+        assertThat(commands.getSchemaVersionCollection()).contains("_manifest_schema_version");
+        assertThat(commands.getMigrations())
+                .extracting(MigrationCommand::getVersion)
+                .containsExactlyInAnyOrder("0.1.0", "1.5.0", "1.6.0", "2.0.0");
+    }
+
+    @Test
+    void shouldFailWhenVersionIsDeclaredInMultipleFiles() {
+        assertThatThrownBy(() -> new MigrationCommandsFactory().getCommands("fixtures/conflicting-catalog", MongoTrek.class.getClassLoader()))
+                .isInstanceOf(MongoTrekFailureException.class)
+                .hasCauseInstanceOf(DuplicateVersionException.class)
+                .hasMessageContaining("Migration [ 1.0.0 ] has duplicate commands in [ ")
+                .hasMessageContaining("conflicting-catalog/a.yml ] and [ ")
+                .hasMessageEndingWith("conflicting-catalog/b.yml ].");
+    }
+
+    @Test
+    void shouldFailWhenMigrationDependsOnLaterVersion() {
+        assertThatThrownBy(() -> new MigrationCommandsFactory().getCommands("fixtures/invalid-dependency-migrations.yml", MongoTrek.class.getClassLoader()))
+                .isInstanceOf(MongoTrekFailureException.class)
+                .hasMessage("mongoTrek failed: Migration [ 1.0.0 ] depends on migration [ 1.0.1 ], which is not an earlier version.");
+    }
+
     // Test that the migration is deserialized correctly and that the JSON-structured command is parsed.
     private static void assertFirstMigration(MigrationCommand firstMigration) {
         assertThat(firstMigration.getDescription()).isEqualTo("My first migration");
         assertThat(firstMigration.getAuthor()).isEqualTo("Homer Simpson");
+        assertThat(firstMigration.isIdempotent()).isTrue();
 
         DBObject firstCommand = firstMigration.getCommand();
 
@@ -44,10 +149,20 @@ class MigrationCommandsFactoryTest {
                 .areAtLeastOne(insertDocument(2, "test2"));
     }
 
+    private static Map<String, Object> document(int value1, String value2) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("value1", value1);
+        document.put("value2", value2);
+        return document;
+    }
+
     // Test that the migration is deserialized correctly and that the YAML-structured command is parsed.
     private static void assertSecondMigration(MigrationCommand secondMigration) {
         assertThat(secondMigration.getDescription()).isEqualTo("My second migration");
         assertThat(secondMigration.getAuthor()).isEqualTo(Migration.DEFAULT_AUTHOR);
+        assertThat(secondMigration.isIdempotent()).isFalse();
+        assertThat(secondMigration.getDependsOn()).containsExactly("1.0.0");
+        assertThat(secondMigration.getParallelism()).contains(4);
 
         DBObject secondCommand = secondMigration.getCommand();
 
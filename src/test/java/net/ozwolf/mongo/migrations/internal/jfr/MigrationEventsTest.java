@@ -0,0 +1,72 @@
+package net.ozwolf.mongo.migrations.internal.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.ozwolf.mongo.migrations.MongoTrek;
+import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
+import net.ozwolf.mongo.migrations.internal.factory.MigrationCommandsFactory;
+import net.ozwolf.mongo.migrations.internal.service.MigrationsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MigrationEventsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecordCatalogStateAndInterpolationEvents() throws Exception {
+        SchemaVersionDAO dao = mock(SchemaVersionDAO.class);
+        when(dao.findAll()).thenReturn(new ArrayList<>());
+
+        Path dump = directory.resolve("migrations.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CatalogParseEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(InterpolationEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(StateComputationEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            MigrationCommands commands = new MigrationCommandsFactory().getCommands("fixtures/migrations-deserialization-test.yml", MongoTrek.class.getClassLoader());
+            new MigrationsService(dao).getState(commands);
+            commands.getMigrations().forEach(MigrationCommand::getCommand);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        RecordedEvent parse = only(events, "net.ozwolf.mongotrek.CatalogParse");
+        assertThat(parse.getString("migrationsFile")).isEqualTo("fixtures/migrations-deserialization-test.yml");
+        assertThat(parse.getBoolean("compiled")).isFalse();
+        assertThat(parse.getInt("migrations")).isEqualTo(2);
+
+        RecordedEvent state = only(events, "net.ozwolf.mongotrek.StateComputation");
+        assertThat(state.getInt("migrations")).isEqualTo(2);
+        assertThat(state.getInt("pending")).isEqualTo(2);
+
+        assertThat(events.stream().filter(e -> e.getEventType().getName().equals("net.ozwolf.mongotrek.Interpolation")))
+                .extracting(e -> e.getString("version"))
+                .containsExactlyInAnyOrder("1.0.0", "1.0.1");
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = new ArrayList<>();
+        for (RecordedEvent event : events)
+            if (event.getEventType().getName().equals(name))
+                matching.add(event);
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,29 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import net.ozwolf.mongo.migrations.internal.dao.SchemaVersionDAO;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.mockito.Mockito.*;
+
+class MigrationHeartbeatTest {
+    private final SchemaVersionDAO schemaVersionDAO = mock(SchemaVersionDAO.class);
+
+    @Test
+    void shouldBeatUntilClosed() {
+        Migration migration = new Migration("1.0.0", "First migration", null, Instant.now(), null, MigrationStatus.Running, null, null);
+
+        try (MigrationHeartbeat heartbeat = new MigrationHeartbeat(schemaVersionDAO, Duration.ofMillis(10))) {
+            MigrationHeartbeat.Beat beat = heartbeat.start(migration);
+            verify(schemaVersionDAO, timeout(1000).atLeast(2)).heartbeat(migration);
+            beat.close();
+
+            clearInvocations(schemaVersionDAO);
+            verify(schemaVersionDAO, after(100).atMost(1)).heartbeat(migration);
+        }
+    }
+}
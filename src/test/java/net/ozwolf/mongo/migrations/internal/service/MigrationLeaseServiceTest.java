@@ -0,0 +1,94 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import net.ozwolf.mongo.migrations.internal.dao.MigrationLeaseDAO;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationLease;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class MigrationLeaseServiceTest {
+    private final MigrationLeaseDAO leaseDAO = mock(MigrationLeaseDAO.class);
+    private final MongoCollection<Document> collection = mock(MongoCollection.class);
+
+    private final static Duration DURATION = Duration.ofMinutes(1);
+    private final static MigrationLease LEASE = new MigrationLease("node-a", 3, Instant.now().plus(DURATION));
+
+    @BeforeEach
+    void setUp() {
+        // A standalone server cannot open change streams, so waiting nodes poll.
+        when(collection.watch(anyList())).thenThrow(new MongoException("The $changeStream stage is only supported on replica sets"));
+    }
+
+    @Test
+    void shouldAcquireFreeLeaseAndReleaseOnClose() throws InterruptedException {
+        when(leaseDAO.acquire("node-a", DURATION)).thenReturn(Optional.of(LEASE));
+
+        Optional<MigrationLeaseService.Held> held = service(Duration.ofSeconds(1)).acquireOrAwait(() -> false);
+
+        assertThat(held).hasValueSatisfying(h -> assertThat(h.getToken()).isEqualTo(3L));
+        held.get().close();
+        verify(leaseDAO).release(LEASE);
+    }
+
+    @Test
+    void shouldWaitUntilAnotherNodeHasMigrated() throws InterruptedException {
+        when(leaseDAO.acquire("node-a", DURATION)).thenReturn(Optional.empty());
+        when(leaseDAO.findCurrent()).thenReturn(Optional.of(new MigrationLease("node-b", 2, Instant.now().plus(DURATION))));
+        AtomicInteger checks = new AtomicInteger();
+
+        Optional<MigrationLeaseService.Held> held = service(Duration.ofSeconds(5)).acquireOrAwait(() -> checks.incrementAndGet() == 3);
+
+        assertThat(held).isEmpty();
+        verify(leaseDAO, times(3)).acquire("node-a", DURATION);
+    }
+
+    @Test
+    void shouldTakeOverLeaseOnceHolderHasGone() throws InterruptedException {
+        when(leaseDAO.acquire("node-a", DURATION)).thenReturn(Optional.empty(), Optional.of(LEASE));
+
+        assertThat(service(Duration.ofSeconds(5)).acquireOrAwait(() -> false)).isPresent();
+    }
+
+    @Test
+    void shouldFailWhenWaitingTooLong() {
+        when(leaseDAO.acquire("node-a", DURATION)).thenReturn(Optional.empty());
+        when(leaseDAO.findCurrent()).thenReturn(Optional.of(new MigrationLease("node-b", 2, Instant.now().plus(DURATION))));
+
+        assertThatThrownBy(() -> service(Duration.ofMillis(50)).acquireOrAwait(() -> false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Timed out after [ 0 seconds ] waiting for migrations by [ node-b ].");
+    }
+
+    @Test
+    void shouldFailWhenLeaseIsLost() throws InterruptedException {
+        when(leaseDAO.acquire("node-a", DURATION)).thenReturn(Optional.of(LEASE));
+        when(leaseDAO.renew(eq(LEASE), any(Duration.class))).thenReturn(Optional.empty());
+
+        MigrationLeaseService.Held held = service(Duration.ofSeconds(1)).acquireOrAwait(() -> false).orElseThrow();
+
+        assertThatThrownBy(held::ensureHeld)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Migration lease [ 3 ] held by [ node-a ] has been lost to another node.");
+        held.close();
+        verify(leaseDAO, never()).release(any());
+    }
+
+    private MigrationLeaseService service(Duration waitTimeout) {
+        return new MigrationLeaseService(leaseDAO, collection, "node-a", DURATION, waitTimeout, Duration.ofMillis(10));
+    }
+}
@@ -0,0 +1,33 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import net.ozwolf.mongo.migrations.MigrationListener;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MigrationListenersTest {
+    @Test
+    void shouldNotifyEveryListenerWhenOneFails() {
+        MigrationListener failing = mock(MigrationListener.class);
+        MigrationListener listening = mock(MigrationListener.class);
+        doThrow(new IllegalStateException("broken")).when(failing).onMigrationStarted(anyString(), anyString(), anyString());
+        doThrow(new IllegalStateException("broken")).when(failing).onStateComputed(anyString(), anyInt(), anyInt(), anyLong());
+
+        MigrationListeners listeners = new MigrationListeners();
+        listeners.add(failing);
+        listeners.add(listening);
+
+        listeners.onStateComputed("trek", 3, 1, 100L);
+        listeners.onMigrationStarted("trek", "1.0.0", "insert");
+        listeners.onMigrationFinished("trek", "1.0.0", "insert", 200L);
+
+        verify(listening).onStateComputed("trek", 3, 1, 100L);
+        verify(listening).onMigrationStarted("trek", "1.0.0", "insert");
+        verify(listening).onMigrationFinished(eq("trek"), eq("1.0.0"), eq("insert"), eq(200L));
+        verify(failing).onMigrationFinished("trek", "1.0.0", "insert", 200L);
+    }
+}
@@ -0,0 +1,108 @@
+package net.ozwolf.mongo.migrations.internal.service;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import net.ozwolf.mongo.migrations.MigrationProgress;
+import net.ozwolf.mongo.migrations.internal.domain.Migration;
+import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class MigrationProgressMonitorTest {
+    private final MongoDatabase admin = mock(MongoDatabase.class);
+    private final MongoDatabase database = mock(MongoDatabase.class);
+
+    @Test
+    void shouldReadProgressFromCurrentOp() {
+        MigrationProgress progress = MigrationProgressMonitor.progressOf("1.0.0", "update", Duration.ofSeconds(60), new Document("docsExamined", 25_000).append("nModified", 20_000), 100_000L);
+
+        assertThat(progress.getDocumentsExamined()).hasValue(25_000L);
+        assertThat(progress.getDocumentsModified()).hasValue(20_000L);
+        assertThat(progress.getTotalDocuments()).hasValue(100_000L);
+        assertThat(progress.getEstimatedRemaining()).contains(Duration.ofSeconds(180));
+    }
+
+    @Test
+    void shouldPreferServerProgressTotal() {
+        MigrationProgress progress = MigrationProgressMonitor.progressOf("1.0.0", "createIndexes", Duration.ofSeconds(10), new Document("progress", new Document("done", 50L).append("total", 200L)), 1_000L);
+
+        assertThat(progress.getDocumentsExamined()).hasValue(50L);
+        assertThat(progress.getTotalDocuments()).hasValue(200L);
+        assertThat(progress.getFraction()).hasValue(0.25);
+    }
+
+    @Test
+    void shouldOnlyReportElapsedTimeWithoutCurrentOp() {
+        MigrationProgress progress = MigrationProgressMonitor.progressOf("1.0.0", "renameCollection", Duration.ofSeconds(10), null, null);
+
+        assertThat(progress.getDocumentsExamined()).isEmpty();
+        assertThat(progress.getEstimatedRemaining()).isEmpty();
+        assertThat(progress.toString()).isEqualTo("[ 1.0.0 ] renameCollection running for [ 10 seconds ]");
+    }
+
+    @Test
+    void shouldTagCommandsAndReportUntilClosed() throws InterruptedException {
+        AggregateIterable<Document> currentOp = mock(AggregateIterable.class);
+        when(admin.aggregate(anyList())).thenReturn(currentOp);
+        when(currentOp.first()).thenReturn(new Document("docsExamined", 10L));
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(database.getCollection("people")).thenReturn(collection);
+        when(collection.estimatedDocumentCount()).thenReturn(40L);
+        when(database.getName()).thenReturn("trek");
+
+        Map<String, Object> command = new HashMap<>();
+        command.put("update", "people");
+        Migration migration = new Migration(new MigrationCommand("1.0.0", "Backfill", null, command));
+
+        List<MigrationProgress> reported = new CopyOnWriteArrayList<>();
+        CountDownLatch reports = new CountDownLatch(2);
+        try (MigrationProgressMonitor monitor = new MigrationProgressMonitor(admin, database, Duration.ofMillis(10))) {
+            MigrationProgressMonitor.Watch watch = monitor.watch(migration, p -> {
+                reported.add(p);
+                reports.countDown();
+            });
+            assertThat(watch.getComment()).contains("mongotrek:trek:1.0.0");
+
+            assertThat(reports.await(1, TimeUnit.SECONDS)).isTrue();
+            watch.close();
+        }
+
+        MigrationProgress progress = reported.get(0);
+        assertThat(progress.getDocumentsExamined()).hasValue(10L);
+        assertThat(progress.getTotalDocuments()).hasValue(40L);
+        verify(collection, times(1)).estimatedDocumentCount();
+
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(admin, atLeastOnce()).aggregate(pipeline.capture());
+        assertThat(pipeline.getValue().get(1).get("$match", Document.class).get("ns", Document.class).getString("$regex")).isEqualTo("^\\Qtrek.\\E");
+    }
+
+    @Test
+    void shouldNotTagCommandsWithoutAdminDatabase() {
+        Map<String, Object> command = new HashMap<>();
+        command.put("update", "people");
+        Migration migration = new Migration(new MigrationCommand("1.0.0", "Backfill", null, command));
+
+        try (MigrationProgressMonitor monitor = new MigrationProgressMonitor(null, database, Duration.ofSeconds(10))) {
+            MigrationProgressMonitor.Watch watch = monitor.watch(migration, p -> {
+            });
+            assertThat(watch.getComment()).isEmpty();
+            watch.close();
+        }
+    }
+}
@@ -7,18 +7,27 @@ import net.ozwolf.mongo.migrations.internal.domain.Migration;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommand;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationCommands;
 import net.ozwolf.mongo.migrations.internal.domain.MigrationStatus;
+import net.ozwolf.mongo.migrations.internal.domain.Reconciliation;
+import net.ozwolf.mongo.migrations.internal.domain.SchemaVersionHead;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static net.ozwolf.mongo.migrations.matchers.MigrationMatchers.migrationOf;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class MigrationsServiceTest {
@@ -97,7 +106,159 @@ public class MigrationsServiceTest {
         );
     }
 
+    @Test
+    public void shouldReportOrphanedHistoryRecords() {
+        Migration previous1 = record("0.9.0", MigrationStatus.Successful);
+        Migration previous2 = record("1.0.0", MigrationStatus.Successful);
+        Migration previous3 = record("0.9.1", MigrationStatus.Failed);
+
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(previous1, previous2, previous3));
+
+        MigrationCommands commands = commands(
+                new V1_0_0__FirstMigration(),
+                new V1_0_1__SecondMigration()
+        );
+
+        MongoTrekState state = new MigrationsService(schemaVersionDAO).getState(commands);
+
+        assertThat(state.getMigrations())
+                .hasSize(2)
+                .areAtLeastOne(migrationOf("1.0.0", MigrationStatus.Successful))
+                .areAtLeastOne(migrationOf("1.0.1", MigrationStatus.Pending));
+
+        assertThat(state.getOrphaned())
+                .hasSize(2)
+                .areAtLeastOne(migrationOf("0.9.0", MigrationStatus.Successful))
+                .areAtLeastOne(migrationOf("0.9.1", MigrationStatus.Failed));
+    }
+
+    @Test
+    public void shouldReportDuplicatesAndOrphansInOnePass() {
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("0.9.0", MigrationStatus.Successful)));
+
+        MigrationCommands commands = commands(
+                new V2_0_0__FourthMigration(),
+                new V1_0_2__ThirdMigration(),
+                new V2_0_0__DuplicateMigration()
+        );
+
+        Reconciliation reconciliation = new MigrationsService(schemaVersionDAO).reconcile(commands);
+
+        assertThat(reconciliation.getMigrations()).hasSize(2);
+        assertThat(reconciliation.getDuplicates())
+                .hasSize(1)
+                .areAtLeastOne(migrationOf("2.0.0", "Duplicate Migration", Migration.DEFAULT_AUTHOR, MigrationStatus.Pending));
+        assertThat(reconciliation.getOrphaned())
+                .hasSize(1)
+                .areAtLeastOne(migrationOf("0.9.0"));
+    }
+
+    @Test
+    public void shouldReportMigrationsWhoseCommandChangedSinceApplied() {
+        MigrationCommand first = new V1_0_0__FirstMigration();
+        MigrationCommand second = new V1_0_1__SecondMigration();
+
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(
+                record("1.0.0", MigrationStatus.Successful, first.getChecksum()),
+                record("1.0.1", MigrationStatus.Successful, "a-different-checksum"),
+                record("1.0.2", MigrationStatus.Successful)
+        ));
+
+        MongoTrekState state = new MigrationsService(schemaVersionDAO).getState(commands(first, second, new V1_0_2__ThirdMigration()));
+
+        assertThat(state.getDrifted())
+                .hasSize(1)
+                .areAtLeastOne(migrationOf("1.0.1", MigrationStatus.Successful));
+    }
+
+    @Test
+    public void shouldChangeFingerprintWhenCatalogChanges() {
+        MigrationCommands original = commands(new V1_0_0__FirstMigration(), new V1_0_1__SecondMigration());
+        MigrationCommands reordered = commands(new V1_0_1__SecondMigration(), new V1_0_0__FirstMigration());
+        MigrationCommands added = commands(new V1_0_0__FirstMigration(), new V1_0_1__SecondMigration(), new V1_0_2__ThirdMigration());
+
+        Map<String, Object> changedCommand = new HashMap<>();
+        changedCommand.put("drop", "test");
+        MigrationCommands changed = commands(new V1_0_0__FirstMigration(), new MigrationCommand("1.0.1", "Second Migration", Migration.DEFAULT_AUTHOR, changedCommand));
+
+        assertThat(reordered.getFingerprint()).isEqualTo(original.getFingerprint());
+        assertThat(added.getFingerprint()).isNotEqualTo(original.getFingerprint());
+        assertThat(changed.getFingerprint()).isNotEqualTo(original.getFingerprint());
+    }
+
+    @Test
+    public void shouldOnlyRecordHeadWhenFullyApplied() {
+        MigrationCommands commands = commands(new V1_0_0__FirstMigration(), new V1_0_1__SecondMigration());
+        MigrationsService service = new MigrationsService(schemaVersionDAO);
+
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("1.0.0", MigrationStatus.Successful)));
+        service.recordHead(commands, service.getState(commands));
+        verify(schemaVersionDAO, never()).saveHead(any());
+
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("1.0.0", MigrationStatus.Successful), record("1.0.1", MigrationStatus.Successful)));
+        service.recordHead(commands, service.getState(commands));
+
+        ArgumentCaptor<SchemaVersionHead> head = ArgumentCaptor.forClass(SchemaVersionHead.class);
+        verify(schemaVersionDAO).saveHead(head.capture());
+        assertThat(head.getValue().getCurrentVersion()).isEqualTo("1.0.1");
+        assertThat(head.getValue().getMigrations()).isEqualTo(2);
+        assertThat(head.getValue().matches(commands)).isTrue();
+
+        when(schemaVersionDAO.findHead()).thenReturn(Optional.of(head.getValue()));
+        assertThat(service.findUpToDateHead(commands)).isPresent();
+        assertThat(service.findUpToDateHead(commands(new V1_0_0__FirstMigration()))).isEmpty();
+    }
+
+    @Test
+    public void shouldRetryStaleRunningMigrations() {
+        Instant now = Instant.now();
+        Migration stale = record("1.0.1", MigrationStatus.Running).heartbeat(now.minusSeconds(120));
+        Migration alive = record("1.0.2", MigrationStatus.Running).heartbeat(now.minusSeconds(5));
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("1.0.0", MigrationStatus.Successful), stale, alive));
+
+        MigrationsService service = new MigrationsService(schemaVersionDAO);
+        MigrationCommands commands = commands(new V1_0_0__FirstMigration(), new V1_0_1__SecondMigration(), new V1_0_2__ThirdMigration());
+
+        List<Migration> recovered = service.recoverStale(service.getState(commands), Duration.ofMinutes(1), now);
+
+        assertThat(recovered).containsExactly(stale);
+        assertThat(stale.isFailed()).isTrue();
+        assertThat(stale.getFailureMessage()).startsWith("Interrupted while running; nothing heard since [ ");
+        assertThat(alive.isRunning()).isTrue();
+        verify(schemaVersionDAO).save(stale);
+        verify(schemaVersionDAO, never()).save(alive);
+    }
+
+    @Test
+    public void shouldNotRetryStaleRunningMigrationThatIsNotIdempotent() {
+        Instant now = Instant.now();
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("1.0.0", MigrationStatus.Running).heartbeat(now.minusSeconds(120))));
+
+        MigrationsService service = new MigrationsService(schemaVersionDAO);
+        MigrationCommands commands = commands(new V1_0_0__FirstMigration().idempotent(false));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.recoverStale(service.getState(commands), Duration.ofMinutes(1), now));
+
+        assertThat(e.getMessage()).isEqualTo("Migration [ 1.0.0 ] was interrupted while running and is not idempotent, so must be resolved manually.");
+        verify(schemaVersionDAO, never()).save(any());
+    }
+
+    @Test
+    public void shouldNotRecordHeadWhileMigrationIsRunning() {
+        MigrationCommands commands = commands(new V1_0_0__FirstMigration(), new V1_0_1__SecondMigration());
+        when(schemaVersionDAO.findAll()).thenReturn(migrations(record("1.0.0", MigrationStatus.Successful), record("1.0.1", MigrationStatus.Running)));
+
+        MigrationsService service = new MigrationsService(schemaVersionDAO);
+        service.recordHead(commands, service.getState(commands));
+
+        verify(schemaVersionDAO, never()).saveHead(any());
+    }
+
     private Migration record(String version, MigrationStatus status) {
+        return record(version, status, null);
+    }
+
+    private Migration record(String version, MigrationStatus status, String checksum) {
         return new Migration(
                 version,
                 String.format("Migration %s", version),
@@ -106,7 +267,8 @@ public class MigrationsServiceTest {
                 (status == MigrationStatus.Successful) ? Instant.now() : null,
                 status,
                 (status == MigrationStatus.Failed) ? "Failure" : null,
-                (status == MigrationStatus.Failed) ? null : new Document("n", 1)
+                (status == MigrationStatus.Failed) ? null : new Document("n", 1),
+                checksum
         );
     }
 
@@ -0,0 +1,103 @@
+package net.ozwolf.mongo.migrations.internal.util;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PublishersTest {
+    @Test
+    void shouldCollectListWithBoundedDemand() {
+        RangePublisher publisher = new RangePublisher(7);
+
+        List<Integer> items = Publishers.toList(publisher, 3).toCompletableFuture().join();
+
+        assertThat(items).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(publisher.requests).containsExactly(3L, 3L, 3L);
+    }
+
+    @Test
+    void shouldTakeFirstItemAndCancel() {
+        RangePublisher publisher = new RangePublisher(7);
+
+        assertThat(Publishers.first(publisher).toCompletableFuture().join()).contains(0);
+        assertThat(publisher.requests).containsExactly(1L);
+        assertThat(publisher.cancelled).isTrue();
+    }
+
+    @Test
+    void shouldCompleteEmptyWhenNothingPublished() {
+        assertThat(Publishers.first(new RangePublisher(0)).toCompletableFuture().join()).isEmpty();
+    }
+
+    @Test
+    void shouldCompleteExceptionallyOnError() {
+        Publisher<Object> failing = s -> {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    s.onError(new IllegalStateException("Broken"));
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        };
+
+        assertThatThrownBy(() -> Publishers.toList(failing).toCompletableFuture().join())
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseMessage("Broken");
+    }
+
+    // Emits 0 until count, only as fast as requested.
+    private static class RangePublisher implements Publisher<Integer> {
+        private final int count;
+        private final List<Long> requests = new ArrayList<>();
+        private boolean cancelled;
+
+        private RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    demand += n;
+                    if (emitting) return;
+
+                    emitting = true;
+                    while (demand > 0 && next < count && !cancelled) {
+                        demand--;
+                        subscriber.onNext(next++);
+                    }
+                    emitting = false;
+
+                    if (next == count && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.ozwolf.mongo.migrations.testutils;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOneModel;
+import net.ozwolf.mongo.migrations.JavaMigration;
+import net.ozwolf.mongo.migrations.StreamingBulkWriter;
+import org.bson.Document;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.set;
+import static com.mongodb.client.model.Updates.unset;
+
+public class SplitFullNamesMigration implements JavaMigration {
+    @Override
+    public Document migrate(MongoDatabase database) {
+        MongoCollection<Document> people = database.getCollection("people");
+        return StreamingBulkWriter.into(people)
+                .batchSize(2)
+                .write(people.find(exists("fullName")), p -> {
+                    String[] names = p.getString("fullName").split(" ", 2);
+                    return new UpdateOneModel<>(eq("_id", p.get("_id")), combine(set("firstName", names[0]), set("lastName", names[1]), unset("fullName")));
+                })
+                .toDocument();
+    }
+}